@@ -1,93 +1,153 @@
 package com.interplanetarycrash.animation;
 
 import javafx.scene.image.Image;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Manages multiple animations for a single sprite
  * Allows switching between different animation states
+ *
+ * Animations are addressed by int handles returned from addAnimation,
+ * so per-frame switching is a plain array index. The String API is
+ * kept for setup code. Playback itself is advanced by the shared
+ * AnimationSystem, this class only selects which clip is playing.
  */
 public class AnimatedSprite {
-    
-    private final Map<String, Animation> animations;
-    private String currentAnimationName;
-    private Animation currentAnimation;
-    
-    public AnimatedSprite() {
-        this.animations = new HashMap<>();
+
+    public static final int NO_ANIMATION = -1;
+
+    private final AnimationSystem system;
+    private final int playhead;
+
+    private int[] clips;
+    private String[] animationNames;
+    private int animationCount;
+    private final Map<String, Integer> handles;
+
+    private int currentHandle;
+
+    public AnimatedSprite(AnimationSystem system) {
+        this.system = system;
+        this.playhead = system.createPlayhead();
+        this.clips = new int[4];
+        this.animationNames = new String[4];
+        this.animationCount = 0;
+        this.handles = new HashMap<>();
+        this.currentHandle = NO_ANIMATION;
     }
-    
+
     /**
      * Add an animation to this sprite
+     * @return handle to use with setAnimation(int)
      */
-    public void addAnimation(String name, Animation animation) {
-        animations.put(name, animation);
-        
+    public int addAnimation(String name, Animation animation) {
+        int clip = system.addClip(animation);
+
+        Integer existing = handles.get(name);
+        if (existing != null) {
+            clips[existing] = clip;
+            if (existing == currentHandle) {
+                system.play(playhead, clip);
+            }
+            return existing;
+        }
+
+        if (animationCount == clips.length) {
+            clips = Arrays.copyOf(clips, animationCount * 2);
+            animationNames = Arrays.copyOf(animationNames, animationCount * 2);
+        }
+
+        int handle = animationCount++;
+        clips[handle] = clip;
+        animationNames[handle] = name;
+        handles.put(name, handle);
+
         // Set as current if this is the first animation
-        if (currentAnimation == null) {
-            setAnimation(name);
+        if (currentHandle == NO_ANIMATION) {
+            setAnimation(handle);
         }
+        return handle;
     }
-    
+
     /**
-     * Switch to a different animation
+     * Look up the handle of a named animation
+     * @return handle, or NO_ANIMATION if not found
      */
-    public void setAnimation(String name) {
-        if (name.equals(currentAnimationName)) {
+    public int getHandle(String name) {
+        Integer handle = handles.get(name);
+        return handle != null ? handle : NO_ANIMATION;
+    }
+
+    /**
+     * Switch to a different animation (hot path)
+     */
+    public void setAnimation(int handle) {
+        if (handle == currentHandle) {
             return; // Already playing this animation
         }
-        
-        Animation newAnimation = animations.get(name);
-        if (newAnimation == null) {
-            System.err.println("Animation not found: " + name);
+
+        if (handle < 0 || handle >= animationCount) {
+            System.err.println("Animation handle not found: " + handle);
             return;
         }
-        
-        currentAnimationName = name;
-        currentAnimation = newAnimation;
-        currentAnimation.reset();
+
+        currentHandle = handle;
+        system.play(playhead, clips[handle]);
     }
-    
+
     /**
-     * Update current animation
+     * Switch to a different animation by name (setup code only)
      */
-    public void update(double deltaTime) {
-        if (currentAnimation != null) {
-            currentAnimation.update(deltaTime);
+    public void setAnimation(String name) {
+        int handle = getHandle(name);
+        if (handle == NO_ANIMATION) {
+            System.err.println("Animation not found: " + name);
+            return;
         }
+        setAnimation(handle);
     }
-    
+
     /**
      * Get current frame to render
      */
     public Image getCurrentFrame() {
-        if (currentAnimation != null) {
-            return currentAnimation.getCurrentFrame();
-        }
-        return null;
+        return system.getCurrentFrame(playhead);
     }
-    
+
+    /**
+     * Get current animation handle
+     */
+    public int getCurrentHandle() {
+        return currentHandle;
+    }
+
     /**
      * Get current animation name
      */
     public String getCurrentAnimationName() {
-        return currentAnimationName;
+        return currentHandle != NO_ANIMATION ? animationNames[currentHandle] : null;
     }
-    
+
     /**
      * Check if current animation is finished
      */
     public boolean isCurrentAnimationFinished() {
-        return currentAnimation != null && currentAnimation.isFinished();
+        return system.isFinished(playhead);
     }
-    
+
     /**
      * Reset current animation
      */
     public void resetCurrentAnimation() {
-        if (currentAnimation != null) {
-            currentAnimation.reset();
-        }
+        system.restart(playhead);
+    }
+
+    /**
+     * Give the playhead back to the animation system
+     */
+    public void dispose() {
+        system.releasePlayhead(playhead);
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,19 @@
 package com.interplanetarycrash.animation;
 
 import javafx.scene.image.Image;
+import java.util.Arrays;
 
 /**
  * Represents an animation with multiple frames
+ * This is only the clip description registered with AnimationSystem;
+ * playback state lives in the system's playheads
  */
 public class Animation {
     
     private final Image[] frames;
-    private final double frameDuration; // Duration of each frame in seconds
+    private final double[] frameDurations; // Duration of each frame in seconds
     private final boolean loop;
     
-    private int currentFrame;
-    private double elapsedTime;
-    private boolean finished;
-    
     /**
      * Create a new animation
      * @param frames Array of images for animation frames
@@ -22,68 +21,59 @@ public class Animation {
      * @param loop Whether animation should loop
      */
     public Animation(Image[] frames, double frameDuration, boolean loop) {
-        this.frames = frames;
-        this.frameDuration = frameDuration;
-        this.loop = loop;
-        this.currentFrame = 0;
-        this.elapsedTime = 0;
-        this.finished = false;
+        this(frames, uniformDurations(frames.length, frameDuration), loop);
     }
     
     /**
-     * Update animation
+     * Create a new animation with its own duration for every frame
+     * @param frames Array of images for animation frames
+     * @param frameDurations How long each frame lasts in seconds
+     * @param loop Whether animation should loop
      */
-    public void update(double deltaTime) {
-        if (finished && !loop) return;
-        
-        elapsedTime += deltaTime;
-        
-        // Check if we should advance to next frame
-        while (elapsedTime >= frameDuration) {
-            elapsedTime -= frameDuration;
-            currentFrame++;
-            
-            // Handle loop or finish
-            if (currentFrame >= frames.length) {
-                if (loop) {
-                    currentFrame = 0;
-                } else {
-                    currentFrame = frames.length - 1;
-                    finished = true;
-                    break;
-                }
+    public Animation(Image[] frames, double[] frameDurations, boolean loop) {
+        if (frameDurations.length != frames.length) {
+            throw new IllegalArgumentException("Expected " + frames.length + " frame durations, got " + frameDurations.length);
+        }
+        for (double duration : frameDurations) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("Frame duration must be positive: " + duration);
             }
         }
+        this.frames = frames;
+        this.frameDurations = frameDurations;
+        this.loop = loop;
     }
     
     /**
-     * Get current frame image
+     * Get total duration of animation
      */
-    public Image getCurrentFrame() {
-        return frames[currentFrame];
+    public double getTotalDuration() {
+        double total = 0;
+        for (double duration : frameDurations) {
+            total += duration;
+        }
+        return total;
     }
     
     /**
-     * Reset animation to first frame
+     * Get frame images
      */
-    public void reset() {
-        currentFrame = 0;
-        elapsedTime = 0;
-        finished = false;
+    public Image[] getFrames() {
+        return frames;
     }
     
     /**
-     * Check if animation is finished (only meaningful for non-looping animations)
+     * Get duration of every frame in seconds
      */
-    public boolean isFinished() {
-        return finished;
+    public double[] getFrameDurations() {
+        return frameDurations;
     }
     
     /**
-     * Get total duration of animation
+     * Check if animation loops
      */
-    public double getTotalDuration() {
-        return frames.length * frameDuration;
+    public boolean isLooping() {
+        return loop;
     }
     
     /**
@@ -92,4 +82,10 @@ public class Animation {
     public int getFrameCount() {
         return frames.length;
     }
-}
+    
+    private static double[] uniformDurations(int frameCount, double frameDuration) {
+        double[] durations = new double[frameCount];
+        Arrays.fill(durations, frameDuration);
+        return durations;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.interplanetarycrash.animation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+
+/**
+ * Advances every active animation playhead in one pass per tick
+ *
+ * Clips (frames + per-frame durations + loop flag) and playheads are kept in
+ * parallel primitive arrays instead of one object per animation, so a
+ * tick is a single linear loop no matter how many entities are animated.
+ * Owners hold an int playhead id and only query the current frame.
+ */
+public class AnimationSystem {
+
+    public static final int NO_CLIP = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // ===== CLIPS =====
+    private Image[][] clipFrames = new Image[INITIAL_CAPACITY][];
+    private double[][] clipFrameDurations = new double[INITIAL_CAPACITY][];
+    private boolean[] clipLoop = new boolean[INITIAL_CAPACITY];
+    private int clipCount = 0;
+    private final Map<ClipKey, Integer> clipIds = new HashMap<>();
+
+    // ===== PLAYHEADS =====
+    private int[] playheadClip = new int[INITIAL_CAPACITY];
+    private int[] playheadFrame = new int[INITIAL_CAPACITY];
+    private double[] playheadElapsed = new double[INITIAL_CAPACITY];
+    private boolean[] playheadLoop = new boolean[INITIAL_CAPACITY];
+    private boolean[] playheadFinished = new boolean[INITIAL_CAPACITY];
+    private int playheadCount = 0;
+
+    // Released playhead slots, reused before growing the arrays
+    private int[] freePlayheads = new int[INITIAL_CAPACITY];
+    private int freeCount = 0;
+
+    /**
+     * Register a clip, sharing storage with an identical existing clip
+     * @return clip id
+     */
+    public int addClip(Image[] frames, double[] frameDurations, boolean loop) {
+        ClipKey key = new ClipKey(frames, frameDurations, loop);
+        Integer existing = clipIds.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (clipCount == clipFrames.length) {
+            int capacity = clipCount * 2;
+            clipFrames = Arrays.copyOf(clipFrames, capacity);
+            clipFrameDurations = Arrays.copyOf(clipFrameDurations, capacity);
+            clipLoop = Arrays.copyOf(clipLoop, capacity);
+        }
+
+        int clip = clipCount++;
+        clipFrames[clip] = frames;
+        clipFrameDurations[clip] = frameDurations;
+        clipLoop[clip] = loop;
+        clipIds.put(key, clip);
+        return clip;
+    }
+
+    /**
+     * Register the clip described by an Animation
+     */
+    public int addClip(Animation animation) {
+        return addClip(animation.getFrames(), animation.getFrameDurations(), animation.isLooping());
+    }
+
+    /**
+     * Create a playhead, initially playing nothing
+     * @return playhead id
+     */
+    public int createPlayhead() {
+        int playhead;
+        if (freeCount > 0) {
+            playhead = freePlayheads[--freeCount];
+        } else {
+            if (playheadCount == playheadClip.length) {
+                int capacity = playheadCount * 2;
+                playheadClip = Arrays.copyOf(playheadClip, capacity);
+                playheadFrame = Arrays.copyOf(playheadFrame, capacity);
+                playheadElapsed = Arrays.copyOf(playheadElapsed, capacity);
+                playheadLoop = Arrays.copyOf(playheadLoop, capacity);
+                playheadFinished = Arrays.copyOf(playheadFinished, capacity);
+            }
+            playhead = playheadCount++;
+        }
+
+        playheadClip[playhead] = NO_CLIP;
+        playheadFrame[playhead] = 0;
+        playheadElapsed[playhead] = 0;
+        playheadLoop[playhead] = false;
+        playheadFinished[playhead] = false;
+        return playhead;
+    }
+
+    /**
+     * Release a playhead so its slot can be reused
+     */
+    public void releasePlayhead(int playhead) {
+        if (playheadClip[playhead] == NO_CLIP && playheadFinished[playhead]) {
+            return; // Already released
+        }
+        playheadClip[playhead] = NO_CLIP;
+        playheadFinished[playhead] = true;
+
+        if (freeCount == freePlayheads.length) {
+            freePlayheads = Arrays.copyOf(freePlayheads, freeCount * 2);
+        }
+        freePlayheads[freeCount++] = playhead;
+    }
+
+    /**
+     * Start playing a clip from its first frame
+     */
+    public void play(int playhead, int clip) {
+        playheadClip[playhead] = clip;
+        playheadLoop[playhead] = clipLoop[clip];
+        restart(playhead);
+    }
+
+    /**
+     * Rewind a playhead to the first frame of its clip
+     */
+    public void restart(int playhead) {
+        playheadFrame[playhead] = 0;
+        playheadElapsed[playhead] = 0;
+        playheadFinished[playhead] = false;
+    }
+
+    /**
+     * Advance every active playhead
+     */
+    public void update(double deltaTime) {
+        for (int i = 0; i < playheadCount; i++) {
+            if (playheadFinished[i]) continue;
+            int clip = playheadClip[i];
+            if (clip == NO_CLIP) continue;
+
+            double[] durations = clipFrameDurations[clip];
+            int frame = playheadFrame[i];
+            double elapsed = playheadElapsed[i] + deltaTime;
+            if (elapsed < durations[frame]) {
+                playheadElapsed[i] = elapsed;
+                continue;
+            }
+
+            // Advance by however many whole frames have passed
+            while (elapsed >= durations[frame]) {
+                elapsed -= durations[frame];
+                frame++;
+                if (frame >= durations.length) {
+                    if (playheadLoop[i]) {
+                        frame = 0;
+                    } else {
+                        frame = durations.length - 1;
+                        elapsed = 0;
+                        playheadFinished[i] = true;
+                        break;
+                    }
+                }
+            }
+            playheadFrame[i] = frame;
+            playheadElapsed[i] = elapsed;
+        }
+    }
+
+    /**
+     * Get current frame image of a playhead
+     */
+    public Image getCurrentFrame(int playhead) {
+        int clip = playheadClip[playhead];
+        if (clip == NO_CLIP) {
+            return null;
+        }
+        return clipFrames[clip][playheadFrame[playhead]];
+    }
+
+    /**
+     * Get current frame index of a playhead
+     */
+    public int getFrameIndex(int playhead) {
+        return playheadFrame[playhead];
+    }
+
+    /**
+     * Get clip currently played by a playhead
+     */
+    public int getClip(int playhead) {
+        return playheadClip[playhead];
+    }
+
+    /**
+     * Check if a playhead has finished (only meaningful for non-looping clips)
+     */
+    public boolean isFinished(int playhead) {
+        return playheadClip[playhead] != NO_CLIP && playheadFinished[playhead];
+    }
+
+    /**
+     * Number of playheads currently in use
+     */
+    public int getActivePlayheadCount() {
+        return playheadCount - freeCount;
+    }
+
+    /**
+     * Identity of a clip for de-duplication (frames compared by reference)
+     */
+    private static final class ClipKey {
+        private final Image[] frames;
+        private final double[] frameDurations;
+        private final boolean loop;
+        private final int hash;
+
+        ClipKey(Image[] frames, double[] frameDurations, boolean loop) {
+            this.frames = frames;
+            this.frameDurations = frameDurations;
+            this.loop = loop;
+            this.hash = 31 * (31 * Arrays.hashCode(frames) + Arrays.hashCode(frameDurations)) + Boolean.hashCode(loop);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ClipKey)) return false;
+            ClipKey other = (ClipKey) o;
+            return loop == other.loop
+                && Arrays.equals(frameDurations, other.frameDurations)
+                && Arrays.equals(frames, other.frames);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
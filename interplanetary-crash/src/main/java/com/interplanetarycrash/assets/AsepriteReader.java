@@ -0,0 +1,545 @@
+package com.interplanetarycrash.assets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader for Aseprite .ase/.aseprite files
+ * Decodes layers, cels, tags, palette and per-frame durations into
+ * flattened ARGB frames, so a whole character can live in one file.
+ *
+ * Only the normal blend mode is composited, other modes are drawn as normal.
+ * Tilemap layers are skipped.
+ */
+public final class AsepriteReader {
+
+    private static final int HEADER_MAGIC = 0xA5E0;
+    private static final int FRAME_MAGIC = 0xF1FA;
+    private static final int HEADER_SIZE = 128;
+
+    private static final int CHUNK_OLD_PALETTE = 0x0004;
+    private static final int CHUNK_OLD_PALETTE_2 = 0x0011;
+    private static final int CHUNK_LAYER = 0x2004;
+    private static final int CHUNK_CEL = 0x2005;
+    private static final int CHUNK_TAGS = 0x2018;
+    private static final int CHUNK_PALETTE = 0x2019;
+
+    private static final int CEL_RAW = 0;
+    private static final int CEL_LINKED = 1;
+    private static final int CEL_COMPRESSED = 2;
+
+    private static final int LAYER_FLAG_VISIBLE = 1;
+    private static final int LAYER_FLAG_REFERENCE = 64;
+    private static final int LAYER_TYPE_GROUP = 1;
+    private static final int LAYER_TYPE_TILEMAP = 2;
+
+    private static final int HEADER_FLAG_LAYER_OPACITY = 1;
+
+    public static final int DIRECTION_FORWARD = 0;
+    public static final int DIRECTION_REVERSE = 1;
+    public static final int DIRECTION_PING_PONG = 2;
+    public static final int DIRECTION_PING_PONG_REVERSE = 3;
+
+    private AsepriteReader() {}
+
+    /**
+     * Named frame range, as defined in the Aseprite timeline
+     */
+    public static final class Tag {
+        private final String name;
+        private final int from;
+        private final int to;
+        private final int direction;
+        private final int repeat;
+
+        Tag(String name, int from, int to, int direction, int repeat) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+            this.direction = direction;
+            this.repeat = repeat;
+        }
+
+        /**
+         * Frame indices in playback order (directions already applied)
+         */
+        public int[] getFrameOrder() {
+            int length = to - from + 1;
+            int[] forward = new int[length];
+            for (int i = 0; i < length; i++) {
+                forward[i] = from + i;
+            }
+
+            switch (direction) {
+                case DIRECTION_REVERSE:
+                    return reversed(forward);
+                case DIRECTION_PING_PONG:
+                    return pingPong(forward);
+                case DIRECTION_PING_PONG_REVERSE:
+                    return pingPong(reversed(forward));
+                default:
+                    return forward;
+            }
+        }
+
+        private static int[] reversed(int[] frames) {
+            int[] result = new int[frames.length];
+            for (int i = 0; i < frames.length; i++) {
+                result[i] = frames[frames.length - 1 - i];
+            }
+            return result;
+        }
+
+        private static int[] pingPong(int[] frames) {
+            if (frames.length <= 2) return frames;
+            // 0 1 2 3 -> 0 1 2 3 2 1, the loop restarts at 0
+            int[] result = new int[frames.length * 2 - 2];
+            for (int i = 0; i < frames.length; i++) {
+                result[i] = frames[i];
+            }
+            for (int i = 1; i < frames.length - 1; i++) {
+                result[frames.length - 1 + i] = frames[frames.length - 1 - i];
+            }
+            return result;
+        }
+
+        public String getName() { return name; }
+        public int getFrom() { return from; }
+        public int getTo() { return to; }
+        public int getDirection() { return direction; }
+        public int getRepeat() { return repeat; }
+    }
+
+    /**
+     * Decoded contents of one Aseprite file
+     */
+    public static final class Sprite {
+        private final int width;
+        private final int height;
+        private final int colorDepth;
+        private final int[][] frames;
+        private final int[] frameDurations;
+        private final List<Tag> tags;
+        private final List<String> layerNames;
+        private final int[] palette;
+
+        Sprite(int width, int height, int colorDepth, int[][] frames, int[] frameDurations,
+               List<Tag> tags, List<String> layerNames, int[] palette) {
+            this.width = width;
+            this.height = height;
+            this.colorDepth = colorDepth;
+            this.frames = frames;
+            this.frameDurations = frameDurations;
+            this.tags = Collections.unmodifiableList(tags);
+            this.layerNames = Collections.unmodifiableList(layerNames);
+            this.palette = palette;
+        }
+
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public int getColorDepth() { return colorDepth; }
+        public int getFrameCount() { return frames.length; }
+        /** Flattened ARGB pixels of a frame, row-major */
+        public int[] getFramePixels(int frame) { return frames[frame]; }
+        /** Frame duration in milliseconds */
+        public int getFrameDuration(int frame) { return frameDurations[frame]; }
+        public List<Tag> getTags() { return tags; }
+        public List<String> getLayerNames() { return layerNames; }
+        /** Palette as ARGB, empty if the file has none */
+        public int[] getPalette() { return palette; }
+    }
+
+    /**
+     * Per-layer info needed during compositing
+     */
+    private static final class Layer {
+        String name;
+        int flags;
+        int type;
+        int childLevel;
+        int opacity;
+        boolean visible; // Own flag combined with parent groups
+    }
+
+    /**
+     * Cel kept per frame so linked cels can refer back to it
+     */
+    private static final class Cel {
+        int layer;
+        int x, y;
+        int opacity;
+        int width, height;
+        int[] pixels; // ARGB
+    }
+
+    /**
+     * Read and decode an Aseprite file
+     */
+    public static Sprite read(Path path) throws IOException {
+        return read(Files.readAllBytes(path));
+    }
+
+    /**
+     * Decode an Aseprite file from memory
+     */
+    public static Sprite read(byte[] data) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.length < HEADER_SIZE) {
+            throw new IOException("File too small for Aseprite header");
+        }
+
+        buf.getInt(); // file size
+        int magic = buf.getShort() & 0xFFFF;
+        if (magic != HEADER_MAGIC) {
+            throw new IOException("Not an Aseprite file (magic " + Integer.toHexString(magic) + ")");
+        }
+        int frameCount = buf.getShort() & 0xFFFF;
+        int width = buf.getShort() & 0xFFFF;
+        int height = buf.getShort() & 0xFFFF;
+        int colorDepth = buf.getShort() & 0xFFFF;
+        int headerFlags = buf.getInt();
+        buf.getShort(); // deprecated speed
+        buf.getInt();
+        buf.getInt();
+        int transparentIndex = buf.get() & 0xFF;
+        buf.position(HEADER_SIZE);
+
+        if (colorDepth != 32 && colorDepth != 16 && colorDepth != 8) {
+            throw new IOException("Unsupported color depth: " + colorDepth);
+        }
+
+        boolean useLayerOpacity = (headerFlags & HEADER_FLAG_LAYER_OPACITY) != 0;
+        int[] palette = new int[0];
+        List<Layer> layers = new ArrayList<>();
+        List<Tag> tags = new ArrayList<>();
+        int[][] frames = new int[frameCount][];
+        int[] durations = new int[frameCount];
+        List<List<Cel>> celsByFrame = new ArrayList<>();
+
+        for (int f = 0; f < frameCount; f++) {
+            int frameStart = buf.position();
+            int frameBytes = buf.getInt();
+            int frameMagic = buf.getShort() & 0xFFFF;
+            if (frameMagic != FRAME_MAGIC) {
+                throw new IOException("Bad frame magic in frame " + f);
+            }
+            int oldChunks = buf.getShort() & 0xFFFF;
+            durations[f] = buf.getShort() & 0xFFFF;
+            buf.getShort(); // reserved
+            int newChunks = buf.getInt();
+            int chunkCount = newChunks != 0 ? newChunks : oldChunks;
+
+            List<Cel> cels = new ArrayList<>();
+            celsByFrame.add(cels);
+
+            for (int c = 0; c < chunkCount; c++) {
+                int chunkStart = buf.position();
+                int chunkSize = buf.getInt();
+                int chunkType = buf.getShort() & 0xFFFF;
+                int chunkEnd = chunkStart + chunkSize;
+
+                switch (chunkType) {
+                    case CHUNK_LAYER:
+                        layers.add(readLayer(buf, layers));
+                        break;
+                    case CHUNK_CEL:
+                        Cel cel = readCel(buf, chunkEnd, colorDepth, transparentIndex, palette, celsByFrame);
+                        if (cel != null) cels.add(cel);
+                        break;
+                    case CHUNK_TAGS:
+                        readTags(buf, tags);
+                        break;
+                    case CHUNK_PALETTE:
+                        palette = readPalette(buf, palette);
+                        break;
+                    case CHUNK_OLD_PALETTE:
+                    case CHUNK_OLD_PALETTE_2:
+                        // Only used if no new palette chunk is present
+                        if (palette.length == 0) {
+                            palette = readOldPalette(buf, chunkType == CHUNK_OLD_PALETTE_2);
+                        }
+                        break;
+                    default:
+                        break; // Ignore chunks we don't need
+                }
+                buf.position(chunkEnd);
+            }
+
+            frames[f] = composite(width, height, layers, cels, useLayerOpacity);
+            buf.position(frameStart + frameBytes);
+        }
+
+        List<String> layerNames = new ArrayList<>();
+        for (Layer layer : layers) {
+            layerNames.add(layer.name);
+        }
+
+        return new Sprite(width, height, colorDepth, frames, durations, tags, layerNames, palette);
+    }
+
+    private static Layer readLayer(ByteBuffer buf, List<Layer> previous) {
+        Layer layer = new Layer();
+        layer.flags = buf.getShort() & 0xFFFF;
+        layer.type = buf.getShort() & 0xFFFF;
+        layer.childLevel = buf.getShort() & 0xFFFF;
+        buf.getShort(); // default width
+        buf.getShort(); // default height
+        buf.getShort(); // blend mode
+        layer.opacity = buf.get() & 0xFF;
+        buf.position(buf.position() + 3);
+        layer.name = readString(buf);
+
+        // A layer is only visible if every parent group is visible too
+        boolean visible = (layer.flags & LAYER_FLAG_VISIBLE) != 0
+            && (layer.flags & LAYER_FLAG_REFERENCE) == 0;
+        for (int i = previous.size() - 1, level = layer.childLevel; i >= 0 && level > 0; i--) {
+            Layer parent = previous.get(i);
+            if (parent.childLevel == level - 1 && parent.type == LAYER_TYPE_GROUP) {
+                visible &= parent.visible;
+                level--;
+            }
+        }
+        layer.visible = visible;
+        return layer;
+    }
+
+    private static Cel readCel(ByteBuffer buf, int chunkEnd, int colorDepth, int transparentIndex,
+                               int[] palette, List<List<Cel>> celsByFrame) throws IOException {
+        Cel cel = new Cel();
+        cel.layer = buf.getShort() & 0xFFFF;
+        cel.x = buf.getShort();
+        cel.y = buf.getShort();
+        cel.opacity = buf.get() & 0xFF;
+        int celType = buf.getShort() & 0xFFFF;
+        buf.getShort(); // z-index
+        buf.position(buf.position() + 5);
+
+        switch (celType) {
+            case CEL_RAW: {
+                cel.width = buf.getShort() & 0xFFFF;
+                cel.height = buf.getShort() & 0xFFFF;
+                byte[] raw = new byte[cel.width * cel.height * (colorDepth / 8)];
+                buf.get(raw);
+                cel.pixels = toArgb(raw, cel.width * cel.height, colorDepth, transparentIndex, palette);
+                return cel;
+            }
+            case CEL_COMPRESSED: {
+                cel.width = buf.getShort() & 0xFFFF;
+                cel.height = buf.getShort() & 0xFFFF;
+                byte[] compressed = new byte[chunkEnd - buf.position()];
+                buf.get(compressed);
+                byte[] raw = inflate(compressed, cel.width * cel.height * (colorDepth / 8));
+                cel.pixels = toArgb(raw, cel.width * cel.height, colorDepth, transparentIndex, palette);
+                return cel;
+            }
+            case CEL_LINKED: {
+                int linkedFrame = buf.getShort() & 0xFFFF;
+                if (linkedFrame < celsByFrame.size()) {
+                    for (Cel source : celsByFrame.get(linkedFrame)) {
+                        if (source.layer == cel.layer) {
+                            cel.width = source.width;
+                            cel.height = source.height;
+                            cel.pixels = source.pixels;
+                            return cel;
+                        }
+                    }
+                }
+                return null;
+            }
+            default:
+                return null; // Tilemap cels are not supported
+        }
+    }
+
+    private static void readTags(ByteBuffer buf, List<Tag> tags) {
+        int count = buf.getShort() & 0xFFFF;
+        buf.position(buf.position() + 8);
+        for (int i = 0; i < count; i++) {
+            int from = buf.getShort() & 0xFFFF;
+            int to = buf.getShort() & 0xFFFF;
+            int direction = buf.get() & 0xFF;
+            int repeat = buf.getShort() & 0xFFFF;
+            buf.position(buf.position() + 6 + 3 + 1); // reserved, color, extra
+            String name = readString(buf);
+            tags.add(new Tag(name, from, to, direction, repeat));
+        }
+    }
+
+    private static int[] readPalette(ByteBuffer buf, int[] current) {
+        int size = buf.getInt();
+        int from = buf.getInt();
+        int to = buf.getInt();
+        buf.position(buf.position() + 8);
+
+        int[] palette = current.length >= size ? current : Arrays.copyOf(current, size);
+        for (int i = from; i <= to; i++) {
+            int flags = buf.getShort() & 0xFFFF;
+            int r = buf.get() & 0xFF;
+            int g = buf.get() & 0xFF;
+            int b = buf.get() & 0xFF;
+            int a = buf.get() & 0xFF;
+            if ((flags & 1) != 0) {
+                readString(buf); // color name
+            }
+            if (i < palette.length) {
+                palette[i] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+        return palette;
+    }
+
+    private static int[] readOldPalette(ByteBuffer buf, boolean sixBit) {
+        int[] palette = new int[256];
+        int packets = buf.getShort() & 0xFFFF;
+        int index = 0;
+        int max = 0;
+        for (int p = 0; p < packets; p++) {
+            index += buf.get() & 0xFF;
+            int count = buf.get() & 0xFF;
+            if (count == 0) count = 256;
+            for (int i = 0; i < count && index < 256; i++, index++) {
+                int r = buf.get() & 0xFF;
+                int g = buf.get() & 0xFF;
+                int b = buf.get() & 0xFF;
+                if (sixBit) {
+                    r = (r << 2) | (r >> 4);
+                    g = (g << 2) | (g >> 4);
+                    b = (b << 2) | (b >> 4);
+                }
+                palette[index] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                max = Math.max(max, index + 1);
+            }
+        }
+        return Arrays.copyOf(palette, max);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] inflate(byte[] compressed, int expected) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] out = new byte[expected];
+            int total = 0;
+            while (total < expected && !inflater.finished()) {
+                int n = inflater.inflate(out, total, expected - total);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += n;
+            }
+            if (total != expected) {
+                throw new IOException("Compressed cel is truncated (" + total + "/" + expected + " bytes)");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed cel: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Convert raw cel pixels of any supported depth to ARGB
+     */
+    private static int[] toArgb(byte[] raw, int count, int colorDepth, int transparentIndex, int[] palette) {
+        int[] argb = new int[count];
+        switch (colorDepth) {
+            case 32:
+                for (int i = 0, j = 0; i < count; i++, j += 4) {
+                    int r = raw[j] & 0xFF;
+                    int g = raw[j + 1] & 0xFF;
+                    int b = raw[j + 2] & 0xFF;
+                    int a = raw[j + 3] & 0xFF;
+                    argb[i] = (a << 24) | (r << 16) | (g << 8) | b;
+                }
+                break;
+            case 16:
+                for (int i = 0, j = 0; i < count; i++, j += 2) {
+                    int v = raw[j] & 0xFF;
+                    int a = raw[j + 1] & 0xFF;
+                    argb[i] = (a << 24) | (v << 16) | (v << 8) | v;
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    int index = raw[i] & 0xFF;
+                    if (index == transparentIndex || index >= palette.length) {
+                        argb[i] = 0;
+                    } else {
+                        argb[i] = palette[index];
+                    }
+                }
+                break;
+        }
+        return argb;
+    }
+
+    /**
+     * Flatten all visible cels of a frame into one ARGB image
+     */
+    private static int[] composite(int width, int height, List<Layer> layers, List<Cel> cels, boolean useLayerOpacity) {
+        int[] out = new int[width * height];
+
+        // Cels are drawn in layer order, not chunk order
+        List<Cel> ordered = new ArrayList<>(cels);
+        ordered.sort((a, b) -> Integer.compare(a.layer, b.layer));
+
+        for (Cel cel : ordered) {
+            if (cel.layer >= layers.size()) continue;
+            Layer layer = layers.get(cel.layer);
+            if (!layer.visible || layer.type == LAYER_TYPE_GROUP || layer.type == LAYER_TYPE_TILEMAP) continue;
+
+            int opacity = cel.opacity;
+            if (useLayerOpacity) {
+                opacity = opacity * layer.opacity / 255;
+            }
+            if (opacity == 0) continue;
+
+            for (int cy = 0; cy < cel.height; cy++) {
+                int y = cel.y + cy;
+                if (y < 0 || y >= height) continue;
+                for (int cx = 0; cx < cel.width; cx++) {
+                    int x = cel.x + cx;
+                    if (x < 0 || x >= width) continue;
+                    int src = cel.pixels[cy * cel.width + cx];
+                    int srcA = (src >>> 24) * opacity / 255;
+                    if (srcA == 0) continue;
+                    int idx = y * width + x;
+                    out[idx] = blendNormal(out[idx], src, srcA);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Source-over blend of straight (non-premultiplied) ARGB colors
+     */
+    private static int blendNormal(int dst, int src, int srcA) {
+        int dstA = dst >>> 24;
+        if (srcA == 255 || dstA == 0) {
+            return (srcA << 24) | (src & 0x00FFFFFF);
+        }
+        int outA = srcA + dstA * (255 - srcA) / 255;
+        int r = (((src >> 16) & 0xFF) * srcA + ((dst >> 16) & 0xFF) * dstA * (255 - srcA) / 255) / outA;
+        int g = (((src >> 8) & 0xFF) * srcA + ((dst >> 8) & 0xFF) * dstA * (255 - srcA) / 255) / outA;
+        int b = ((src & 0xFF) * srcA + (dst & 0xFF) * dstA * (255 - srcA) / 255) / outA;
+        return (outA << 24) | (r << 16) | (g << 8) | b;
+    }
+}
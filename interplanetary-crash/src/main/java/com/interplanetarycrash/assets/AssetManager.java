@@ -2,10 +2,16 @@ package com.interplanetarycrash.assets;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
+import com.interplanetarycrash.animation.Animation;
+
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
 import javafx.scene.image.PixelWriter;
 import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
@@ -14,18 +20,34 @@ import javafx.scene.text.Font;
 /**
  * Singleton class for managing game assets (sprites, fonts, sounds)
  * Creates placeholder graphics when actual assets are not available
+ *
+ * Sprites are uploaded at their native size; GameRenderer scales them
+ * without smoothing. Each sprite's indexes into the shared palette are
+ * kept next to its image (one byte per pixel on top of the ARGB upload)
+ * so palette swaps can be built from them.
  */
 public class AssetManager {
     
     private static AssetManager instance;
 
-    private static final int PLAYER_SCALE = 2;      
-    private static final int MODULE_SCALE = 2;      
-    private static final int SHIP_SCALE = 4;        
-    private static final int BACKGROUND_SCALE = 1;  
+    // Used when an animation has no timing information (plain PNG frames)
+    public static final double DEFAULT_FRAME_DURATION = 0.15;
+    private static final String PALETTE_FILE = "PALETTE.ase";
+    private static final int MAX_PALETTE_SIZE = 256;
+
+    // Built-in palette variants
+    public static final String PALETTE_DAMAGED = "damaged";
+    public static final String PALETTE_ALARM = "alarm";
     
     private final Map<String, Image> sprites = new HashMap<>();
+    private final Map<Image, IndexedSprite> indexedSprites = new IdentityHashMap<>();
+    private final Map<String, int[]> paletteVariants = new HashMap<>();
+    private final Map<String, Map<Image, Image>> variantImages = new HashMap<>();
+    private final Map<Integer, Integer> paletteLookup = new HashMap<>();
     private final Map<String, Font> fonts = new HashMap<>();
+    private final Map<String, Integer> animationFrameCounts = new HashMap<>();
+    private final Map<String, double[]> animationDurations = new HashMap<>();
+    private int[] palette = new int[0];
     
     private AssetManager() {}
 
@@ -45,9 +67,12 @@ public class AssetManager {
         System.out.println("Loading assets...");
         
         loadFonts();
+        loadPalette();
         loadBackgrounds();
         loadAllSprites();
         loadAllAnimations();
+        loadAsepriteFiles();
+        createPaletteVariants();
 
         System.out.println("Assets loaded successfully!");
     }
@@ -85,26 +110,27 @@ public class AssetManager {
         fonts.put("retro_small", Font.font("Monospaced", 16));
     }
 
-    private void loadSingleAnimation(String name, int frameCount, int scale) {
+    private void loadSingleAnimation(String name, int frameCount) {
         for (int i = 1; i <= frameCount; i++) {
             String path = name + "/Sprite-" + name + i + ".png";
-            sprites.put(name + i, loadImage(path, scale));
+            putSprite(name + i, loadImage(path));
         }
+        animationFrameCounts.put(name, frameCount);
     }
     
     private void loadAllAnimations() {
-        loadSingleAnimation("Astronaut-Death-Left", 13, PLAYER_SCALE);
-        loadSingleAnimation("Astronaut-Death-Right", 13, PLAYER_SCALE);
-        loadSingleAnimation("Astronaut-Walking-Left", 2, PLAYER_SCALE);
-        loadSingleAnimation("Astronaut-Walking-Right", 2, PLAYER_SCALE);
-        loadSingleAnimation("Astronaut-Idle-Right", 2, PLAYER_SCALE);
-        loadSingleAnimation("Astronaut-Idle-Left", 2, PLAYER_SCALE);
-        loadSingleAnimation("Comms-Destroyed", 4, MODULE_SCALE);
-        loadSingleAnimation("Comms-Repaired", 8, MODULE_SCALE);
-        loadSingleAnimation("Servers-Destroyed", 5, MODULE_SCALE);
-        loadSingleAnimation("Servers-Repaired", 7, MODULE_SCALE);
-        loadSingleAnimation("Starship-Burning", 6, SHIP_SCALE);
-        loadSingleAnimation("Starship-Destroyed", 6, SHIP_SCALE);
+        loadSingleAnimation("Astronaut-Death-Left", 13);
+        loadSingleAnimation("Astronaut-Death-Right", 13);
+        loadSingleAnimation("Astronaut-Walking-Left", 2);
+        loadSingleAnimation("Astronaut-Walking-Right", 2);
+        loadSingleAnimation("Astronaut-Idle-Right", 2);
+        loadSingleAnimation("Astronaut-Idle-Left", 2);
+        loadSingleAnimation("Comms-Destroyed", 4);
+        loadSingleAnimation("Comms-Repaired", 8);
+        loadSingleAnimation("Servers-Destroyed", 5);
+        loadSingleAnimation("Servers-Repaired", 7);
+        loadSingleAnimation("Starship-Burning", 6);
+        loadSingleAnimation("Starship-Destroyed", 6);
     }
 
     private void loadAllSprites() {
@@ -116,42 +142,319 @@ public class AssetManager {
 
         for (String name : spriteNames) {
             String path = name + ".png";
-            sprites.put(name, loadImage(path, SHIP_SCALE));
+            putSprite(name, loadImage(path));
         }
     }
     /**
-     * Load single image file
+     * Load the shared palette from PALETTE.ase
+     * Colors found in sprites but missing from it are appended later.
      */
-    private Image loadImage(String relativePath, int scale) {
+    private void loadPalette() {
+        File file = new File(assetsPath + "/sprites/" + PALETTE_FILE);
         try {
-            String fullPath = assetsPath + "/sprites/" + relativePath;
-            File file = new File(fullPath);
-            if (file.exists()) {
-                FileInputStream fis = new FileInputStream(file);
-                // Load original size first
-                Image original = new Image(fis, 0, 0, true, false);
-                fis.close();
-                
-                // Calculate scaled dimensions
-                int scaledWidth = (int)(original.getWidth() * scale);
-                int scaledHeight = (int)(original.getHeight() * scale);
-                
-                // Reload with specific size and NO SMOOTHING
-                fis = new FileInputStream(file);
-                Image scaled = new Image(fis, scaledWidth, scaledHeight, true, false);
-                fis.close();
-                
-                System.out.println("  Loaded (scaled " + scale + "x): " + relativePath);
-                return scaled;
-            } else {
-                System.err.println("  File not found: " + fullPath);
+            palette = AsepriteReader.read(file.toPath()).getPalette();
+            System.out.println("  Loaded palette (" + palette.length + " colors): " + PALETTE_FILE);
+        } catch (Exception e) {
+            System.err.println("  Failed to load palette: " + e.getMessage());
+            palette = new int[0];
+        }
+
+        paletteLookup.clear();
+        for (int i = 0; i < palette.length; i++) {
+            paletteLookup.putIfAbsent(normalizeColor(palette[i]), i);
+        }
+    }
+
+    /**
+     * Create the built-in palette swaps (after all sprites are indexed)
+     */
+    private void createPaletteVariants() {
+        registerPaletteVariant(PALETTE_DAMAGED, IndexedSprite.tintPalette(palette, Color.rgb(255, 60, 0), 0.4));
+        registerPaletteVariant(PALETTE_ALARM, IndexedSprite.tintPalette(palette, Color.RED, 0.6));
+    }
+
+    /**
+     * Load every .ase/.aseprite file in the sprites folder
+     * Each tag becomes an animation named "<file>-<tag>" with the frame
+     * durations from the file; files without tags become one animation.
+     * Animations loaded here replace PNG animations of the same name.
+     */
+    private void loadAsepriteFiles() {
+        File[] files = new File(assetsPath + "/sprites").listFiles((dir, fileName) ->
+            fileName.endsWith(".ase") || fileName.endsWith(".aseprite"));
+        if (files == null) return;
+        Arrays.sort(files);
+
+        for (File file : files) {
+            try {
+                if (file.getName().equals(PALETTE_FILE)) continue;
+                registerAsepriteFile(file.getName(), AsepriteReader.read(file.toPath()));
+            } catch (Exception e) {
+                System.err.println("  Failed to load: " + file.getName() + " - " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Register all animations of a decoded Aseprite file
+     */
+    private void registerAsepriteFile(String fileName, AsepriteReader.Sprite ase) {
+        String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+
+        if (ase.getTags().isEmpty()) {
+            int[] order = new int[ase.getFrameCount()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            registerAsepriteAnimation(baseName, ase, order);
+        } else {
+            for (AsepriteReader.Tag tag : ase.getTags()) {
+                registerAsepriteAnimation(baseName + "-" + tag.getName(), ase, tag.getFrameOrder());
+            }
+        }
+        System.out.println("  Loaded: " + fileName
+            + " [" + ase.getFrameCount() + " frames, " + ase.getTags().size() + " tags]");
+    }
+
+    /**
+     * Register one animation decoded from an Aseprite file
+     */
+    private void registerAsepriteAnimation(String name, AsepriteReader.Sprite ase, int[] frameOrder) {
+        // Index each source frame only once, even if the tag plays it twice
+        Map<Integer, IndexedSprite> decoded = new HashMap<>();
+        double[] durations = new double[frameOrder.length];
+
+        for (int i = 0; i < frameOrder.length; i++) {
+            int frame = frameOrder[i];
+            IndexedSprite indexed = decoded.computeIfAbsent(frame, f ->
+                toIndexed(name, ase.getFramePixels(f), ase.getWidth(), ase.getHeight()));
+            replaceSprite(name + (i + 1), indexed);
+
+            int millis = ase.getFrameDuration(frame);
+            durations[i] = millis > 0 ? millis / 1000.0 : DEFAULT_FRAME_DURATION;
+        }
+
+        animationFrameCounts.put(name, frameOrder.length);
+        animationDurations.put(name, durations);
+    }
+
+    /**
+     * Convert ARGB pixels to indexes into the shared palette
+     * Warns when the palette is full and some colors had to be approximated.
+     */
+    private IndexedSprite toIndexed(String name, int[] argb, int width, int height) {
+        byte[] pixels = new byte[argb.length];
+        int approximated = 0;
+        for (int i = 0; i < argb.length; i++) {
+            int index = paletteIndexOf(argb[i]);
+            if (palette[index] != normalizeColor(argb[i])) {
+                approximated++;
+            }
+            pixels[i] = (byte) index;
+        }
+        if (approximated > 0) {
+            System.err.println("  Warning: " + name + " has " + approximated + " pixels in colors beyond the "
+                + MAX_PALETTE_SIZE + "-color palette, drawn with the closest palette colors");
+        }
+        return new IndexedSprite(width, height, pixels);
+    }
+
+    /**
+     * Find a color in the shared palette, appending it while there is room
+     * Once the palette is full the closest color is used instead.
+     */
+    private int paletteIndexOf(int argb) {
+        int color = normalizeColor(argb);
+        Integer index = paletteLookup.get(color);
+        if (index != null) {
+            return index;
+        }
+
+        if (palette.length < MAX_PALETTE_SIZE) {
+            int newIndex = palette.length;
+            palette = Arrays.copyOf(palette, newIndex + 1);
+            palette[newIndex] = color;
+            paletteLookup.put(color, newIndex);
+            return newIndex;
+        }
+
+        int best = 0;
+        long bestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < palette.length; i++) {
+            long distance = colorDistance(color, palette[i]);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        paletteLookup.put(color, best);
+        return best;
+    }
+
+    /**
+     * All fully transparent pixels share one palette entry
+     */
+    private static int normalizeColor(int argb) {
+        return (argb >>> 24) == 0 ? 0 : argb;
+    }
+
+    private static long colorDistance(int a, int b) {
+        long da = (a >>> 24) - (b >>> 24);
+        long dr = ((a >> 16) & 0xFF) - ((b >> 16) & 0xFF);
+        long dg = ((a >> 8) & 0xFF) - ((b >> 8) & 0xFF);
+        long db = (a & 0xFF) - (b & 0xFF);
+        return da * da + dr * dr + dg * dg + db * db;
+    }
+
+    /**
+     * Expand an indexed sprite with the base palette
+     * The indexed pixels are kept so palette variants can be built later.
+     */
+    private Image upload(IndexedSprite indexed) {
+        if (indexed == null) return null;
+        Image image = indexed.toImage(palette);
+        indexedSprites.put(image, indexed);
+        return image;
+    }
+
+    private void putSprite(String name, IndexedSprite indexed) {
+        sprites.put(name, upload(indexed));
+    }
+
+    /**
+     * Register a sprite, rewriting the existing image in place when the size
+     * matches so animations already holding it show the new pixels
+     */
+    private void replaceSprite(String name, IndexedSprite indexed) {
+        Image existing = sprites.get(name);
+        if (!(existing instanceof WritableImage)
+                || (int) existing.getWidth() != indexed.getWidth()
+                || (int) existing.getHeight() != indexed.getHeight()) {
+            putSprite(name, indexed);
+            return;
+        }
+
+        indexed.writeTo((WritableImage) existing, palette);
+        indexedSprites.put(existing, indexed);
+
+        // Refresh palette variants that were already expanded
+        for (Map.Entry<String, Map<Image, Image>> cache : variantImages.entrySet()) {
+            Image variant = cache.getValue().get(existing);
+            if (variant instanceof WritableImage) {
+                indexed.writeTo((WritableImage) variant, paletteVariants.get(cache.getKey()));
             }
+        }
+    }
+
+    /**
+     * Load single image file as an indexed sprite (native size)
+     */
+    private IndexedSprite loadImage(String relativePath) {
+        String fullPath = assetsPath + "/sprites/" + relativePath;
+        File file = new File(fullPath);
+        if (!file.exists()) {
+            System.err.println("  File not found: " + fullPath);
+            return null;
+        }
+
+        try {
+            DecodedImage decoded = decodeImage(file);
+            System.out.println("  Loaded: " + relativePath);
+            return toIndexed(relativePath, decoded.argb, decoded.width, decoded.height);
         } catch (Exception e) {
             System.err.println("  Failed to load: " + relativePath + " - " + e.getMessage());
         }
         return null;
     }
 
+    /**
+     * ARGB pixels of an image file, not yet indexed
+     */
+    static final class DecodedImage {
+        final int width;
+        final int height;
+        final int[] argb;
+
+        DecodedImage(int width, int height, int[] argb) {
+            this.width = width;
+            this.height = height;
+            this.argb = argb;
+        }
+    }
+
+    /**
+     * Decode an image file to ARGB pixels
+     * Touches no AssetManager state, so it is safe on a background thread.
+     */
+    static DecodedImage decodeImage(File file) throws Exception {
+        try (FileInputStream fis = new FileInputStream(file)) {
+            Image original = new Image(fis);
+            if (original.isError()) {
+                throw original.getException();
+            }
+
+            int width = (int) original.getWidth();
+            int height = (int) original.getHeight();
+            int[] argb = new int[width * height];
+            PixelReader reader = original.getPixelReader();
+            reader.getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+            return new DecodedImage(width, height, argb);
+        }
+    }
+
+    // ===== HOT-RELOAD (called on the JavaFX thread by AssetWatcher) =====
+
+    /**
+     * Swap in a re-decoded PNG sprite
+     * @param relativePath path relative to assets/sprites, e.g. "Comms-Destroyed/Sprite-Comms-Destroyed3.png"
+     */
+    void reloadSprite(String relativePath, DecodedImage decoded) {
+        int paletteSize = palette.length;
+        String name = spriteNameForPath(relativePath);
+        replaceSprite(name, toIndexed(relativePath, decoded.argb, decoded.width, decoded.height));
+        refreshVariantsIfPaletteGrew(paletteSize);
+        System.out.println("  Reloaded sprite: " + name);
+    }
+
+    /**
+     * Swap in a re-decoded Aseprite file
+     */
+    void reloadAseprite(String fileName, AsepriteReader.Sprite ase) {
+        if (fileName.equals(PALETTE_FILE)) {
+            System.out.println("  " + PALETTE_FILE + " changed - restart to re-index sprites");
+            return;
+        }
+        int paletteSize = palette.length;
+        registerAsepriteFile(fileName, ase);
+        refreshVariantsIfPaletteGrew(paletteSize);
+    }
+
+    private void refreshVariantsIfPaletteGrew(int oldPaletteSize) {
+        if (palette.length != oldPaletteSize) {
+            createPaletteVariants(); // Also drops cached variant images
+        }
+    }
+
+    /**
+     * Sprite name used by loadSingleAnimation/loadAllSprites for a PNG path
+     */
+    static String spriteNameForPath(String relativePath) {
+        String path = relativePath.replace('\\', '/');
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        String name = fileName.endsWith(".png") ? fileName.substring(0, fileName.length() - 4) : fileName;
+
+        // Frames in animation folders drop the "Sprite-" prefix
+        if (path.contains("/") && name.startsWith("Sprite-")) {
+            name = name.substring("Sprite-".length());
+        }
+        return name;
+    }
+
+    /**
+     * Root folder of the game assets on disk
+     */
+    public static String getAssetsPath() {
+        return assetsPath;
+    }
+
     /**
      * Load background sprites
      */
@@ -211,6 +514,57 @@ public class AssetManager {
         return sprite;
     }
 
+    /**
+     * Build an animation from loaded frames
+     * Frame count and durations come from the art files; PNG animations
+     * use DEFAULT_FRAME_DURATION for every frame.
+     */
+    public Animation getAnimation(String name, boolean loop) {
+        int frameCount = animationFrameCounts.getOrDefault(name, 1);
+        Image[] frames = getAnimationFrames(name, frameCount);
+
+        double[] durations = animationDurations.get(name);
+        if (durations == null) {
+            return new Animation(frames, DEFAULT_FRAME_DURATION, loop);
+        }
+        return new Animation(frames, durations, loop);
+    }
+
+    /**
+     * Get shared sprite palette (ARGB): PALETTE.ase plus any extra sprite colors
+     */
+    public int[] getPalette() {
+        return palette;
+    }
+
+    /**
+     * Register a palette swap usable with getPaletteVariant
+     * The palette is indexed like getPalette().
+     */
+    public void registerPaletteVariant(String name, int[] variantPalette) {
+        paletteVariants.put(name, variantPalette);
+        variantImages.remove(name);
+    }
+
+    /**
+     * Get a sprite image drawn with a different palette
+     * Variant images are expanded on first use and cached. Returns the
+     * original image if it is not an indexed sprite or the variant is unknown.
+     */
+    public Image getPaletteVariant(Image sprite, String variant) {
+        if (sprite == null || variant == null) return sprite;
+
+        int[] variantPalette = paletteVariants.get(variant);
+        IndexedSprite indexed = indexedSprites.get(sprite);
+        if (variantPalette == null || indexed == null) {
+            return sprite;
+        }
+
+        return variantImages
+            .computeIfAbsent(variant, v -> new IdentityHashMap<>())
+            .computeIfAbsent(sprite, s -> indexed.toImage(variantPalette));
+    }
+
     public Image[] getAnimationFrames(String baseName, int frameCount) {
         Image[] frames = new Image[frameCount];
         for (int i = 1; i < frameCount+1; i++) {
@@ -0,0 +1,178 @@
+package com.interplanetarycrash.assets;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import com.interplanetarycrash.tasks.Task;
+import com.interplanetarycrash.tasks.TaskLoader;
+
+import javafx.application.Platform;
+
+/**
+ * Development mode hot-reload of sprites and task files
+ *
+ * Watches assets/sprites and assets/tasks on a background thread. Changed
+ * files are decoded there and then swapped in on the JavaFX thread, between
+ * frames. Enable with -Dinterplanetarycrash.dev=true
+ */
+public class AssetWatcher {
+
+    public static final String DEV_MODE_PROPERTY = "interplanetarycrash.dev";
+
+    // Editors often write a file in several steps, wait for them to settle
+    private static final long SETTLE_MILLIS = 150;
+
+    private final AssetManager assets;
+    private final BiConsumer<String, Task> taskReloaded;
+    private final Path spritesDir;
+    private final Path tasksDir;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param taskReloaded called on the JavaFX thread with the task file name
+     *                     and a freshly parsed task
+     */
+    public AssetWatcher(AssetManager assets, BiConsumer<String, Task> taskReloaded) {
+        this.assets = assets;
+        this.taskReloaded = taskReloaded;
+        this.spritesDir = Paths.get(AssetManager.getAssetsPath(), "sprites");
+        this.tasksDir = Paths.get(AssetManager.getAssetsPath(), "tasks");
+    }
+
+    /**
+     * Check if the game was started in development mode
+     */
+    public static boolean isDevMode() {
+        return Boolean.getBoolean(DEV_MODE_PROPERTY);
+    }
+
+    /**
+     * Start watching (no-op if already running)
+     */
+    public void start() {
+        if (thread != null) return;
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerTree(spritesDir);
+            registerTree(tasksDir);
+        } catch (IOException e) {
+            System.err.println("Asset hot-reload disabled: " + e.getMessage());
+            return;
+        }
+
+        thread = new Thread(this::run, "asset-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Asset hot-reload enabled, watching " + spritesDir.getParent());
+    }
+
+    /**
+     * Stop watching
+     */
+    public void stop() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing asset watcher: " + e.getMessage());
+        }
+        thread = null;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        if (!Files.isDirectory(root)) return;
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                WatchKey key = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirs.put(key, dir);
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+
+                // Coalesce the burst of events a single save produces
+                Thread.sleep(SETTLE_MILLIS);
+                WatchKey key;
+                while ((key = watchService.poll()) != null) {
+                    collect(key, changed);
+                }
+
+                for (Path file : changed) {
+                    reload(file);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watcher stopped
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+            Path file = dir.resolve((Path) event.context());
+
+            if (Files.isDirectory(file)) {
+                // New animation folder
+                try {
+                    registerTree(file);
+                } catch (IOException e) {
+                    System.err.println("Cannot watch " + file + ": " + e.getMessage());
+                }
+            } else {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * Decode one changed file here and hand the result to the JavaFX thread
+     */
+    private void reload(Path file) {
+        String fileName = file.getFileName().toString();
+        try {
+            if (file.startsWith(tasksDir) && fileName.endsWith(".txt")) {
+                Task task = TaskLoader.loadTask(fileName);
+                Platform.runLater(() -> {
+                    System.out.println("  Reloaded task: " + fileName);
+                    taskReloaded.accept(fileName, task);
+                });
+            } else if (file.startsWith(spritesDir) && fileName.endsWith(".png")) {
+                String relativePath = spritesDir.relativize(file).toString();
+                AssetManager.DecodedImage decoded = AssetManager.decodeImage(file.toFile());
+                Platform.runLater(() -> assets.reloadSprite(relativePath, decoded));
+            } else if (file.startsWith(spritesDir) && (fileName.endsWith(".ase") || fileName.endsWith(".aseprite"))) {
+                AsepriteReader.Sprite ase = AsepriteReader.read(file);
+                Platform.runLater(() -> assets.reloadAseprite(fileName, ase));
+            }
+        } catch (Exception e) {
+            System.err.println("  Failed to reload: " + fileName + " - " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.interplanetarycrash.assets;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Sprite stored as one palette index per pixel
+ * The ARGB image is only produced when the sprite is uploaded, so the
+ * same pixels can be shown with any palette (damage tint, alarm flash...)
+ */
+public class IndexedSprite {
+
+    private final int width;
+    private final int height;
+    private final byte[] pixels;
+
+    public IndexedSprite(int width, int height, byte[] pixels) {
+        if (pixels.length != width * height) {
+            throw new IllegalArgumentException("Expected " + (width * height) + " pixels, got " + pixels.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Expand to an ARGB image using the given palette
+     */
+    public Image toImage(int[] palette) {
+        WritableImage img = new WritableImage(width, height);
+        writeTo(img, palette);
+        return img;
+    }
+
+    /**
+     * Expand into an existing image of the same size (used by hot-reload)
+     */
+    public void writeTo(WritableImage img, int[] palette) {
+        int[] argb = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int index = pixels[i] & 0xFF;
+            argb[i] = index < palette.length ? palette[index] : 0;
+        }
+
+        img.getPixelWriter().setPixels(0, 0, width, height,
+            PixelFormat.getIntArgbInstance(), argb, 0, width);
+    }
+
+    /**
+     * Create a copy of a palette with every opaque color blended towards a tint
+     * @param amount 0 = original colors, 1 = flat tint
+     */
+    public static int[] tintPalette(int[] palette, Color tint, double amount) {
+        int tr = (int) Math.round(tint.getRed() * 255);
+        int tg = (int) Math.round(tint.getGreen() * 255);
+        int tb = (int) Math.round(tint.getBlue() * 255);
+
+        int[] tinted = new int[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            int argb = palette[i];
+            int a = argb >>> 24;
+            if (a == 0) {
+                tinted[i] = argb; // Keep transparency untouched
+                continue;
+            }
+            int r = (int) Math.round(((argb >> 16) & 0xFF) * (1 - amount) + tr * amount);
+            int g = (int) Math.round(((argb >> 8) & 0xFF) * (1 - amount) + tg * amount);
+            int b = (int) Math.round((argb & 0xFF) * (1 - amount) + tb * amount);
+            tinted[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+        return tinted;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public byte[] getPixels() { return pixels; }
+}
@@ -2,6 +2,7 @@ package com.interplanetarycrash.core;
 
 import com.interplanetarycrash.GameApplication;
 import com.interplanetarycrash.assets.AssetManager;
+import com.interplanetarycrash.assets.AssetWatcher;
 import com.interplanetarycrash.input.InputHandler;
 import com.interplanetarycrash.rendering.GameRenderer;
 import com.interplanetarycrash.states.*;
@@ -18,6 +19,7 @@ public class Game {
     private final InputHandler inputHandler;
     private final StateManager stateManager;
     private final AssetManager assetManager;
+    private AssetWatcher assetWatcher; // Only in development mode
     
     private AnimationTimer gameLoop;
     private long lastFrameTime;
@@ -40,6 +42,17 @@ public class Game {
         // Load assets
         assetManager.loadAssets();
         
+        // Development mode: reload changed sprites and tasks while running
+        if (AssetWatcher.isDevMode()) {
+            assetWatcher = new AssetWatcher(assetManager,
+                (filename, task) -> {
+                    if (stateManager.getCurrentState() != null) {
+                        stateManager.getCurrentState().onTaskReloaded(filename, task);
+                    }
+                });
+            assetWatcher.start();
+        }
+        
         // Initialize with main menu state
         stateManager.changeState(new MainMenuState(this));
         
@@ -95,6 +108,9 @@ public class Game {
         if (gameLoop != null) {
             gameLoop.stop();
         }
+        if (assetWatcher != null) {
+            assetWatcher.stop();
+        }
     }
     
     /**
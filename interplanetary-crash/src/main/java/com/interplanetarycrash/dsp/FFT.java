@@ -0,0 +1,213 @@
+package com.interplanetarycrash.dsp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Iterative radix-2 Fast Fourier Transform
+ *
+ * One instance per size, with bit-reversal and twiddle tables computed once
+ * and shared (see forSize). All transforms work in place on caller-owned
+ * double[] buffers, so they never allocate and are safe to call from
+ * several threads as long as the buffers are not shared.
+ *
+ * Inner loops are kept free of strided or indirect loads (twiddles are
+ * stored contiguously per stage) so HotSpot can vectorise them.
+ */
+public final class FFT {
+
+    private static final Map<Integer, FFT> INSTANCES = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int[] bitReverse;
+    private final double[] cos; // cos(2*pi*k/size),  k < size/2
+    private final double[] sin; // -sin(2*pi*k/size), k < size/2 (forward sign)
+    
+    // Twiddles of every butterfly stage laid out one after another: the
+    // stage with half-length h starts at h - 1 and holds W_2h^j, j < h
+    private final double[] stageCos;
+    private final double[] stageSin;
+
+    // Transform of size/2 used by realForward, null for size 1
+    private final FFT halfSize;
+
+    private FFT(int size) {
+        this.size = size;
+
+        int bits = Integer.numberOfTrailingZeros(size);
+        this.bitReverse = new int[size];
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+
+        int half = size / 2;
+        this.cos = new double[Math.max(half, 1)];
+        this.sin = new double[Math.max(half, 1)];
+        for (int k = 0; k < half; k++) {
+            double angle = 2 * Math.PI * k / size;
+            cos[k] = Math.cos(angle);
+            sin[k] = -Math.sin(angle);
+        }
+
+        this.stageCos = new double[Math.max(size - 1, 1)];
+        this.stageSin = new double[Math.max(size - 1, 1)];
+        for (int h = 1; h < size; h <<= 1) {
+            int step = half / h;
+            for (int j = 0; j < h; j++) {
+                stageCos[h - 1 + j] = cos[j * step];
+                stageSin[h - 1 + j] = sin[j * step];
+            }
+        }
+
+        this.halfSize = size >= 2 ? forSize(half) : null;
+    }
+
+    /**
+     * Get the (shared) transform for a power-of-two size
+     */
+    public static FFT forSize(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of 2: " + size);
+        }
+        FFT fft = INSTANCES.get(size);
+        if (fft == null) {
+            // Not computeIfAbsent: the constructor looks up the half size
+            FFT created = new FFT(size);
+            fft = INSTANCES.putIfAbsent(size, created);
+            if (fft == null) {
+                fft = created;
+            }
+        }
+        return fft;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * In-place forward complex FFT
+     * @param re real parts, length >= size
+     * @param im imaginary parts, length >= size
+     */
+    public void complexForward(double[] re, double[] im) {
+        // Bit-reversal permutation
+        for (int i = 0; i < size; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                double t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+
+        if (size < 2) return;
+
+        // First stage: twiddle is 1, plain sums and differences
+        for (int a = 0; a < size; a += 2) {
+            int b = a + 1;
+            double r = re[b];
+            double i = im[b];
+            re[b] = re[a] - r;
+            im[b] = im[a] - i;
+            re[a] += r;
+            im[a] += i;
+        }
+
+        // Remaining butterfly stages, unit-stride over the twiddles
+        for (int half = 2; half < size; half <<= 1) {
+            int base = half - 1;
+            for (int start = 0; start < size; start += half << 1) {
+                butterflies(re, im, start, start + half, base, half);
+            }
+        }
+    }
+
+    /**
+     * count butterflies between [a, a + count) and [b, b + count)
+     */
+    private void butterflies(double[] re, double[] im, int a, int b, int twiddle, int count) {
+        for (int j = 0; j < count; j++) {
+            double wr = stageCos[twiddle + j];
+            double wi = stageSin[twiddle + j];
+            double br = re[b + j];
+            double bi = im[b + j];
+            double vr = br * wr - bi * wi;
+            double vi = br * wi + bi * wr;
+            double ar = re[a + j];
+            double ai = im[a + j];
+            re[b + j] = ar - vr;
+            im[b + j] = ai - vi;
+            re[a + j] = ar + vr;
+            im[a + j] = ai + vi;
+        }
+    }
+
+    /**
+     * Forward FFT of a real signal
+     *
+     * The signal is packed into size/2 complex values, transformed with a
+     * half-size complex FFT and then separated, which is about twice as fast
+     * as a complex FFT of the full size.
+     *
+     * @param signal size real samples (not modified)
+     * @param re output real parts of bins 0..size/2, length >= size/2 + 1
+     * @param im output imaginary parts of bins 0..size/2, length >= size/2 + 1
+     */
+    public void realForward(double[] signal, double[] re, double[] im) {
+        if (size < 2) {
+            throw new IllegalArgumentException("Real FFT needs at least 2 samples");
+        }
+        int half = size / 2;
+
+        // Pack even samples as real, odd samples as imaginary
+        for (int k = 0; k < half; k++) {
+            re[k] = signal[2 * k];
+            im[k] = signal[2 * k + 1];
+        }
+        halfSize.complexForward(re, im);
+
+        // Separate the two interleaved spectra: X[k] = E[k] + W^k * O[k]
+        double z0r = re[0];
+        double z0i = im[0];
+        re[0] = z0r + z0i;
+        im[0] = 0;
+        re[half] = z0r - z0i;
+        im[half] = 0;
+
+        for (int k = 1, m = half - 1; k <= m; k++, m--) {
+            double zkr = re[k], zki = im[k];
+            double zmr = re[m], zmi = im[m];
+
+            // Bin k (uses Z[k] and conj(Z[m]))
+            double er = (zkr + zmr) * 0.5;
+            double ei = (zki - zmi) * 0.5;
+            double or = (zki + zmi) * 0.5;
+            double oi = (zmr - zkr) * 0.5;
+            double wr = cos[k], wi = sin[k];
+            re[k] = er + or * wr - oi * wi;
+            im[k] = ei + or * wi + oi * wr;
+
+            if (k == m) break;
+
+            // Bin m (uses Z[m] and conj(Z[k]))
+            er = (zmr + zkr) * 0.5;
+            ei = (zmi - zki) * 0.5;
+            or = (zmi + zki) * 0.5;
+            oi = (zkr - zmr) * 0.5;
+            wr = cos[m];
+            wi = sin[m];
+            re[m] = er + or * wr - oi * wi;
+            im[m] = ei + or * wi + oi * wr;
+        }
+    }
+
+    /**
+     * Magnitudes of complex bins, multiplied by scale
+     * @param out output, length >= bins
+     */
+    public static void magnitudes(double[] re, double[] im, double[] out, int bins, double scale) {
+        for (int i = 0; i < bins; i++) {
+            out[i] = Math.sqrt(re[i] * re[i] + im[i] * im[i]) * scale;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.interplanetarycrash.dsp;
+
+/**
+ * Wavetable oscillator driven by a phase accumulator
+ *
+ * Fills whole buffers per call: the band-limited table is chosen once for
+ * the requested frequency, then each sample is one interpolated lookup.
+ */
+public final class Oscillator {
+
+    private final Wavetable wavetable;
+    private double phase = 0; // Cycles, [0, 1)
+
+    public Oscillator(Wavetable wavetable) {
+        this.wavetable = wavetable;
+    }
+
+    /**
+     * Set the phase in cycles (any value, wrapped into [0, 1))
+     */
+    public void setPhase(double cycles) {
+        phase = cycles - Math.floor(cycles);
+        if (phase >= 1) phase = 0; // Rounding of tiny negative values
+    }
+
+    public double getPhase() { return phase; }
+    public Wavetable getWavetable() { return wavetable; }
+
+    /**
+     * Write count samples into out, advancing the phase
+     */
+    public void fill(double[] out, int offset, int count,
+                     double amplitude, double frequency, double sampleRate) {
+        double[] table = wavetable.tableFor(frequency, sampleRate);
+        int size = Wavetable.TABLE_SIZE;
+        double position = phase * size;
+        double step = frequency / sampleRate * size;
+
+        for (int i = 0; i < count; i++) {
+            int index = (int) position;
+            double frac = position - index;
+            double a = table[index];
+            out[offset + i] = amplitude * (a + frac * (table[index + 1] - a));
+
+            position += step;
+            if (position >= size || position < 0) {
+                position -= size * Math.floor(position / size);
+                if (position >= size) position = 0; // Rounding
+            }
+        }
+
+        phase = position / size;
+    }
+}
@@ -0,0 +1,121 @@
+package com.interplanetarycrash.dsp;
+
+/**
+ * Spectral peaks of a magnitude spectrum and a distance between two peak sets
+ *
+ * Peaks are local maxima refined with parabolic interpolation over the
+ * log-magnitudes of the three bins around them, which locates a partial
+ * to a fraction of a bin. Only the strongest peaks are kept.
+ */
+public final class SpectralPeaks {
+
+    private final double[] frequencies;
+    private final double[] magnitudes;
+    private int count = 0;
+
+    /**
+     * @param maxPeaks number of strongest peaks kept
+     */
+    public SpectralPeaks(int maxPeaks) {
+        this.frequencies = new double[maxPeaks];
+        this.magnitudes = new double[maxPeaks];
+    }
+
+    /**
+     * Find the peaks of a spectrum (replaces previous contents)
+     * @param spectrum magnitudes, bin k at frequency k * binWidth
+     * @param bins number of bins used
+     * @param binWidth bin spacing in Hz
+     * @param floor ignore peaks at or below this magnitude
+     */
+    public void find(double[] spectrum, int bins, double binWidth, double floor) {
+        count = 0;
+        for (int k = 1; k < bins - 1; k++) {
+            double m = spectrum[k];
+            if (m <= floor || m < spectrum[k - 1] || m <= spectrum[k + 1]) continue;
+
+            // Parabola through (k-1, k, k+1) in log domain
+            double a = Math.log(Math.max(spectrum[k - 1], 1e-300));
+            double b = Math.log(m);
+            double c = Math.log(Math.max(spectrum[k + 1], 1e-300));
+            double denominator = a - 2 * b + c;
+            double offset = denominator < 0 ? 0.5 * (a - c) / denominator : 0;
+            offset = Math.max(-0.5, Math.min(0.5, offset));
+            double peak = Math.exp(b - 0.25 * (a - c) * offset);
+
+            insert((k + offset) * binWidth, peak);
+        }
+    }
+
+    /**
+     * Keep the strongest peaks, sorted by decreasing magnitude
+     */
+    private void insert(double frequency, double magnitude) {
+        int capacity = frequencies.length;
+        if (count == capacity && magnitude <= magnitudes[count - 1]) return;
+
+        int i = count < capacity ? count++ : capacity - 1;
+        while (i > 0 && magnitudes[i - 1] < magnitude) {
+            frequencies[i] = frequencies[i - 1];
+            magnitudes[i] = magnitudes[i - 1];
+            i--;
+        }
+        frequencies[i] = frequency;
+        magnitudes[i] = magnitude;
+    }
+
+    /**
+     * Spectral distance from a target peak set, 0 = identical, 1 = unrelated
+     *
+     * Every target peak is paired with the nearest peak here; its cost grows
+     * with the frequency offset (relative to frequencyScale) and the relative
+     * magnitude error. Peaks here with no target peak within frequencyScale
+     * count as fully wrong. Costs are weighted by magnitude.
+     */
+    public double distanceTo(SpectralPeaks target, double frequencyScale) {
+        double cost = 0;
+        double weight = 0;
+
+        for (int i = 0; i < target.count; i++) {
+            double f = target.frequencies[i];
+            double m = target.magnitudes[i];
+            int j = nearest(f);
+
+            double error = 1;
+            if (j >= 0) {
+                double frequencyError = Math.abs(frequencies[j] - f) / frequencyScale;
+                double magnitudeError = Math.abs(magnitudes[j] - m) / Math.max(magnitudes[j], m);
+                error = Math.min(1, frequencyError + magnitudeError);
+            }
+            cost += m * error;
+            weight += m;
+        }
+
+        for (int j = 0; j < count; j++) {
+            int i = target.nearest(frequencies[j]);
+            if (i < 0 || Math.abs(target.frequencies[i] - frequencies[j]) > frequencyScale) {
+                cost += magnitudes[j];
+                weight += magnitudes[j];
+            }
+        }
+
+        return weight == 0 ? 0 : cost / weight;
+    }
+
+    private int nearest(double frequency) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            double d = Math.abs(frequencies[i] - frequency);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public int getCount() { return count; }
+    public double getFrequency(int i) { return frequencies[i]; }
+    public double getMagnitude(int i) { return magnitudes[i]; }
+}
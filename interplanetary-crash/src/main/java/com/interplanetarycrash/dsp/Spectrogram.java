@@ -0,0 +1,117 @@
+package com.interplanetarycrash.dsp;
+
+/**
+ * Short-time Fourier transform of a sample stream
+ *
+ * Samples are pushed one at a time into a circular input buffer. Every hop
+ * samples the latest frame is windowed and transformed into a new column,
+ * so frames overlap by (size - hop) samples and no work is repeated. Only
+ * the newest column is kept; callers that show a history copy it out.
+ * All buffers are allocated up front.
+ */
+public class Spectrogram {
+
+    private final int size;
+    private final int hop;
+    private final int bins;
+    private final FFT fft;
+    private final WindowFunction window;
+    private final double[] windowTable;
+    private final double scale;
+
+    // Input ring (last size samples)
+    private final double[] input;
+    private int inputPos = 0;
+    private int samplesUntilFrame;
+    private int samplesSeen = 0;
+
+    // FFT work buffers
+    private final double[] frame;
+    private final double[] re;
+    private final double[] im;
+
+    // Newest column of magnitudes
+    private final double[] column;
+    private boolean hasColumn = false;
+
+    /**
+     * @param size FFT size (power of 2)
+     * @param hop samples between consecutive frames, 1..size
+     * @param window window function applied to each frame
+     */
+    public Spectrogram(int size, int hop, WindowFunction window) {
+        if (hop < 1 || hop > size) {
+            throw new IllegalArgumentException("Hop must be between 1 and " + size + ": " + hop);
+        }
+        this.size = size;
+        this.hop = hop;
+        this.bins = size / 2;
+        this.fft = FFT.forSize(size);
+        this.window = window;
+        this.windowTable = window.coefficients(size);
+        this.scale = 2.0 / (size * window.coherentGain(size));
+
+        this.input = new double[size];
+        this.frame = new double[size];
+        this.re = new double[bins + 1];
+        this.im = new double[bins + 1];
+        this.column = new double[bins];
+        this.samplesUntilFrame = hop;
+    }
+
+    /**
+     * Add one sample
+     * @return true if a new column was produced
+     */
+    public boolean push(double sample) {
+        input[inputPos] = sample;
+        inputPos = (inputPos + 1) % size;
+        if (samplesSeen < size) samplesSeen++;
+
+        if (--samplesUntilFrame > 0) {
+            return false;
+        }
+        samplesUntilFrame = hop;
+        if (samplesSeen < size) {
+            return false; // Wait for the first full frame
+        }
+
+        // Unroll the ring (oldest sample first) and window it
+        int tail = size - inputPos;
+        System.arraycopy(input, inputPos, frame, 0, tail);
+        System.arraycopy(input, 0, frame, tail, inputPos);
+        if (window != WindowFunction.RECTANGULAR) {
+            for (int i = 0; i < size; i++) {
+                frame[i] *= windowTable[i];
+            }
+        }
+
+        fft.realForward(frame, re, im);
+        FFT.magnitudes(re, im, column, bins, scale);
+        hasColumn = true;
+        return true;
+    }
+
+    /**
+     * Get the newest column of magnitudes
+     * Overwritten by the next push that produces a column.
+     */
+    public double[] getColumn() {
+        return column;
+    }
+
+    /**
+     * Forget all samples and the last column
+     */
+    public void reset() {
+        inputPos = 0;
+        samplesSeen = 0;
+        samplesUntilFrame = hop;
+        hasColumn = false;
+    }
+
+    public int getSize() { return size; }
+    public int getHop() { return hop; }
+    public int getBins() { return bins; }
+    public boolean hasColumn() { return hasColumn; }
+}
@@ -0,0 +1,133 @@
+package com.interplanetarycrash.dsp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Band-limited single-cycle wavetable
+ *
+ * A waveform is described by its Fourier series. For each harmonic limit a
+ * table of one period is synthesised (inverse FFT) on first use and cached,
+ * so an oscillator never produces partials above Nyquist and never aliases.
+ */
+public final class Wavetable {
+
+    public static final int TABLE_SIZE = 2048;
+    public static final int MAX_HARMONICS = TABLE_SIZE / 2 - 1;
+
+    // Harmonic limits above this are rounded down to 6 significant bits,
+    // which bounds the number of cached tables while sweeping frequency
+    private static final int EXACT_HARMONICS = 64;
+
+    // ===== STANDARD WAVEFORMS (phase in cycles, one period = [0, 1)) =====
+
+    /** sin(2*pi*p) */
+    public static final Wavetable SINE = new Wavetable(0,
+        k -> 0,
+        k -> k == 1 ? 1 : 0);
+
+    /** signum(sin(2*pi*p)) */
+    public static final Wavetable SQUARE = new Wavetable(0,
+        k -> 0,
+        k -> k % 2 == 1 ? 4 / (Math.PI * k) : 0);
+
+    /** Ramp from -1 to 1 */
+    public static final Wavetable SAWTOOTH = new Wavetable(0,
+        k -> 0,
+        k -> -2 / (Math.PI * k));
+
+    /** -1 at p = 0, 1 at p = 0.5 */
+    public static final Wavetable TRIANGLE = new Wavetable(0,
+        k -> k % 2 == 1 ? -8 / (Math.PI * Math.PI * k * k) : 0,
+        k -> 0);
+
+    private final double dc;
+    private final IntToDoubleFunction cosine;
+    private final IntToDoubleFunction sine;
+    private final Map<Integer, double[]> tables = new ConcurrentHashMap<>();
+
+    /**
+     * @param dc mean value
+     * @param cosine coefficient of cos(2*pi*k*p) for harmonic k >= 1
+     * @param sine coefficient of sin(2*pi*k*p) for harmonic k >= 1
+     */
+    public Wavetable(double dc, IntToDoubleFunction cosine, IntToDoubleFunction sine) {
+        this.dc = dc;
+        this.cosine = cosine;
+        this.sine = sine;
+    }
+
+    /**
+     * Unipolar pulse train: 1 for p < duty, 0 otherwise
+     */
+    public static Wavetable pulse(double duty) {
+        return new Wavetable(duty,
+            k -> Math.sin(2 * Math.PI * k * duty) / (Math.PI * k),
+            k -> (1 - Math.cos(2 * Math.PI * k * duty)) / (Math.PI * k));
+    }
+
+    /**
+     * Get the table for a fundamental frequency: only harmonics strictly
+     * below Nyquist are included. The table has TABLE_SIZE + 1 entries
+     * (the last repeats the first) for interpolation.
+     */
+    public double[] tableFor(double frequency, double sampleRate) {
+        return tableFor(harmonicsBelowNyquist(frequency, sampleRate));
+    }
+
+    /**
+     * Get the table containing harmonics 1..harmonics (rounded down when large)
+     */
+    public double[] tableFor(int harmonics) {
+        return tables.computeIfAbsent(quantize(harmonics), this::build);
+    }
+
+    /**
+     * Highest harmonic that stays strictly below Nyquist
+     */
+    public static int harmonicsBelowNyquist(double frequency, double sampleRate) {
+        if (frequency <= 0) {
+            return MAX_HARMONICS;
+        }
+        double limit = Math.ceil(sampleRate / 2 / frequency) - 1;
+        return (int) Math.max(0, Math.min(MAX_HARMONICS, limit));
+    }
+
+    private static int quantize(int harmonics) {
+        harmonics = Math.max(0, Math.min(MAX_HARMONICS, harmonics));
+        if (harmonics <= EXACT_HARMONICS) {
+            return harmonics;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(harmonics) - 5;
+        return (harmonics >> shift) << shift;
+    }
+
+    /**
+     * Synthesise one period with an inverse FFT of the band-limited series
+     */
+    private double[] build(int harmonics) {
+        int n = TABLE_SIZE;
+        double[] re = new double[n];
+        double[] im = new double[n];
+
+        // Conjugated spectrum of a real signal; forward FFT then gives n * signal
+        re[0] = dc * n;
+        for (int k = 1; k <= harmonics; k++) {
+            double a = cosine.applyAsDouble(k) * n / 2;
+            double b = sine.applyAsDouble(k) * n / 2;
+            re[k] = a;
+            im[k] = b;
+            re[n - k] = a;
+            im[n - k] = -b;
+        }
+        FFT.forSize(n).complexForward(re, im);
+
+        double[] table = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            table[i] = re[i] / n;
+        }
+        table[n] = table[0];
+        return table;
+    }
+}
@@ -0,0 +1,93 @@
+package com.interplanetarycrash.dsp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Window functions applied to a frame before the FFT to reduce spectral leakage
+ *
+ * Coefficient tables are periodic (DFT-even) and cached per size.
+ */
+public enum WindowFunction {
+    RECTANGULAR("Rectangular"),
+    HANN("Hann"),
+    HAMMING("Hamming"),
+    BLACKMAN_HARRIS("Blackman-Harris");
+
+    private final String displayName;
+    private final Map<Integer, double[]> tables = new ConcurrentHashMap<>();
+
+    WindowFunction(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() { return displayName; }
+
+    /**
+     * Parse a window name as written in task files ("hann", "Blackman-Harris"...)
+     */
+    public static WindowFunction fromName(String name) {
+        String normalized = name.trim().toUpperCase().replace('-', '_').replace(' ', '_');
+        if (normalized.equals("NONE") || normalized.equals("RECT")) {
+            return RECTANGULAR;
+        }
+        if (normalized.equals("HANNING")) {
+            return HANN;
+        }
+        if (normalized.equals("BLACKMANHARRIS")) {
+            return BLACKMAN_HARRIS;
+        }
+        return valueOf(normalized);
+    }
+
+    /**
+     * Get the coefficients for a frame size (shared table, do not modify)
+     */
+    public double[] coefficients(int size) {
+        return tables.computeIfAbsent(size, this::compute);
+    }
+
+    /**
+     * Mean of the coefficients, used to normalize magnitudes so a windowed
+     * sine reads the same amplitude as an unwindowed one
+     */
+    public double coherentGain(int size) {
+        double[] w = coefficients(size);
+        double sum = 0;
+        for (double c : w) sum += c;
+        return sum / size;
+    }
+
+    /**
+     * Multiply the first size samples of a frame by the window in place
+     */
+    public void apply(double[] frame, int size) {
+        if (this == RECTANGULAR) return;
+        double[] w = coefficients(size);
+        for (int i = 0; i < size; i++) {
+            frame[i] *= w[i];
+        }
+    }
+
+    private double[] compute(int size) {
+        double[] w = new double[size];
+        for (int i = 0; i < size; i++) {
+            double x = 2 * Math.PI * i / size;
+            switch (this) {
+                case HANN:
+                    w[i] = 0.5 - 0.5 * Math.cos(x);
+                    break;
+                case HAMMING:
+                    w[i] = 0.54 - 0.46 * Math.cos(x);
+                    break;
+                case BLACKMAN_HARRIS:
+                    w[i] = 0.35875 - 0.48829 * Math.cos(x)
+                         + 0.14128 * Math.cos(2 * x) - 0.01168 * Math.cos(3 * x);
+                    break;
+                default:
+                    w[i] = 1.0;
+            }
+        }
+        return w;
+    }
+}
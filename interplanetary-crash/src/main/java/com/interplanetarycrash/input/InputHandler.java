@@ -130,4 +130,47 @@ public class InputHandler {
     public boolean isSelectingLeft() {
         return isKeyJustPressed(KeyCode.Q);
     }
+
+    public boolean isTogglingView() {
+        return isKeyJustPressed(KeyCode.TAB);
+    }
+
+    public boolean isSwitchingComponent() {
+        return isKeyJustPressed(KeyCode.C);
+    }
+
+    // Editing history
+    public boolean isUndoing() {
+        return isShortcutDown() && isKeyJustPressed(KeyCode.Z) && !isKeyPressed(KeyCode.SHIFT);
+    }
+
+    public boolean isRedoing() {
+        return isShortcutDown() && (isKeyJustPressed(KeyCode.Y)
+            || (isKeyJustPressed(KeyCode.Z) && isKeyPressed(KeyCode.SHIFT)));
+    }
+
+    private boolean isShortcutDown() {
+        return isKeyPressed(KeyCode.CONTROL) || isKeyPressed(KeyCode.META);
+    }
+
+    // Oscilloscope controls
+    public boolean isTogglingScope() {
+        return isKeyJustPressed(KeyCode.O);
+    }
+
+    public boolean isSlowingTimebase() {
+        return isKeyJustPressed(KeyCode.X);
+    }
+
+    public boolean isSpeedingTimebase() {
+        return isKeyJustPressed(KeyCode.Z);
+    }
+
+    public boolean isRaisingTrigger() {
+        return isKeyPressed(KeyCode.R);
+    }
+
+    public boolean isLoweringTrigger() {
+        return isKeyPressed(KeyCode.F);
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.interplanetarycrash.GameApplication;
+import com.interplanetarycrash.animation.AnimationSystem;
 import com.interplanetarycrash.assets.AssetManager;
 import com.interplanetarycrash.player.Player;
 import com.interplanetarycrash.tasks.Task;
@@ -22,6 +23,10 @@ public class Level {
     private Player player;
     private Ship ship;
     private List<Module> modules;
+    private List<String> taskFilenames; // Task file of each module, same order
+    
+    // Advances every animation in the level in one pass
+    private AnimationSystem animationSystem;
     
     private Image background;
     
@@ -29,6 +34,8 @@ public class Level {
     public float lifeSupport; // 0-100
     private float maxLifeSupport = 100f;
     private float lifeDrainRate; // How fast life support drains per second
+    private static final float LOW_LIFE_SUPPORT = 25f; // Player flashes red below this
+    private static final float ALARM_FLASH_RATE = 4f; // Color changes per second
     
     // Time tracking
     private float elapsedTime;
@@ -80,12 +87,15 @@ public class Level {
      * Initialize level layout (player, ship, modules)
      */
     private void initializeLevel() {
+        animationSystem = new AnimationSystem();
+        
         // Create player at start position
-        player = new Player(GameApplication.LOGICAL_WIDTH/2.0+100, GameApplication.LOGICAL_WIDTH/2.0-100); // Bottom center of screen
+        player = new Player(GameApplication.LOGICAL_WIDTH/2.0+100, GameApplication.LOGICAL_WIDTH/2.0-100, animationSystem); // Bottom center of screen
         
         // Create ship at center-top
         modules = new ArrayList<>();
-        ship = new Ship(GameApplication.LOGICAL_WIDTH*0.6, GameApplication.LOGICAL_WIDTH*0.2, modules);
+        taskFilenames = new ArrayList<>();
+        ship = new Ship(GameApplication.LOGICAL_WIDTH*0.6, GameApplication.LOGICAL_WIDTH*0.2, modules, animationSystem);
         
         createModulesAroundShip();
     }
@@ -107,7 +117,7 @@ public class Level {
             ModuleType type = types[i];
             
             // TODO: Load actual task from file
-            String taskFilename = TaskLoader.getTaskFilename(levelNumber, i);
+            String taskFilename = TaskLoader.chooseTask(levelNumber, i);
             Task task = TaskLoader.loadTask(taskFilename);
             
             if (task == null) {
@@ -115,8 +125,9 @@ public class Level {
                                  " module " + i + ", using fallback");
             }
             
-            Module module = new Module(type, moduleXs[i], moduleYs[i], task);
+            Module module = new Module(type, moduleXs[i], moduleYs[i], task, animationSystem);
             modules.add(module);
+            taskFilenames.add(taskFilename);
         }
 
         calculateDifficulty(types);
@@ -138,11 +149,44 @@ public class Level {
         }
         
         ship.update(deltaTime);
-        for (Module module : modules) {
-            module.update(deltaTime);
+        
+        // Low life support warning: flash the player red with a palette swap
+        boolean alarmOn = lifeSupport < LOW_LIFE_SUPPORT && (int) (elapsedTime * ALARM_FLASH_RATE) % 2 == 0;
+        player.setPaletteVariant(alarmOn ? AssetManager.PALETTE_ALARM : null);
+    }
+    
+    /**
+     * Advance every animation
+     * Call once per frame after the player and modules have chosen their
+     * clips, so a new clip shows on the frame it was chosen.
+     */
+    public void updateAnimations(double deltaTime) {
+        animationSystem.update(deltaTime);
+    }
+    
+    /**
+     * Give modules loaded from this task file a new task (hot-reload)
+     * Repaired modules keep their task.
+     */
+    public void replaceTask(String filename, Task task) {
+        boolean first = true;
+        for (int i = 0; i < modules.size(); i++) {
+            Module module = modules.get(i);
+            if (!filename.equals(taskFilenames.get(i)) || module.isRepaired()) continue;
+            
+            // Every module needs its own task instance
+            module.setTask(first ? task : TaskLoader.loadTask(filename));
+            first = false;
         }
     }
     
+    /**
+     * Task file a module's task was loaded from
+     */
+    public String getTaskFilename(Module module) {
+        return taskFilenames.get(modules.indexOf(module));
+    }
+    
     /**
      * Check if all modules are repaired
      */
@@ -199,6 +243,7 @@ public class Level {
     public Player getPlayer() { return player; }
     public Ship getShip() { return ship; }
     public List<Module> getModules() { return modules; }
+    public AnimationSystem getAnimationSystem() { return animationSystem; }
     public Image getBackground() { return background; }
     public float getLifeSupport() { return lifeSupport; }
     public float getMaxLifeSupport() { return maxLifeSupport; }
@@ -2,6 +2,7 @@ package com.interplanetarycrash.level;
 
 import com.interplanetarycrash.animation.AnimatedSprite;
 import com.interplanetarycrash.animation.Animation;
+import com.interplanetarycrash.animation.AnimationSystem;
 import com.interplanetarycrash.assets.AssetManager;
 import com.interplanetarycrash.rendering.GameRenderer;
 import com.interplanetarycrash.level.ModuleType.*;
@@ -24,65 +25,50 @@ public class Module {
     private Image brokenSprite;
     private Image repairedSprite;
     private AnimatedSprite animatedSprite;
+    private int destroyedAnimation = AnimatedSprite.NO_ANIMATION;
+    private int repairedAnimation = AnimatedSprite.NO_ANIMATION;
     
     // Interaction and collision
     private static final double MODULE_SIZE = 192;
     private static final double INTERACTION_RADIUS = 210; // Distance to press E
     
     
-    public Module(ModuleType type, double x, double y, Task task) {
+    public Module(ModuleType type, double x, double y, Task task, AnimationSystem animationSystem) {
         this.type = type;
         this.x = x;
         this.y = y;
         this.task = task;
         this.repaired = false;
         
-        loadAssets();
+        loadAssets(animationSystem);
     }
     
     /**
      * Load sprites and animations
      */
-    private void loadAssets() {
-        animatedSprite = new AnimatedSprite();
+    private void loadAssets(AnimationSystem animationSystem) {
+        animatedSprite = new AnimatedSprite(animationSystem);
         AssetManager assets = AssetManager.getInstance();
         
-        Animation commsDestroyed = new Animation(
-            assets.getAnimationFrames("Comms-Destroyed", 4), 
-            0.15, 
-            true);
+        Animation commsDestroyed = assets.getAnimation("Comms-Destroyed", true);
         animatedSprite.addAnimation("comms_destroyed", commsDestroyed);
 
-        Animation commsRepaired = new Animation(
-            assets.getAnimationFrames("Comms-Repaired", 8), 
-            0.15, 
-            true);
+        Animation commsRepaired = assets.getAnimation("Comms-Repaired", true);
         animatedSprite.addAnimation("comms_repaired", commsRepaired);
 
-        Animation serversDestroyed = new Animation(
-            assets.getAnimationFrames("Servers-Destroyed", 5), 
-            0.15, 
-            true);
+        Animation serversDestroyed = assets.getAnimation("Servers-Destroyed", true);
         animatedSprite.addAnimation("servers_destroyed", serversDestroyed);
 
-        Animation serversRepaired = new Animation(
-            assets.getAnimationFrames("Servers-Repaired", 7), 
-            0.15, 
-            true);
+        Animation serversRepaired = assets.getAnimation("Servers-Repaired", true);
         animatedSprite.addAnimation("servers_repaired", serversRepaired);
 
         if (type != ModuleType.ENGINE && type != ModuleType.WING) {
-                animatedSprite.setAnimation(type.getProperName() + "_destroyed");
+            destroyedAnimation = animatedSprite.getHandle(type.getProperName() + "_destroyed");
+            repairedAnimation = animatedSprite.getHandle(type.getProperName() + "_repaired");
+            animatedSprite.setAnimation(destroyedAnimation);
         }
     }
     
-    /**
-     * Update module (mainly fire animation)
-     */
-    public void update(double deltaTime) {
-        animatedSprite.update(deltaTime);
-    }
-    
     /**
      * Render module
      */
@@ -90,11 +76,15 @@ public class Module {
         // Render appropriate sprite
         if (type != ModuleType.ENGINE && type != ModuleType.WING) {
             if (repaired) {
-                animatedSprite.setAnimation(type.getProperName() + "_repaired");
+                animatedSprite.setAnimation(repairedAnimation);
             } else {
-                animatedSprite.setAnimation(type.getProperName() + "_destroyed");
+                animatedSprite.setAnimation(destroyedAnimation);
             }
             Image currentFrame = animatedSprite.getCurrentFrame();
+            if (!repaired) {
+                // Damage tint as a palette swap of the destroyed sprite
+                currentFrame = AssetManager.getInstance().getPaletteVariant(currentFrame, AssetManager.PALETTE_DAMAGED);
+            }
             double renderX = x - MODULE_SIZE / 2;
             double renderY = y - MODULE_SIZE / 2;
             renderer.drawImage(currentFrame, renderX, renderY, MODULE_SIZE, MODULE_SIZE);
@@ -123,6 +113,13 @@ public class Module {
         );
     }
     
+    /**
+     * Replace the task (used when task files are hot-reloaded)
+     */
+    public void setTask(Task task) {
+        this.task = task;
+    }
+    
     /**
      * Repair this module
      */
@@ -2,6 +2,7 @@ package com.interplanetarycrash.level;
 
 import com.interplanetarycrash.animation.AnimatedSprite;
 import com.interplanetarycrash.animation.Animation;
+import com.interplanetarycrash.animation.AnimationSystem;
 import com.interplanetarycrash.assets.AssetManager;
 import com.interplanetarycrash.rendering.GameRenderer;
 import javafx.geometry.Rectangle2D;
@@ -19,49 +20,41 @@ public class Ship {
     
     private Image sprite;
     private AnimatedSprite animatedSprite;
+    private int destroyedAnimation;
+    private int burningAnimation;
+    private int repairedAnimation;
+    private int wingDamagedAnimation;
     
     private static final double SHIP_RADIUS = 512;
     private static final double ESCAPE_RADIUS = 300; // Distance to press E to escape
-    public Ship(double x, double y, List<Module> modules) {
+    public Ship(double x, double y, List<Module> modules, AnimationSystem animationSystem) {
         this.x = x;
         this.y = y;
         this.modules = modules;
         
-        loadAssets();
+        loadAssets(animationSystem);
     }
     
     /**
      * Load ship sprite
      */
-    private void loadAssets() {
-        animatedSprite = new AnimatedSprite();
+    private void loadAssets(AnimationSystem animationSystem) {
+        animatedSprite = new AnimatedSprite(animationSystem);
         AssetManager assets = AssetManager.getInstance();
 
-        Animation starshipDestroyed = new Animation(
-            assets.getAnimationFrames("Starship-Destroyed", 6), 
-            0.15, 
-            true);
-        animatedSprite.addAnimation("starship_destroyed", starshipDestroyed);
+        Animation starshipDestroyed = assets.getAnimation("Starship-Destroyed", true);
+        destroyedAnimation = animatedSprite.addAnimation("starship_destroyed", starshipDestroyed);
 
-        Animation starshipBurning = new Animation(
-            assets.getAnimationFrames("Starship-Burning", 6), 
-            0.15, 
-            true);
-        animatedSprite.addAnimation("starship_burning", starshipBurning);
+        Animation starshipBurning = assets.getAnimation("Starship-Burning", true);
+        burningAnimation = animatedSprite.addAnimation("starship_burning", starshipBurning);
 
-        Animation starshipRepaired = new Animation(
-            assets.getAnimationFrames("Sprite-Starship-Repaired", 1), 
-            0.15, 
-            true);
-        animatedSprite.addAnimation("starship_repaired", starshipRepaired);
+        Animation starshipRepaired = assets.getAnimation("Sprite-Starship-Repaired", true);
+        repairedAnimation = animatedSprite.addAnimation("starship_repaired", starshipRepaired);
 
-        Animation wingDamaged = new Animation(
-            assets.getAnimationFrames("Sprite-Wing-Damaged", 1), 
-            0.15, 
-            true);
-        animatedSprite.addAnimation("wing_damaged", wingDamaged);
+        Animation wingDamaged = assets.getAnimation("Sprite-Wing-Damaged", true);
+        wingDamagedAnimation = animatedSprite.addAnimation("wing_damaged", wingDamaged);
 
-        animatedSprite.setAnimation("starship_destroyed");
+        animatedSprite.setAnimation(destroyedAnimation);
     }
     
     /**
@@ -80,18 +73,16 @@ public class Ship {
     public void update(double deltaTime) {
         // Update ship animation based on module states
         if (modules.get(2).isRepaired() && modules.get(3).isRepaired()) {
-            animatedSprite.setAnimation("starship_repaired");
+            animatedSprite.setAnimation(repairedAnimation);
         } else {
             if(modules.get(2).isRepaired() && !modules.get(3).isRepaired()) { // Assuming module index 2 is the engine
-                animatedSprite.setAnimation("starship_burning");
+                animatedSprite.setAnimation(burningAnimation);
             } else if (!modules.get(2).isRepaired() && modules.get(3).isRepaired()) { // Assuming module index 3 is the wing
-                animatedSprite.setAnimation("wing_damaged");
+                animatedSprite.setAnimation(wingDamagedAnimation);
             } else {
-                animatedSprite.setAnimation("starship_destroyed");
+                animatedSprite.setAnimation(destroyedAnimation);
             }
         }
-        
-        animatedSprite.update(deltaTime);
     }
     
     /**
@@ -0,0 +1,86 @@
+package com.interplanetarycrash.logic;
+
+/**
+ * Bit-sliced layout of a full truth table
+ *
+ * The 2^n input combinations of an n-input function are numbered so that
+ * input 0 is the most significant bit of the row index (rows listed as
+ * 000, 001, 010, ...). Row r lives in bit (r % 64) of word (r / 64), so a
+ * column of the table (one input, or a function value) is a long[] and
+ * gates evaluate 64 rows per bitwise operation.
+ */
+public final class BitSlice {
+
+    public static final int MAX_INPUTS = 24;
+
+    // Lane patterns for row index bits 0..5 within one word
+    private static final long[] LOW_BITS = {
+        0xAAAAAAAAAAAAAAAAL,
+        0xCCCCCCCCCCCCCCCCL,
+        0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L,
+        0xFFFF0000FFFF0000L,
+        0xFFFFFFFF00000000L
+    };
+
+    private BitSlice() {
+    }
+
+    public static int rowCount(int inputCount) {
+        checkInputs(inputCount);
+        return 1 << inputCount;
+    }
+
+    public static int wordCount(int inputCount) {
+        return (rowCount(inputCount) + 63) >>> 6;
+    }
+
+    /**
+     * Lanes in use in the last word (all of them from 6 inputs up)
+     */
+    public static long lastWordMask(int inputCount) {
+        int rows = rowCount(inputCount);
+        return rows >= 64 ? -1L : (1L << rows) - 1;
+    }
+
+    /**
+     * Values of one input over the rows of one word
+     */
+    public static long inputWord(int input, int inputCount, int word) {
+        int bit = inputCount - 1 - input; // Bit of the row index
+        if (bit < 6) {
+            return LOW_BITS[bit];
+        }
+        return ((word >>> (bit - 6)) & 1) != 0 ? -1L : 0L;
+    }
+
+    /**
+     * Row index of an input combination
+     */
+    public static int rowIndex(boolean[] inputs, int inputCount) {
+        int row = 0;
+        for (int i = 0; i < inputCount; i++) {
+            row = (row << 1) | (inputs[i] ? 1 : 0);
+        }
+        return row;
+    }
+
+    public static boolean get(long[] column, int row) {
+        return (column[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public static void set(long[] column, int row, boolean value) {
+        if (value) {
+            column[row >>> 6] |= 1L << row;
+        } else {
+            column[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    private static void checkInputs(int inputCount) {
+        if (inputCount < 0 || inputCount > MAX_INPUTS) {
+            throw new IllegalArgumentException("Input count must be between 0 and "
+                                               + MAX_INPUTS + ": " + inputCount);
+        }
+    }
+}
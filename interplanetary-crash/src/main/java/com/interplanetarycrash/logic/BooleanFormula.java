@@ -0,0 +1,357 @@
+package com.interplanetarycrash.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Boolean formula such as "F(A,B,C) = (A xor B) nand C"
+ *
+ * Parsed by recursive descent into a syntax tree, then compiled into a
+ * straight-line program over 64-bit words (one register per distinct
+ * subexpression), which evaluateAll() runs once per word of the truth
+ * table in BitSlice layout.
+ *
+ * Operators, from loosest to tightest binding, all left associative:
+ *   or nor  (also | +)
+ *   xor xnor  (also ^)
+ *   and nand  (also & *)
+ *   not  (also ! ~ prefix, ' suffix)
+ * plus parentheses and the constants 0 and 1. Keywords are not case
+ * sensitive. The inputs are the names in F(...) if given, otherwise every
+ * name used, in alphabetical order; input 0 is the leftmost table column.
+ */
+public final class BooleanFormula {
+
+    private final String name;
+    private final List<String> variables;
+
+    // Program: register r >= firstOperation holds types[r - firstOperation]
+    // applied to registers argA and argB; before them come the variables,
+    // then the constants 0 and 1
+    private final int firstOperation;
+    private final GateType[] types;
+    private final int[] argA;
+    private final int[] argB;
+    private final int result;
+
+    private BooleanFormula(String name, List<String> variables, Node tree) {
+        this.name = name;
+        this.variables = Collections.unmodifiableList(variables);
+        this.firstOperation = variables.size() + 2;
+
+        Compiler compiler = new Compiler(variables);
+        this.result = compiler.emit(tree);
+        int count = compiler.types.size();
+        this.types = compiler.types.toArray(new GateType[count]);
+        this.argA = new int[count];
+        this.argB = new int[count];
+        for (int i = 0; i < count; i++) {
+            argA[i] = compiler.argA.get(i);
+            argB[i] = compiler.argB.get(i);
+        }
+    }
+
+    /**
+     * Parse "NAME = expression" or "NAME(inputs) = expression"
+     * @throws IllegalArgumentException with the position of a syntax error
+     */
+    public static BooleanFormula parse(String text) {
+        int equals = text.indexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("Formula needs '=': " + text);
+        }
+
+        String head = text.substring(0, equals).trim();
+        String name = head;
+        List<String> declared = null;
+        int open = head.indexOf('(');
+        if (open >= 0) {
+            if (!head.endsWith(")")) {
+                throw new IllegalArgumentException("Formula: missing ')' after inputs of " + head);
+            }
+            name = head.substring(0, open).trim();
+            declared = new ArrayList<>();
+            for (String input : head.substring(open + 1, head.length() - 1).split(",")) {
+                if (!input.trim().isEmpty()) {
+                    declared.add(input.trim());
+                }
+            }
+        }
+
+        Parser parser = new Parser(text, equals + 1);
+        Node tree = parser.parseFormula();
+
+        List<String> variables;
+        if (declared != null) {
+            for (String used : parser.names) {
+                if (!declared.contains(used)) {
+                    throw new IllegalArgumentException("Formula uses " + used + " which is not an input of " + head);
+                }
+            }
+            variables = declared;
+        } else {
+            variables = new ArrayList<>(parser.names);
+        }
+        BitSlice.wordCount(variables.size()); // Rejects too many inputs
+
+        return new BooleanFormula(name.isEmpty() ? "F" : name, variables, tree);
+    }
+
+    // ===== EVALUATION =====
+
+    /**
+     * Output column of the whole truth table, in BitSlice layout
+     */
+    public long[] evaluateAll() {
+        int inputCount = variables.size();
+        int words = BitSlice.wordCount(inputCount);
+        long[] column = new long[words];
+        long[] registers = new long[firstOperation + types.length];
+        registers[inputCount + 1] = -1L;
+
+        for (int w = 0; w < words; w++) {
+            for (int i = 0; i < inputCount; i++) {
+                registers[i] = BitSlice.inputWord(i, inputCount, w);
+            }
+            for (int op = 0; op < types.length; op++) {
+                registers[firstOperation + op] = types[op].evaluate(registers[argA[op]], registers[argB[op]], 0);
+            }
+            column[w] = registers[result];
+        }
+        column[words - 1] &= BitSlice.lastWordMask(inputCount);
+        return column;
+    }
+
+    public String getName() { return name; }
+    public List<String> getVariables() { return variables; }
+    public int getInputCount() { return variables.size(); }
+
+    /**
+     * Number of distinct operations after sharing common subexpressions
+     */
+    public int getOperationCount() { return types.length; }
+
+    // ===== SYNTAX TREE =====
+
+    private static final class Node {
+        final GateType op;   // null for a name or a constant
+        final String name;   // null for a constant
+        final boolean value;
+        final Node left;
+        final Node right;
+
+        Node(GateType op, Node left, Node right) {
+            this.op = op;
+            this.name = null;
+            this.value = false;
+            this.left = left;
+            this.right = right;
+        }
+
+        Node(String name, boolean value) {
+            this.op = null;
+            this.name = name;
+            this.value = value;
+            this.left = null;
+            this.right = null;
+        }
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+        final TreeSet<String> names = new TreeSet<>();
+
+        Parser(String text, int start) {
+            this.text = text;
+            this.pos = start;
+        }
+
+        Node parseFormula() {
+            Node tree = parseOr();
+            skipSpaces();
+            if (pos < text.length()) {
+                throw error("unexpected '" + text.charAt(pos) + "'");
+            }
+            return tree;
+        }
+
+        private Node parseOr() {
+            Node left = parseXor();
+            while (true) {
+                if (symbol('|') || symbol('+') || keyword("or")) {
+                    left = new Node(GateType.OR, left, parseXor());
+                } else if (keyword("nor")) {
+                    left = new Node(GateType.NOR, left, parseXor());
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Node parseXor() {
+            Node left = parseAnd();
+            while (true) {
+                if (symbol('^') || keyword("xor")) {
+                    left = new Node(GateType.XOR, left, parseAnd());
+                } else if (keyword("xnor")) {
+                    left = new Node(GateType.XNOR, left, parseAnd());
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Node parseAnd() {
+            Node left = parseNot();
+            while (true) {
+                if (symbol('&') || symbol('*') || keyword("and")) {
+                    left = new Node(GateType.AND, left, parseNot());
+                } else if (keyword("nand")) {
+                    left = new Node(GateType.NAND, left, parseNot());
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Node parseNot() {
+            if (symbol('!') || symbol('~') || keyword("not")) {
+                return new Node(GateType.NOT, parseNot(), null);
+            }
+            Node operand = parseOperand();
+            while (symbol('\'')) {
+                operand = new Node(GateType.NOT, operand, null);
+            }
+            return operand;
+        }
+
+        private Node parseOperand() {
+            skipSpaces();
+            if (symbol('(')) {
+                Node inner = parseOr();
+                if (!symbol(')')) {
+                    throw error("expected ')'");
+                }
+                return inner;
+            }
+            if (symbol('0')) return new Node(null, false);
+            if (symbol('1')) return new Node(null, true);
+
+            String word = peekWord();
+            if (word.isEmpty()) {
+                throw error(pos < text.length() ? "unexpected '" + text.charAt(pos) + "'" : "formula ends early");
+            }
+            if (isKeyword(word)) {
+                throw error("expected an input before '" + word + "'");
+            }
+            pos += word.length();
+            names.add(word);
+            return new Node(word, false);
+        }
+
+        private boolean symbol(char c) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean keyword(String keyword) {
+            skipSpaces();
+            if (peekWord().equalsIgnoreCase(keyword)) {
+                pos += keyword.length();
+                return true;
+            }
+            return false;
+        }
+
+        private String peekWord() {
+            int end = pos;
+            while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')) {
+                end++;
+            }
+            if (end > pos && !Character.isLetter(text.charAt(pos)) && text.charAt(pos) != '_') {
+                return "";
+            }
+            return text.substring(pos, end);
+        }
+
+        private static boolean isKeyword(String word) {
+            switch (word.toLowerCase()) {
+                case "and": case "nand": case "or": case "nor":
+                case "xor": case "xnor": case "not":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Formula: " + message + " at position " + (pos + 1) + " of: " + text);
+        }
+    }
+
+    // ===== COMPILING =====
+
+    /**
+     * Emits one register per distinct operation (hash-consed, with the
+     * arguments of symmetric gates in a fixed order)
+     */
+    private static final class Compiler {
+        private final Map<String, Integer> variableRegisters = new HashMap<>();
+        private final Map<Long, Integer> seen = new HashMap<>();
+        private final int firstOperation;
+        final List<GateType> types = new ArrayList<>();
+        final List<Integer> argA = new ArrayList<>();
+        final List<Integer> argB = new ArrayList<>();
+
+        Compiler(List<String> variables) {
+            for (int i = 0; i < variables.size(); i++) {
+                variableRegisters.put(variables.get(i), i);
+            }
+            this.firstOperation = variables.size() + 2;
+        }
+
+        int emit(Node node) {
+            if (node.op == null) {
+                if (node.name != null) {
+                    return variableRegisters.get(node.name);
+                }
+                return firstOperation - (node.value ? 1 : 2);
+            }
+
+            int a = emit(node.left);
+            int b = node.right == null ? a : emit(node.right);
+            if (b < a && node.op != GateType.NOT) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+
+            long key = ((long) node.op.ordinal() << 52) | ((long) a << 26) | b;
+            Integer existing = seen.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            int register = firstOperation + types.size();
+            types.add(node.op);
+            argA.add(a);
+            argB.add(b);
+            seen.put(key, register);
+            return register;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.interplanetarycrash.logic;
+
+/**
+ * Content of a circuit grid cell
+ */
+public enum CellType {
+    EMPTY, INPUT, OUTPUT, GATE, WIRE
+}
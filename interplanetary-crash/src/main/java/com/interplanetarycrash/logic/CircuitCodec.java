@@ -0,0 +1,170 @@
+package com.interplanetarycrash.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Text form of the gates and wires drawn on a circuit grid
+ *
+ *   TASK level1_module1.txt
+ *   CIRCUIT 25x11
+ *   GATE AND 6 4
+ *   WIRE 3 2 4 3 1
+ *
+ * TASK names the task file the circuit solves and may be left out. Each
+ * GATE line gives a gate type and its center. Each WIRE line is one grid
+ * row: its y, then run lengths of empty and wire cells taken in turn from
+ * x = 0 (above: cells 2..5 and 9 of row 3). Inputs and the output are not
+ * stored; they belong to the task's grid.
+ */
+public final class CircuitCodec {
+
+    private static final String TASK = "TASK";
+    private static final String CIRCUIT = "CIRCUIT";
+    private static final String GATE = "GATE";
+    private static final String WIRE = "WIRE";
+
+    private CircuitCodec() {}
+
+    /**
+     * The circuit on a grid as text
+     * @param task task file it solves, or null
+     */
+    public static String write(CircuitGrid grid, String task) {
+        StringBuilder text = new StringBuilder();
+        if (task != null) {
+            text.append(TASK).append(' ').append(task).append('\n');
+        }
+        text.append(CIRCUIT).append(' ').append(grid.getWidth()).append('x').append(grid.getHeight()).append('\n');
+
+        for (Gate gate : grid.getGates()) {
+            text.append(GATE).append(' ').append(gate.getType()).append(' ')
+                .append(gate.getCenterX()).append(' ').append(gate.getCenterY()).append('\n');
+        }
+
+        // Wire cells by row, in x order
+        Map<Integer, List<Integer>> rows = new TreeMap<>();
+        grid.forEachOccupied((x, y) -> {
+            if (grid.getType(x, y) == CellType.WIRE) {
+                rows.computeIfAbsent(y, row -> new ArrayList<>()).add(x);
+            }
+        });
+        for (Map.Entry<Integer, List<Integer>> row : rows.entrySet()) {
+            List<Integer> xs = row.getValue();
+            xs.sort(null);
+            text.append(WIRE).append(' ').append(row.getKey());
+            int end = 0;
+            for (int i = 0; i < xs.size(); ) {
+                int start = xs.get(i);
+                int run = 1;
+                while (i + run < xs.size() && xs.get(i + run) == start + run) {
+                    run++;
+                }
+                text.append(' ').append(start - end).append(' ').append(run);
+                end = start + run;
+                i += run;
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Task file named by a circuit's TASK line, or null
+     */
+    public static String readTask(List<String> lines) {
+        for (String line : lines) {
+            String[] words = line.trim().split("\\s+", 2);
+            if (words[0].equals(TASK) && words.length == 2) {
+                return words[1].trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the gates and wires on a grid with those of a circuit
+     * @throws IllegalArgumentException for bad lines, a different grid
+     *         size, or parts that do not fit; the grid may then hold part
+     *         of the circuit
+     */
+    public static void read(List<String> lines, CircuitGrid grid) {
+        grid.clearComponents();
+        boolean sized = false;
+        List<String[]> wires = new ArrayList<>();
+
+        for (String line : lines) {
+            String[] words = line.trim().split("\\s+");
+            if (words[0].isEmpty() || words[0].equals(TASK)) {
+                continue;
+            }
+            try {
+                switch (words[0]) {
+                    case CIRCUIT:
+                        String size = grid.getWidth() + "x" + grid.getHeight();
+                        if (words.length != 2 || !words[1].equalsIgnoreCase(size)) {
+                            throw new IllegalArgumentException("circuit is not for a " + size + " grid");
+                        }
+                        sized = true;
+                        break;
+
+                    case GATE:
+                        if (words.length != 4) {
+                            throw new IllegalArgumentException("expected GATE type x y");
+                        }
+                        GateType type = parseGateType(words[1]);
+                        if (grid.placeGate(type, Integer.parseInt(words[2]), Integer.parseInt(words[3])) == null) {
+                            throw new IllegalArgumentException("gate does not fit");
+                        }
+                        break;
+
+                    case WIRE:
+                        // Laid once every gate is in place, so no line order matters
+                        wires.add(words);
+                        break;
+
+                    default:
+                        throw new IllegalArgumentException("unknown line");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(e.getMessage() + ": " + line.trim());
+            }
+        }
+        if (!sized) {
+            throw new IllegalArgumentException("Missing " + CIRCUIT + " line");
+        }
+
+        for (String[] words : wires) {
+            String line = String.join(" ", words);
+            if (words.length < 2 || words.length % 2 != 0) {
+                throw new IllegalArgumentException("Expected WIRE y and pairs of run lengths: " + line);
+            }
+            int y = Integer.parseInt(words[1]);
+            int x = 0;
+            for (int i = 2; i < words.length; i += 2) {
+                x += Integer.parseInt(words[i]);
+                int run = Integer.parseInt(words[i + 1]);
+                for (int cx = x; cx < x + run; cx++) {
+                    if (!grid.contains(cx, y) || grid.getType(cx, y) != CellType.EMPTY) {
+                        throw new IllegalArgumentException("Wire cell (" + cx + "," + y + ") is taken or off the grid: " + line);
+                    }
+                }
+                if (run > 0) {
+                    grid.drawWire(x, y, x + run - 1, y);
+                }
+                x += run;
+            }
+        }
+    }
+
+    private static GateType parseGateType(String name) {
+        for (GateType type : GateType.values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("unknown gate " + name);
+    }
+}
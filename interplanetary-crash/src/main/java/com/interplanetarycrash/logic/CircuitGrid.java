@@ -0,0 +1,584 @@
+package com.interplanetarycrash.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid of cells holding a circuit: fixed inputs and output, gates, wires
+ *
+ * Storage is sparse: cells live in CHUNK_SIZE x CHUNK_SIZE chunks, only
+ * chunks with something in them exist, and an empty cell costs nothing, so
+ * large grids cost memory in proportion to the circuit drawn.
+ *
+ * The chunks hang in a persistent 32-way trie keyed by chunk number.
+ * snapshot() freezes the current contents in O(1); the next edit copies
+ * only the chunks it touches and the trie nodes above them (path copying),
+ * so snapshots share everything that did not change. restore() swaps a
+ * snapshot back in O(1) and reports the cells that differ to the
+ * listeners, visiting only the subtrees the two versions do not share.
+ * The inputs and output are fixed parts, set up before any snapshot.
+ *
+ * Also defines how signals travel: they spread from inputs, wires, the
+ * output and gate outputs into adjacent wire and output cells, and a gate
+ * input pin takes the signal of any such cell next to it outside the gate.
+ * Every cell change is reported to the registered listeners.
+ */
+public class CircuitGrid {
+
+    public static final int CHUNK_SIZE = 16;
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Trie over chunk numbers
+    private static final int NODE_BITS = 5;
+    private static final int NODE_SIZE = 1 << NODE_BITS;
+    private static final int NODE_MASK = NODE_SIZE - 1;
+
+    /**
+     * Notified after a cell changed
+     */
+    public interface CellListener {
+        void cellChanged(int x, int y);
+    }
+
+    /**
+     * Receives occupied cells during iteration
+     */
+    public interface CellVisitor {
+        void visit(int x, int y);
+    }
+
+    /**
+     * Contents of the grid at one moment, for undo and redo
+     */
+    public static final class Snapshot {
+        private final Node root;
+        private final int chunkCount;
+
+        private Snapshot(Node root, int chunkCount) {
+            this.root = root;
+            this.chunkCount = chunkCount;
+        }
+    }
+
+    // Nodes and chunks may only be changed in place by the edit that
+    // created them; after a snapshot they are shared and copied on write
+    private static final class Node {
+        final Object[] slots; // Nodes, or chunks at level 0
+        final int owner;
+        int used;
+
+        Node(int owner) {
+            this.slots = new Object[NODE_SIZE];
+            this.owner = owner;
+        }
+
+        Node(Node from, int owner) {
+            this.slots = from.slots.clone();
+            this.owner = owner;
+            this.used = from.used;
+        }
+    }
+
+    private static final class Chunk {
+        final CellType[] types; // null = EMPTY
+        final Gate[] gates;
+        final int owner;
+        int used;
+
+        Chunk(int owner) {
+            this.types = new CellType[CHUNK_SIZE * CHUNK_SIZE];
+            this.gates = new Gate[CHUNK_SIZE * CHUNK_SIZE];
+            this.owner = owner;
+        }
+
+        Chunk(Chunk from, int owner) {
+            this.types = from.types.clone();
+            this.gates = from.gates.clone();
+            this.owner = owner;
+            this.used = from.used;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int chunksAcross;
+    private final int levels;
+
+    private Node root;
+    private int chunkCount = 0;
+    private int edit = 1;
+
+    private final List<Integer> inputCells = new ArrayList<>();
+    private final Map<Integer, Integer> inputIndex = new HashMap<>();
+    private int outputCell = -1;
+
+    private final List<CellListener> listeners = new ArrayList<>();
+
+    public CircuitGrid(int width, int height) {
+        if (width < 3 || height < 3 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad grid size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.chunksAcross = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+
+        long chunkNumbers = (long) chunksAcross * ((height + CHUNK_MASK) >> CHUNK_SHIFT);
+        int depth = 1;
+        while ((long) NODE_SIZE << (NODE_BITS * (depth - 1)) < chunkNumbers) {
+            depth++;
+        }
+        this.levels = depth;
+    }
+
+    public void addListener(CellListener listener) {
+        listeners.add(listener);
+    }
+
+    // ===== CELLS =====
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public int cellId(int x, int y) {
+        return y * width + x;
+    }
+
+    private int chunkKey(int x, int y) {
+        return (y >> CHUNK_SHIFT) * chunksAcross + (x >> CHUNK_SHIFT);
+    }
+
+    private Chunk chunkAt(int x, int y) {
+        return findChunk(chunkKey(x, y));
+    }
+
+    private Chunk findChunk(int key) {
+        Object node = root;
+        for (int level = levels - 1; level >= 0 && node != null; level--) {
+            node = ((Node) node).slots[(key >>> (level * NODE_BITS)) & NODE_MASK];
+        }
+        return (Chunk) node;
+    }
+
+    private static int slot(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+    }
+
+    public CellType getType(int x, int y) {
+        Chunk chunk = chunkAt(x, y);
+        CellType type = chunk == null ? null : chunk.types[slot(x, y)];
+        return type == null ? CellType.EMPTY : type;
+    }
+
+    public Gate getGate(int x, int y) {
+        Chunk chunk = chunkAt(x, y);
+        return chunk == null ? null : chunk.gates[slot(x, y)];
+    }
+
+    public int getInputIndex(int x, int y) {
+        Integer index = inputIndex.get(cellId(x, y));
+        return index == null ? 0 : index;
+    }
+
+    private void set(int x, int y, CellType type, Gate gate) {
+        int key = chunkKey(x, y);
+        int slot = slot(x, y);
+        Chunk chunk = findChunk(key);
+        CellType old = chunk == null || chunk.types[slot] == null ? CellType.EMPTY : chunk.types[slot];
+        if (old == type && (chunk == null || chunk.gates[slot] == gate)) return;
+
+        // Path from the root, copying what an earlier snapshot shares
+        Node[] path = new Node[levels];
+        root = root == null ? new Node(edit) : editable(root);
+        path[levels - 1] = root;
+        for (int level = levels - 1; level > 0; level--) {
+            int index = (key >>> (level * NODE_BITS)) & NODE_MASK;
+            Node child = (Node) path[level].slots[index];
+            if (child == null) {
+                child = new Node(edit);
+                path[level].used++;
+            } else {
+                child = editable(child);
+            }
+            path[level].slots[index] = child;
+            path[level - 1] = child;
+        }
+
+        int index = key & NODE_MASK;
+        if (chunk == null) {
+            chunk = new Chunk(edit);
+            path[0].used++;
+            chunkCount++;
+        } else if (chunk.owner != edit) {
+            chunk = new Chunk(chunk, edit);
+        }
+        path[0].slots[index] = chunk;
+
+        if (old == CellType.EMPTY) chunk.used++;
+        if (type == CellType.EMPTY) chunk.used--;
+        chunk.types[slot] = type == CellType.EMPTY ? null : type;
+        chunk.gates[slot] = gate;
+
+        // Unhook an emptied chunk and any nodes left empty above it
+        if (chunk.used == 0) {
+            path[0].slots[index] = null;
+            chunkCount--;
+            int level = 0;
+            while (--path[level].used == 0 && level < levels - 1) {
+                level++;
+                path[level].slots[(key >>> (level * NODE_BITS)) & NODE_MASK] = null;
+            }
+            if (root.used == 0) {
+                root = null;
+            }
+        }
+
+        notifyChanged(x, y);
+    }
+
+    private Node editable(Node node) {
+        return node.owner == edit ? node : new Node(node, edit);
+    }
+
+    private void notifyChanged(int x, int y) {
+        for (CellListener listener : listeners) {
+            listener.cellChanged(x, y);
+        }
+    }
+
+    /**
+     * Visit every non-empty cell
+     */
+    public void forEachOccupied(CellVisitor visitor) {
+        forEachOccupied(0, 0, width - 1, height - 1, visitor);
+    }
+
+    /**
+     * Visit the non-empty cells inside a rectangle (inclusive bounds),
+     * chunk by chunk; empty chunks are skipped without looking at cells
+     */
+    public void forEachOccupied(int x0, int y0, int x1, int y1, CellVisitor visitor) {
+        x0 = Math.max(0, x0);
+        y0 = Math.max(0, y0);
+        x1 = Math.min(width - 1, x1);
+        y1 = Math.min(height - 1, y1);
+        if (x0 > x1 || y0 > y1) return;
+
+        int cx0 = x0 >> CHUNK_SHIFT, cx1 = x1 >> CHUNK_SHIFT;
+        int cy0 = y0 >> CHUNK_SHIFT, cy1 = y1 >> CHUNK_SHIFT;
+        long area = (long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+
+        List<Integer> keys = new ArrayList<>();
+        if (area > chunkCount) {
+            List<Integer> all = new ArrayList<>();
+            collectKeys(root, levels - 1, 0, all);
+            for (int key : all) {
+                int cx = key % chunksAcross, cy = key / chunksAcross;
+                if (cx >= cx0 && cx <= cx1 && cy >= cy0 && cy <= cy1) keys.add(key);
+            }
+        } else {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    int key = cy * chunksAcross + cx;
+                    if (findChunk(key) != null) keys.add(key);
+                }
+            }
+        }
+
+        // Visitors may edit the grid, so work from a list of the keys
+        for (int key : keys) {
+            Chunk chunk = findChunk(key);
+            if (chunk == null) continue;
+            int baseX = (key % chunksAcross) << CHUNK_SHIFT;
+            int baseY = (key / chunksAcross) << CHUNK_SHIFT;
+            int startX = Math.max(x0, baseX), endX = Math.min(x1, baseX + CHUNK_MASK);
+            int startY = Math.max(y0, baseY), endY = Math.min(y1, baseY + CHUNK_MASK);
+            for (int y = startY; y <= endY; y++) {
+                for (int x = startX; x <= endX; x++) {
+                    if (chunk.types[slot(x, y)] != null) visitor.visit(x, y);
+                }
+            }
+        }
+    }
+
+    private static void collectKeys(Node node, int level, int base, List<Integer> keys) {
+        if (node == null) return;
+        for (int i = 0; i < NODE_SIZE; i++) {
+            Object child = node.slots[i];
+            if (child == null) continue;
+            int key = base | (i << (level * NODE_BITS));
+            if (level == 0) {
+                keys.add(key);
+            } else {
+                collectKeys((Node) child, level - 1, key, keys);
+            }
+        }
+    }
+
+    public int getChunkCount() { return chunkCount; }
+
+    // ===== HISTORY =====
+
+    /**
+     * Freeze the current contents; O(1), later edits copy what they touch
+     */
+    public Snapshot snapshot() {
+        edit++;
+        return new Snapshot(root, chunkCount);
+    }
+
+    /**
+     * True if nothing was edited since the snapshot was taken
+     */
+    public boolean isUnchangedSince(Snapshot snapshot) {
+        return root == snapshot.root;
+    }
+
+    /**
+     * Bring back the contents of a snapshot
+     *
+     * The swap itself is O(1); the listeners then hear about every cell
+     * that differs, found by walking only the parts of the two tries that
+     * are not shared.
+     */
+    public void restore(Snapshot snapshot) {
+        Node previous = root;
+        root = snapshot.root;
+        chunkCount = snapshot.chunkCount;
+        edit++;
+        reportDifferences(previous, root, levels - 1, 0);
+    }
+
+    private void reportDifferences(Object before, Object after, int level, int base) {
+        if (before == after) return;
+        if (level < 0) {
+            reportChunkDifferences((Chunk) before, (Chunk) after, base);
+            return;
+        }
+        for (int i = 0; i < NODE_SIZE; i++) {
+            Object childBefore = before == null ? null : ((Node) before).slots[i];
+            Object childAfter = after == null ? null : ((Node) after).slots[i];
+            reportDifferences(childBefore, childAfter, level - 1, base | (i << (level * NODE_BITS)));
+        }
+    }
+
+    private void reportChunkDifferences(Chunk before, Chunk after, int key) {
+        int baseX = (key % chunksAcross) << CHUNK_SHIFT;
+        int baseY = (key / chunksAcross) << CHUNK_SHIFT;
+        for (int slot = 0; slot < CHUNK_SIZE * CHUNK_SIZE; slot++) {
+            CellType typeBefore = before == null ? null : before.types[slot];
+            CellType typeAfter = after == null ? null : after.types[slot];
+            Gate gateBefore = before == null ? null : before.gates[slot];
+            Gate gateAfter = after == null ? null : after.gates[slot];
+            if (typeBefore != typeAfter || gateBefore != gateAfter) {
+                notifyChanged(baseX + (slot & CHUNK_MASK), baseY + (slot >> CHUNK_SHIFT));
+            }
+        }
+    }
+
+    // ===== FIXED PARTS =====
+
+    public void setInput(int x, int y, int index) {
+        inputIndex.put(cellId(x, y), index);
+        set(x, y, CellType.INPUT, null);
+        while (inputCells.size() <= index) {
+            inputCells.add(-1);
+        }
+        inputCells.set(index, cellId(x, y));
+    }
+
+    public void setOutput(int x, int y) {
+        set(x, y, CellType.OUTPUT, null);
+        outputCell = cellId(x, y);
+    }
+
+    /**
+     * Cell of an input, or -1 if it is not on the grid
+     */
+    public int getInputCell(int index) {
+        return index < inputCells.size() ? inputCells.get(index) : -1;
+    }
+
+    public int getInputCount() { return inputCells.size(); }
+    public int getOutputCell() { return outputCell; }
+
+    // ===== EDITING =====
+
+    /**
+     * A gate fits if its 3x3 area is inside the grid and holds only wires
+     * or nothing (wires underneath are replaced)
+     */
+    public boolean canPlaceGate(int centerX, int centerY) {
+        if (centerX < 1 || centerX >= width - 1 || centerY < 1 || centerY >= height - 1) {
+            return false;
+        }
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                CellType type = getType(centerX + dx, centerY + dy);
+                if (type != CellType.EMPTY && type != CellType.WIRE) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Place a gate
+     * @return the gate, or null if it does not fit
+     */
+    public Gate placeGate(GateType type, int centerX, int centerY) {
+        if (!canPlaceGate(centerX, centerY)) {
+            return null;
+        }
+        Gate gate = new Gate(type, centerX, centerY);
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                set(centerX + dx, centerY + dy, CellType.GATE, gate);
+            }
+        }
+        return gate;
+    }
+
+    /**
+     * Lay wire on the empty cells of a straight or L-shaped route
+     * (horizontal leg along y1 first, then vertical along x2)
+     */
+    public void drawWire(int x1, int y1, int x2, int y2) {
+        for (int x = Math.min(x1, x2); x <= Math.max(x1, x2); x++) {
+            layWire(x, y1);
+        }
+        for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); y++) {
+            layWire(x2, y);
+        }
+    }
+
+    private void layWire(int x, int y) {
+        if (getType(x, y) == CellType.EMPTY) {
+            set(x, y, CellType.WIRE, null);
+        }
+    }
+
+    /**
+     * Remove the wire or whole gate at a cell
+     * @return the removed gate, or null
+     */
+    public Gate delete(int x, int y) {
+        CellType type = getType(x, y);
+        if (type == CellType.WIRE) {
+            set(x, y, CellType.EMPTY, null);
+        } else if (type == CellType.GATE) {
+            Gate gate = getGate(x, y);
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    set(gate.getCenterX() + dx, gate.getCenterY() + dy, CellType.EMPTY, null);
+                }
+            }
+            return gate;
+        }
+        return null;
+    }
+
+    /**
+     * Remove all gates and wires, keeping inputs and output
+     */
+    public void clearComponents() {
+        forEachOccupied((x, y) -> {
+            CellType type = getType(x, y);
+            if (type == CellType.GATE || type == CellType.WIRE) {
+                set(x, y, CellType.EMPTY, null);
+            }
+        });
+    }
+
+    /**
+     * True if any gate or wire is on the grid
+     */
+    public boolean hasComponents() {
+        boolean[] found = new boolean[1];
+        forEachOccupied((x, y) -> {
+            CellType type = getType(x, y);
+            found[0] |= type == CellType.GATE || type == CellType.WIRE;
+        });
+        return found[0];
+    }
+
+    /**
+     * Gates on the grid, in chunk order
+     */
+    public Collection<Gate> getGates() {
+        List<Gate> gates = new ArrayList<>();
+        forEachOccupied((x, y) -> {
+            Gate gate = getGate(x, y);
+            if (gate != null && gate.getCenterX() == x && gate.getCenterY() == y) {
+                gates.add(gate);
+            }
+        });
+        return Collections.unmodifiableList(gates);
+    }
+
+    // ===== CONNECTIVITY =====
+
+    /**
+     * True for cells that hold a signal: inputs, wires, the output and
+     * gate output cells
+     */
+    public boolean carriesSignal(int x, int y) {
+        switch (getType(x, y)) {
+            case INPUT:
+            case OUTPUT:
+            case WIRE:
+                return true;
+            case GATE:
+                Gate gate = getGate(x, y);
+                return gate.getOutputX() == x && gate.getOutputY() == y;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Two adjacent cells share a net when a signal can spread from one
+     * into the other, i.e. both carry signals and one is a wire or the output
+     */
+    public boolean joins(int x1, int y1, int x2, int y2) {
+        if (!carriesSignal(x1, y1) || !carriesSignal(x2, y2)) {
+            return false;
+        }
+        return isWireLike(x1, y1) || isWireLike(x2, y2);
+    }
+
+    private boolean isWireLike(int x, int y) {
+        CellType type = getType(x, y);
+        return type == CellType.WIRE || type == CellType.OUTPUT;
+    }
+
+    /**
+     * Signal carrying cells next to a gate pin, outside the gate
+     */
+    public int[] pinNeighbours(Gate gate, int pin) {
+        int x = gate.getPinX(pin);
+        int y = gate.getPinY(pin);
+        int[] found = new int[3];
+        int count = 0;
+        if (contains(x - 1, y) && carriesSignal(x - 1, y)) {
+            found[count++] = cellId(x - 1, y);
+        }
+        if (contains(x, y - 1) && !gate.covers(x, y - 1) && carriesSignal(x, y - 1)) {
+            found[count++] = cellId(x, y - 1);
+        }
+        if (contains(x, y + 1) && !gate.covers(x, y + 1) && carriesSignal(x, y + 1)) {
+            found[count++] = cellId(x, y + 1);
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
@@ -0,0 +1,431 @@
+package com.interplanetarycrash.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Lays a synthesized circuit out on a grid, to check that it fits
+ *
+ * Gates go in columns by depth (a gate's column is one more than that of
+ * its deepest operand), each column's gates stacked near the rows of their
+ * operands. Then every pin and the output are connected by the shortest
+ * wire a breadth-first search can find, through cells where the wire
+ * would not touch another net: on this grid any wire next to a signal
+ * joins it. A connection that finds no way is ripped up with all the
+ * wires and routed first on the next round. Layouts with wider and
+ * tighter spacing are tried in turn, first keeping the cells in front of
+ * pins and gate outputs clear of other wires (so an early wire cannot
+ * wall in a later connection), then without; after those come
+ * RANDOM_TRIES layouts with gates moved to later columns, shuffled rows
+ * and swapped pins, from a fixed seed so the result is repeatable.
+ *
+ * A layout counts only if the grid compiles to the same truth table as
+ * the circuit, so success is proof that the task fits its grid. Failure
+ * means only that no layout was found. Wires cannot cross and the inputs
+ * sit in a fixed order on the left, so some circuits have no layout at
+ * all; CircuitSynthesizer can be asked for another circuit then.
+ */
+public final class CircuitPlacer {
+
+    private static final int[] ROW_PITCHES = {5, 4};
+    private static final int MIN_COLUMN_PITCH = 4;
+    private static final int MAX_COLUMN_PITCH = 9;
+    private static final int RANDOM_TRIES = 300;
+    private static final long SEED = 1;
+    private static final int[][] SIDES = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private final CircuitSynthesizer.Result circuit;
+    private final CircuitGrid grid;
+    private final int width;
+    private final int height;
+    private final Random random;  // null for the plain layouts
+
+    private final int[] netOf;    // Per cell: signal carried, -1 if none
+    private final int[] pinNet;   // Per cell: signal a pin next to it needs, -1 none, -2 two different
+    private final int[] reserved; // Per cell: signal keeping it clear, -1 none, -2 two different
+    private final int[] previous; // Breadth-first search trail
+    private int[][] pinSignals;   // Per gate and pin, the signal it reads
+
+    private CircuitPlacer(CircuitSynthesizer.Result circuit, CircuitGrid grid, Random random) {
+        this.circuit = circuit;
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.random = random;
+        this.netOf = new int[width * height];
+        this.pinNet = new int[width * height];
+        this.reserved = new int[width * height];
+        this.previous = new int[width * height];
+    }
+
+    /**
+     * Place and wire a circuit on a grid that has its inputs and output
+     * but nothing else
+     * @return true if it fits; otherwise the grid is left as it was
+     */
+    public static boolean place(CircuitSynthesizer.Result circuit, CircuitGrid grid) {
+        if (!circuit.isFound()) {
+            return false;
+        }
+        CircuitGrid.Snapshot empty = grid.snapshot();
+        for (int rowPitch : ROW_PITCHES) {
+            for (int pitch = MAX_COLUMN_PITCH; pitch >= MIN_COLUMN_PITCH; pitch--) {
+                for (boolean keepClear : new boolean[] {true, false}) {
+                    if (new CircuitPlacer(circuit, grid, null).layout(pitch, rowPitch, keepClear)
+                            && computesCircuit(circuit, grid)) {
+                        return true;
+                    }
+                    grid.restore(empty);
+                }
+            }
+        }
+
+        Random random = new Random(SEED);
+        for (int t = 0; t < RANDOM_TRIES; t++) {
+            int rowPitch = ROW_PITCHES[random.nextInt(ROW_PITCHES.length)];
+            int pitch = MIN_COLUMN_PITCH + random.nextInt(MAX_COLUMN_PITCH - MIN_COLUMN_PITCH + 1);
+            if (new CircuitPlacer(circuit, grid, random).layout(pitch, rowPitch, random.nextBoolean())
+                    && computesCircuit(circuit, grid)) {
+                return true;
+            }
+            grid.restore(empty);
+        }
+        return false;
+    }
+
+    private static boolean computesCircuit(CircuitSynthesizer.Result circuit, CircuitGrid grid) {
+        Netlist netlist = NetlistCompiler.compile(grid);
+        return netlist.isValid() && netlist.isCombinational()
+            && netlist.evaluateAll(circuit.getInputCount())[0] == circuit.getColumn();
+    }
+
+    // ===== PLACEMENT =====
+
+    private boolean layout(int columnPitch, int rowPitch, boolean keepClear) {
+        int inputs = circuit.getInputCount();
+        int gates = circuit.getGateCount();
+        int[] depth = new int[inputs + gates];
+        int[] signalY = new int[inputs + gates];
+        int deepest = 0;
+        for (int i = 0; i < inputs; i++) {
+            if (grid.getInputCell(i) < 0) {
+                return false;
+            }
+            signalY[i] = grid.getInputCell(i) / width;
+        }
+        for (int g = 0; g < gates; g++) {
+            for (int p = 0; p < circuit.getType(g).getInputCount(); p++) {
+                depth[inputs + g] = Math.max(depth[inputs + g], depth[circuit.getOperand(g, p)] + 1);
+            }
+            deepest = Math.max(deepest, depth[inputs + g]);
+        }
+
+        // A random layout may add a column and move gates right, up to the
+        // column before the first gate that reads them
+        int columns = deepest + (random != null && deepest > 0 && random.nextInt(3) == 0 ? 1 : 0);
+        int[] column = new int[gates];
+        int[] latest = new int[gates];
+        for (int g = gates - 1; g >= 0; g--) {
+            latest[g] = inputs + g == circuit.getOutput() ? columns : columns + 1;
+            for (int later = g + 1; later < gates; later++) {
+                for (int p = 0; p < circuit.getType(later).getInputCount(); p++) {
+                    if (circuit.getOperand(later, p) == inputs + g) {
+                        latest[g] = Math.min(latest[g], latest[later] - 1);
+                    }
+                }
+            }
+            latest[g] = Math.min(latest[g], columns);
+        }
+        for (int g = 0; g < gates; g++) {
+            int earliest = 1;
+            for (int p = 0; p < circuit.getType(g).getInputCount(); p++) {
+                int operand = circuit.getOperand(g, p);
+                if (operand >= inputs) {
+                    earliest = Math.max(earliest, column[operand - inputs] + 1);
+                }
+            }
+            column[g] = random == null ? depth[inputs + g] : earliest + random.nextInt(latest[g] - earliest + 1);
+        }
+
+        // Gate output cells must stay left of the output cell
+        int outputX = grid.getOutputCell() % width;
+        int outputY = grid.getOutputCell() / width;
+        if (columns > 0 && 2 + columns * columnPitch >= outputX) {
+            return false;
+        }
+
+        Gate[] placed = new Gate[gates];
+        pinSignals = new int[gates][];
+        for (int c = 1; c <= columns; c++) {
+            List<Integer> stack = new ArrayList<>();
+            int[] wantedY = new int[gates];
+            for (int g = 0; g < gates; g++) {
+                if (column[g] != c) continue;
+                int sum = 0;
+                int pins = circuit.getType(g).getInputCount();
+                for (int p = 0; p < pins; p++) {
+                    sum += signalY[circuit.getOperand(g, p)];
+                }
+                wantedY[g] = inputs + g == circuit.getOutput() ? outputY : Math.round((float) sum / pins);
+                if (random != null) {
+                    wantedY[g] += random.nextInt(2 * rowPitch + 1) - rowPitch;
+                }
+                stack.add(g);
+            }
+            stack.sort((a, b) -> Integer.compare(wantedY[a], wantedY[b]));
+
+            // Keep the wanted rows where possible, pushing gates apart
+            int[] centers = new int[stack.size()];
+            for (int k = 0; k < centers.length; k++) {
+                centers[k] = Math.max(wantedY[stack.get(k)], k == 0 ? 1 : centers[k - 1] + rowPitch);
+            }
+            int overflow = centers.length == 0 ? 0 : centers[centers.length - 1] - (height - 2);
+            for (int k = centers.length - 1; k >= 0 && overflow > 0; k--) {
+                int limit = k == centers.length - 1 ? height - 2 : centers[k + 1] - rowPitch;
+                centers[k] = Math.min(centers[k], limit);
+            }
+
+            int centerX = 1 + c * columnPitch;
+            for (int k = 0; k < centers.length; k++) {
+                int g = stack.get(k);
+                if (centers[k] < 1) {
+                    return false;
+                }
+                placed[g] = grid.placeGate(circuit.getType(g), centerX, centers[k]);
+                if (placed[g] == null) {
+                    return false;
+                }
+                signalY[inputs + g] = centers[k];
+                pinSignals[g] = assignPins(g, signalY);
+            }
+        }
+
+        return route(placed, keepClear);
+    }
+
+    /**
+     * Operands of a gate in pin order; the two-input gates are all
+     * symmetric, so the lower operand goes to the lower pin (pin 0) and
+     * their wires need not cross
+     */
+    private int[] assignPins(int g, int[] signalY) {
+        int pins = circuit.getType(g).getInputCount();
+        int[] signals = new int[pins];
+        for (int p = 0; p < pins; p++) {
+            signals[p] = circuit.getOperand(g, p);
+        }
+        // A random layout sometimes tries them the other way round
+        boolean swap = random != null && random.nextInt(4) == 0;
+        if (pins == 2 && (signalY[signals[1]] > signalY[signals[0]]) != swap) {
+            signals = new int[] {signals[1], signals[0]};
+        }
+        // A MUX selecting with one of its data inputs is an AND or OR, and
+        // its data inputs can swap too: (a, b, b) = (b, a, a), (a, b, a) = (b, a, b)
+        if (pins == 3 && (signals[2] == signals[0] || signals[2] == signals[1])
+                && (signalY[signals[1]] > signalY[signals[0]]) != swap) {
+            int select = signals[2] == signals[1] ? signals[0] : signals[1];
+            signals = new int[] {signals[1], signals[0], select};
+        }
+        return signals;
+    }
+
+    /**
+     * Record the signal of every signal carrying cell and the signal each
+     * free cell next to a pin would feed into it
+     */
+    private boolean markNets(Gate[] placed, boolean keepClear) {
+        int inputs = circuit.getInputCount();
+        Arrays.fill(netOf, -1);
+        Arrays.fill(pinNet, -1);
+        Arrays.fill(reserved, -1);
+        for (int i = 0; i < inputs; i++) {
+            netOf[grid.getInputCell(i)] = i;
+        }
+        for (int g = 0; g < placed.length; g++) {
+            netOf[grid.cellId(placed[g].getOutputX(), placed[g].getOutputY())] = inputs + g;
+        }
+        int output = grid.getOutputCell();
+        netOf[output] = circuit.getOutput();
+        for (int[] side : SIDES) {
+            int x = output % width + side[0];
+            int y = output / width + side[1];
+            if (grid.contains(x, y) && netOf[grid.cellId(x, y)] >= 0 && netOf[grid.cellId(x, y)] != netOf[output]) {
+                return false; // A gate output against the circuit output
+            }
+        }
+
+        for (int g = 0; g < placed.length; g++) {
+            for (int p = 0; p < placed[g].getPinCount(); p++) {
+                int signal = pinSignals[g][p];
+                for (int cell : feedCells(placed[g], p)) {
+                    if (netOf[cell] >= 0 && netOf[cell] != signal) {
+                        return false; // A pin touches the wrong signal
+                    }
+                    pinNet[cell] = pinNet[cell] == -1 || pinNet[cell] == signal ? signal : -2;
+                }
+                if (keepClear) {
+                    reserve(placed[g].getPinX(p) - 1, placed[g].getPinY(p), signal);
+                }
+            }
+            if (keepClear) {
+                reserve(placed[g].getOutputX() + 1, placed[g].getOutputY(), inputs + g);
+            }
+        }
+        if (keepClear && circuit.getOutput() >= 0) {
+            reserve(output % width - 1, output / width, circuit.getOutput());
+        }
+        return true;
+    }
+
+    private void reserve(int x, int y, int signal) {
+        if (grid.contains(x, y)) {
+            int cell = grid.cellId(x, y);
+            reserved[cell] = reserved[cell] == -1 || reserved[cell] == signal ? signal : -2;
+        }
+    }
+
+    /**
+     * Cells outside the gate that a pin reads from
+     */
+    private int[] feedCells(Gate gate, int pin) {
+        int x = gate.getPinX(pin);
+        int y = gate.getPinY(pin);
+        int[] cells = new int[3];
+        int count = 0;
+        if (grid.contains(x - 1, y)) cells[count++] = grid.cellId(x - 1, y);
+        if (grid.contains(x, y - 1) && !gate.covers(x, y - 1)) cells[count++] = grid.cellId(x, y - 1);
+        if (grid.contains(x, y + 1) && !gate.covers(x, y + 1)) cells[count++] = grid.cellId(x, y + 1);
+        return Arrays.copyOf(cells, count);
+    }
+
+    // ===== ROUTING =====
+
+    private boolean route(Gate[] placed, boolean keepClear) {
+        // Connections as {gate, pin}, the circuit output as {-1, -1}
+        List<int[]> order = new ArrayList<>();
+        for (int g = 0; g < placed.length; g++) {
+            for (int p = 0; p < placed[g].getPinCount(); p++) {
+                order.add(new int[] {g, p});
+            }
+        }
+        if (circuit.getOutput() >= 0) {
+            order.add(new int[] {-1, -1});
+        }
+
+        CircuitGrid.Snapshot unwired = grid.snapshot();
+        for (int round = 0; round <= order.size(); round++) {
+            if (!markNets(placed, keepClear)) {
+                return false;
+            }
+            int failed = -1;
+            for (int k = 0; k < order.size() && failed < 0; k++) {
+                if (!connect(placed, order.get(k))) {
+                    failed = k;
+                }
+            }
+            if (failed < 0) {
+                return true;
+            }
+            // Rip up every wire and route the failed connection first
+            grid.restore(unwired);
+            order.add(0, order.remove(failed));
+        }
+        return false;
+    }
+
+    private boolean connect(Gate[] placed, int[] connection) {
+        int g = connection[0];
+        if (g >= 0) {
+            return connect(feedCells(placed[g], connection[1]), pinSignals[g][connection[1]], -1);
+        }
+        int output = grid.getOutputCell();
+        List<Integer> around = new ArrayList<>();
+        for (int[] side : SIDES) {
+            int x = output % width + side[0];
+            int y = output / width + side[1];
+            if (grid.contains(x, y)) around.add(grid.cellId(x, y));
+        }
+        return connect(around.stream().mapToInt(Integer::intValue).toArray(), circuit.getOutput(), output);
+    }
+
+    /**
+     * Join a set of cells (next to a pin or the output) to a signal with wire
+     * @param skip cell not counted as reaching the signal (the output being connected)
+     */
+    private boolean connect(int[] starts, int signal, int skip) {
+        for (int cell : starts) {
+            if (cell != skip && netOf[cell] == signal) {
+                return true;
+            }
+        }
+
+        Arrays.fill(previous, -2);
+        int[] queue = new int[width * height];
+        int head = 0, tail = 0;
+        for (int cell : starts) {
+            if (canWire(cell, signal) && previous[cell] == -2) {
+                previous[cell] = -1;
+                queue[tail++] = cell;
+            }
+        }
+
+        while (head < tail) {
+            int cell = queue[head++];
+            if (touchesSignal(cell, signal, skip)) {
+                for (int c = cell; c >= 0; c = previous[c]) {
+                    grid.drawWire(c % width, c / width, c % width, c / width);
+                    netOf[c] = signal;
+                }
+                return true;
+            }
+            for (int[] side : SIDES) {
+                int x = cell % width + side[0];
+                int y = cell / width + side[1];
+                if (!grid.contains(x, y)) continue;
+                int next = grid.cellId(x, y);
+                if (previous[next] == -2 && canWire(next, signal)) {
+                    previous[next] = cell;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A wire may go on an empty cell that joins no other signal, feeds no
+     * pin needing another signal and is not next to a cell kept clear for one
+     */
+    private boolean canWire(int cell, int signal) {
+        int x = cell % width;
+        int y = cell / width;
+        if (grid.getType(x, y) != CellType.EMPTY || (pinNet[cell] != -1 && pinNet[cell] != signal)
+                || (reserved[cell] != -1 && reserved[cell] != signal)) {
+            return false;
+        }
+        for (int[] side : SIDES) {
+            int nx = x + side[0];
+            int ny = y + side[1];
+            if (!grid.contains(nx, ny)) continue;
+            int next = grid.cellId(nx, ny);
+            if ((grid.carriesSignal(nx, ny) && netOf[next] != signal) || (reserved[next] >= 0 && reserved[next] != signal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean touchesSignal(int cell, int signal, int skip) {
+        for (int[] side : SIDES) {
+            int x = cell % width + side[0];
+            int y = cell / width + side[1];
+            if (grid.contains(x, y) && grid.cellId(x, y) != skip && grid.carriesSignal(x, y)
+                    && netOf[grid.cellId(x, y)] == signal) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,596 @@
+package com.interplanetarycrash.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Search for the smallest circuit that makes a truth table from a given
+ * set of gate types
+ *
+ * Works on whole truth tables: with up to MAX_INPUTS inputs an output
+ * column is one long in BitSlice layout (its signature), so a candidate
+ * gate is tried on every row with a single operation. Rows outside the
+ * care mask may have any output. The search runs in stages:
+ *   1. Formulas by increasing size, each signature kept once with the
+ *      cheapest way found to make it, until the target appears. Fast, but
+ *      a formula may build a shared part twice, so it is an upper bound.
+ *   2. Depth-first search over networks of 1, 2, ... gates, up to one less
+ *      than stage 1 found. Networks are tried in a single canonical gate
+ *      order, and gates repeating an existing signal or left unused are
+ *      cut off, so a network found here is the smallest possible.
+ *   3. With no circuit found, every function the gates can make from the
+ *      inputs is listed; if the list completes without the target, the
+ *      table cannot be built at all.
+ * All stages share a budget of tried gates; the result says whether it is
+ * proven (minimal, or impossible) or only the best found within it.
+ *
+ * A caller can also pass a test every circuit must pass, e.g. that it can
+ * be laid out on a grid. Stage 2 then goes on past networks the test
+ * turns down, to other networks of the same size and up to EXTRA_GATES
+ * more gates, offering at most MAX_CANDIDATES circuits to the test.
+ */
+public final class CircuitSynthesizer {
+
+    public static final int MAX_INPUTS = 6;
+    private static final int MAX_FORMULA_SIZE = 24;
+    private static final int MAX_NETWORK_SIZE = 12;
+    private static final int EXTRA_GATES = 2;
+    private static final int MAX_CANDIDATES = 200;
+
+    /**
+     * Outcome of a search. Signals are numbered inputs first, then one per
+     * gate in evaluation order.
+     */
+    public static final class Result {
+        private final int inputCount;
+        private final GateType[] types;   // null if no circuit was found
+        private final int[][] operands;
+        private final int output;         // -1 = output left unconnected (constant 0)
+        private final long column;
+        private final boolean proven;
+
+        private Result(int inputCount, GateType[] types, int[][] operands, int output,
+                       long column, boolean proven) {
+            this.inputCount = inputCount;
+            this.types = types;
+            this.operands = operands;
+            this.output = output;
+            this.column = column;
+            this.proven = proven;
+        }
+
+        public boolean isFound() { return types != null; }
+
+        /**
+         * True if no smaller circuit exists (found), or no circuit at all (not found)
+         */
+        public boolean isProven() { return proven; }
+
+        public boolean isImpossible() { return types == null && proven; }
+
+        public int getInputCount() { return inputCount; }
+        public int getGateCount() { return types.length; }
+        public GateType getType(int gate) { return types[gate]; }
+
+        /**
+         * Signal on a pin of a gate
+         */
+        public int getOperand(int gate, int pin) { return operands[gate][pin]; }
+
+        /**
+         * Signal driving the circuit output, -1 if it stays unconnected
+         */
+        public int getOutput() { return output; }
+
+        /**
+         * Output column the circuit makes, in BitSlice layout
+         */
+        public long getColumn() { return column; }
+
+        /**
+         * Name of a signal: input letters, then g1, g2, ...
+         */
+        public String signalName(int signal) {
+            return signal < inputCount ? String.valueOf((char) ('A' + signal)) : "g" + (signal - inputCount + 1);
+        }
+
+        /**
+         * The circuit as one assignment per line, e.g. "g1 = NAND(A, B)"
+         */
+        @Override
+        public String toString() {
+            if (types == null) {
+                return proven ? "impossible" : "not found";
+            }
+            StringBuilder text = new StringBuilder();
+            for (int g = 0; g < types.length; g++) {
+                text.append(signalName(inputCount + g)).append(" = ").append(types[g]).append('(');
+                for (int p = 0; p < operands[g].length; p++) {
+                    text.append(p > 0 ? ", " : "").append(signalName(operands[g][p]));
+                }
+                text.append(")\n");
+            }
+            text.append("Y = ").append(output < 0 ? "0" : signalName(output));
+            return text.toString();
+        }
+
+        private Result notMinimal() {
+            return new Result(inputCount, types, operands, output, column, false);
+        }
+    }
+
+    private final int inputCount;
+    private final long rowMask;
+    private final long target;
+    private final long care;
+    private final GateType[] twoInput;
+    private final boolean useNot;
+    private final boolean useMux;
+    private final int maxPins;
+    private final Predicate<Result> accept;
+    private long budget;
+    private int candidates = 0;
+    private boolean exhausted = false;
+
+    private CircuitSynthesizer(int inputCount, long target, long care, Collection<GateType> gates, long budget,
+                               Predicate<Result> accept) {
+        this.inputCount = inputCount;
+        this.rowMask = BitSlice.lastWordMask(inputCount);
+        this.target = target & rowMask;
+        this.care = care & rowMask;
+        this.budget = budget;
+
+        List<GateType> pairs = new ArrayList<>();
+        for (GateType type : GateType.values()) {
+            if (gates.contains(type) && !type.isSequential() && type.getInputCount() == 2) {
+                pairs.add(type);
+            }
+        }
+        this.twoInput = pairs.toArray(new GateType[0]);
+        this.useNot = gates.contains(GateType.NOT);
+        this.useMux = gates.contains(GateType.MUX);
+        this.maxPins = useMux ? 3 : 2;
+        this.accept = accept;
+    }
+
+    /**
+     * Find a smallest circuit for a truth table
+     * @param target expected output column (BitSlice layout, one word)
+     * @param care rows whose output matters
+     * @param gates gate types allowed (sequential ones are not used)
+     * @param budget gates to try at most, shared by all stages
+     */
+    public static Result synthesize(int inputCount, long target, long care,
+                                    Collection<GateType> gates, long budget) {
+        return synthesize(inputCount, target, care, gates, budget, circuit -> true);
+    }
+
+    /**
+     * Find a smallest circuit for a truth table that passes a test
+     * @param accept test for each circuit found
+     * @return the smallest circuit accepted, proven only if no circuit at
+     *         all is smaller; with none accepted, the smallest found
+     */
+    public static Result synthesize(int inputCount, long target, long care,
+                                    Collection<GateType> gates, long budget, Predicate<Result> accept) {
+        if (inputCount < 1 || inputCount > MAX_INPUTS) {
+            throw new IllegalArgumentException("Synthesis needs 1 to " + MAX_INPUTS + " inputs, not " + inputCount);
+        }
+        return new CircuitSynthesizer(inputCount, target, care, gates, budget, accept).run();
+    }
+
+    private Result run() {
+        // Nothing to build: an unconnected output reads 0, or an input is the answer
+        if ((target & care) == 0) {
+            return new Result(inputCount, new GateType[0], new int[0][], -1, 0, true);
+        }
+        for (int i = 0; i < inputCount; i++) {
+            if (matches(inputSignature(i))) {
+                return new Result(inputCount, new GateType[0], new int[0][], i, inputSignature(i), true);
+            }
+        }
+
+        Result best = new FormulaSearch().run();
+        if (best == null) {
+            // Either the gates cannot make the table, or it needs a very large circuit
+            boolean impossible = !exhausted && !closureContainsTarget();
+            return new Result(inputCount, null, null, -1, 0, impossible);
+        }
+
+        // Smallest circuit found so far that the test turned down
+        Result smallest = null;
+        int last = Math.min(best.getGateCount() - 1, MAX_NETWORK_SIZE);
+        for (int size = 1; size <= last && !exhausted; size++) {
+            NetworkSearch search = new NetworkSearch(size);
+            Result network = search.run();
+            if (network != null) {
+                return smallest == null ? network : network.notMinimal();
+            }
+            if (smallest == null && search.rejected != null) {
+                smallest = search.rejected;
+                last = Math.min(size + EXTRA_GATES, MAX_NETWORK_SIZE);
+            }
+        }
+        if (smallest != null) {
+            return smallest;
+        }
+
+        boolean minimal = !exhausted && best.getGateCount() - 1 <= MAX_NETWORK_SIZE;
+        Result formula = new Result(inputCount, best.types, best.operands, best.output, best.column, minimal);
+        if (offer(formula)) {
+            return formula;
+        }
+        last = Math.min(best.getGateCount() + EXTRA_GATES, MAX_NETWORK_SIZE);
+        for (int size = best.getGateCount(); size <= last && !exhausted; size++) {
+            Result network = new NetworkSearch(size).run();
+            if (network != null) {
+                return minimal && size == best.getGateCount() ? network : network.notMinimal();
+            }
+        }
+        return formula;
+    }
+
+    /**
+     * Put a circuit to the caller's test
+     * @return true if it passed; once MAX_CANDIDATES have been offered the
+     *         search counts as out of budget
+     */
+    private boolean offer(Result circuit) {
+        if (++candidates > MAX_CANDIDATES) {
+            exhausted = true;
+            return false;
+        }
+        return accept.test(circuit);
+    }
+
+    private long inputSignature(int input) {
+        return BitSlice.inputWord(input, inputCount, 0) & rowMask;
+    }
+
+    private boolean matches(long signature) {
+        return ((signature ^ target) & care) == 0;
+    }
+
+    /**
+     * Count one tried gate
+     * @return false once the budget is used up
+     */
+    private boolean spend() {
+        if (--budget < 0) {
+            exhausted = true;
+        }
+        return !exhausted;
+    }
+
+    // ===== STAGE 1: FORMULAS =====
+
+    /**
+     * Formulas by size; each signature is stored once, with the gate and
+     * the entries of its operands, so the circuit can be rebuilt from it
+     */
+    private final class FormulaSearch {
+        private long[] signatures = new long[256];
+        private GateType[] types = new GateType[256];
+        private int[][] operands = new int[256][];
+        private int count = 0;
+        private final Map<Long, Integer> index = new HashMap<>();
+        private final List<int[]> bySize = new ArrayList<>();
+        private final int[] sizeCounts = new int[MAX_FORMULA_SIZE + 1];
+        private int found = -1;
+
+        Result run() {
+            bySize.add(new int[inputCount]);
+            for (int i = 0; i < inputCount; i++) {
+                add(0, inputSignature(i), null, new int[] {i});
+            }
+
+            for (int size = 1; size <= MAX_FORMULA_SIZE && found < 0 && !exhausted; size++) {
+                bySize.add(new int[16]);
+                // Gates on one smaller formula, including both pins on the same signal
+                for (int e = 0; e < sizeCounts[size - 1] && found < 0 && spend(); e++) {
+                    int a = bySize.get(size - 1)[e];
+                    if (useNot) add(size, ~signatures[a], GateType.NOT, new int[] {a});
+                    for (GateType type : twoInput) {
+                        add(size, type.evaluate(signatures[a], signatures[a], 0), type, new int[] {a, a});
+                    }
+                }
+                // Two smaller formulas whose sizes add up to size - 1
+                for (int left = 0; left <= (size - 1) / 2 && found < 0 && !exhausted; left++) {
+                    int right = size - 1 - left;
+                    for (int i = 0; i < sizeCounts[left] && found < 0 && !exhausted; i++) {
+                        int a = bySize.get(left)[i];
+                        for (int j = left == right ? i + 1 : 0; j < sizeCounts[right] && found < 0 && spend(); j++) {
+                            int b = bySize.get(right)[j];
+                            combine(size, a, b);
+                        }
+                    }
+                }
+                if (useMux) {
+                    addMuxes(size);
+                }
+            }
+            return found < 0 ? null : build();
+        }
+
+        private void combine(int size, int a, int b) {
+            long x = signatures[a];
+            long y = signatures[b];
+            for (GateType type : twoInput) {
+                add(size, type.evaluate(x, y, 0), type, new int[] {a, b});
+            }
+            if (useMux) {
+                add(size, GateType.MUX.evaluate(x, y, x), GateType.MUX, new int[] {a, b, a});
+                add(size, GateType.MUX.evaluate(x, y, y), GateType.MUX, new int[] {a, b, b});
+                add(size, GateType.MUX.evaluate(y, x, x), GateType.MUX, new int[] {b, a, a});
+                add(size, GateType.MUX.evaluate(y, x, y), GateType.MUX, new int[] {b, a, b});
+            }
+        }
+
+        private void addMuxes(int size) {
+            for (int sa = 0; sa < size && found < 0; sa++) {
+                for (int sb = 0; sa + sb < size && found < 0; sb++) {
+                    int ss = size - 1 - sa - sb;
+                    for (int i = 0; i < sizeCounts[sa] && found < 0; i++) {
+                        for (int j = 0; j < sizeCounts[sb] && found < 0; j++) {
+                            for (int k = 0; k < sizeCounts[ss] && found < 0 && spend(); k++) {
+                                int a = bySize.get(sa)[i];
+                                int b = bySize.get(sb)[j];
+                                int s = bySize.get(ss)[k];
+                                add(size, GateType.MUX.evaluate(signatures[a], signatures[b], signatures[s]),
+                                    GateType.MUX, new int[] {a, b, s});
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private void add(int size, long signature, GateType type, int[] args) {
+            signature &= rowMask;
+            if (index.containsKey(signature)) {
+                return;
+            }
+            if (count == signatures.length) {
+                signatures = Arrays.copyOf(signatures, count * 2);
+                types = Arrays.copyOf(types, count * 2);
+                operands = Arrays.copyOf(operands, count * 2);
+            }
+            signatures[count] = signature;
+            types[count] = type;
+            operands[count] = args;
+            index.put(signature, count);
+
+            int[] list = bySize.get(size);
+            if (sizeCounts[size] == list.length) {
+                bySize.set(size, list = Arrays.copyOf(list, list.length * 2));
+            }
+            list[sizeCounts[size]++] = count;
+
+            if (type != null && matches(signature)) {
+                found = count;
+            }
+            count++;
+        }
+
+        /**
+         * Circuit of the found formula, with parts it uses twice built once
+         */
+        private Result build() {
+            List<GateType> gates = new ArrayList<>();
+            List<int[]> args = new ArrayList<>();
+            int output = emit(found, new HashMap<>(), gates, args);
+            return new Result(inputCount, gates.toArray(new GateType[0]), args.toArray(new int[0][]),
+                              output, signatures[found], false);
+        }
+
+        private int emit(int entry, Map<Integer, Integer> emitted, List<GateType> gates, List<int[]> args) {
+            if (types[entry] == null) {
+                return operands[entry][0];
+            }
+            Integer done = emitted.get(entry);
+            if (done != null) {
+                return done;
+            }
+            int[] pins = new int[operands[entry].length];
+            for (int p = 0; p < pins.length; p++) {
+                pins[p] = emit(operands[entry][p], emitted, gates, args);
+            }
+            gates.add(types[entry]);
+            args.add(pins);
+            int signal = inputCount + gates.size() - 1;
+            emitted.put(entry, signal);
+            return signal;
+        }
+    }
+
+    // ===== STAGE 2: NETWORKS =====
+
+    /**
+     * Depth-first search over networks of exactly size gates
+     *
+     * Gates that do not depend on each other can be listed in any order,
+     * so only the order where each gate has a larger key than the one
+     * before it, unless it reads that gate, is tried. A minimal network has
+     * no two gates with the same signature and no unused gate; both are
+     * cut off as early as possible.
+     */
+    private final class NetworkSearch {
+        private final int size;
+        private final long[] signatures;
+        private final int[] uses;
+        private final long[] keys;
+        private final GateType[] types;
+        private final int[][] operands;
+        private int unused = 0;
+        private Result rejected; // First network found that the test turned down
+
+        NetworkSearch(int size) {
+            this.size = size;
+            this.signatures = new long[inputCount + size];
+            this.uses = new int[inputCount + size];
+            this.keys = new long[size];
+            this.types = new GateType[size];
+            this.operands = new int[size][];
+            for (int i = 0; i < inputCount; i++) {
+                signatures[i] = inputSignature(i);
+            }
+        }
+
+        Result run() {
+            return search(0) ? network() : null;
+        }
+
+        private Result network() {
+            return new Result(inputCount, types.clone(), operands.clone(), inputCount + size - 1,
+                              signatures[inputCount + size - 1], true);
+        }
+
+        /**
+         * Offer a complete network to the caller's test
+         */
+        private boolean accepted() {
+            Result network = network();
+            if (offer(network)) {
+                return true;
+            }
+            if (rejected == null) {
+                rejected = network;
+            }
+            return false;
+        }
+
+        private boolean search(int gate) {
+            // Every gate still unused needs a pin of a later gate
+            if (unused > maxPins * (size - gate)) {
+                return false;
+            }
+            int signals = inputCount + gate;
+            for (int hi = 0; hi < signals && !exhausted; hi++) {
+                if (useNot && tryGate(gate, GateType.NOT, hi, -1, -1)) return true;
+                for (int lo = 0; lo <= hi; lo++) {
+                    for (GateType type : twoInput) {
+                        if (tryGate(gate, type, hi, lo, -1)) return true;
+                    }
+                }
+            }
+            if (useMux) {
+                for (int a = 0; a < signals && !exhausted; a++) {
+                    for (int b = 0; b < signals; b++) {
+                        for (int select = 0; select < signals && b != a; select++) {
+                            if (tryGate(gate, GateType.MUX, a, b, select)) return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean tryGate(int gate, GateType type, int a, int b, int c) {
+            if (!spend()) {
+                return false;
+            }
+            int signals = inputCount + gate;
+            int[] args = c >= 0 ? new int[] {a, b, c} : b >= 0 ? new int[] {a, b} : new int[] {a};
+            long key = gateKey(type, args);
+            if (gate > 0 && key <= keys[gate - 1] && !reads(args, signals - 1)) {
+                return false;
+            }
+
+            long signature = type.evaluate(signatures[a], b >= 0 ? signatures[b] : 0,
+                                           c >= 0 ? signatures[c] : 0) & rowMask;
+            boolean last = gate == size - 1;
+            if (last ? !matches(signature) : repeats(signature, signals)) {
+                return false;
+            }
+
+            // Use the operands
+            int freed = 0;
+            for (int p = 0; p < args.length; p++) {
+                if (args[p] >= inputCount && uses[args[p]]++ == 0) freed++;
+            }
+            unused += 1 - freed;
+            signatures[signals] = signature;
+            keys[gate] = key;
+            types[gate] = type;
+            operands[gate] = args;
+
+            boolean done = last ? unused == 1 && accepted() : search(gate + 1);
+
+            unused -= 1 - freed;
+            for (int p = 0; p < args.length; p++) {
+                if (args[p] >= inputCount) uses[args[p]]--;
+            }
+            return done;
+        }
+
+        private boolean repeats(long signature, int signals) {
+            for (int s = 0; s < signals; s++) {
+                if (signatures[s] == signature) return true;
+            }
+            return false;
+        }
+
+        private boolean reads(int[] args, int signal) {
+            for (int arg : args) {
+                if (arg == signal) return true;
+            }
+            return false;
+        }
+
+        private long gateKey(GateType type, int[] args) {
+            long key = 0;
+            for (int arg : args) {
+                key = key * (MAX_INPUTS + MAX_NETWORK_SIZE + 1) + arg + 1;
+            }
+            return key * GateType.values().length + type.ordinal();
+        }
+    }
+
+    // ===== STAGE 3: EVERYTHING THE GATES CAN MAKE =====
+
+    /**
+     * List every function the gates make from the inputs, stopping at the target
+     * @return true if the target was reached or the budget ran out first
+     */
+    private boolean closureContainsTarget() {
+        List<Long> made = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < inputCount; i++) {
+            if (seen.add(inputSignature(i))) made.add(inputSignature(i));
+        }
+
+        for (int n = 0; n < made.size(); n++) {
+            long x = made.get(n);
+            List<Long> fresh = new ArrayList<>();
+            if (useNot) fresh.add(~x);
+            for (int m = 0; m <= n; m++) {
+                long y = made.get(m);
+                for (GateType type : twoInput) {
+                    fresh.add(type.evaluate(x, y, 0));
+                }
+                if (useMux) {
+                    for (int k = 0; k <= n; k++) {
+                        long z = made.get(k);
+                        fresh.add(GateType.MUX.evaluate(x, y, z));
+                        fresh.add(GateType.MUX.evaluate(y, x, z));
+                        fresh.add(GateType.MUX.evaluate(y, z, x));
+                    }
+                }
+            }
+            for (long signature : fresh) {
+                if (!spend()) return true;
+                signature &= rowMask;
+                if (matches(signature)) return true;
+                if (seen.add(signature)) made.add(signature);
+            }
+        }
+        return false;
+    }
+}
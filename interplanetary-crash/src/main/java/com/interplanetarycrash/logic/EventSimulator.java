@@ -0,0 +1,211 @@
+package com.interplanetarycrash.logic;
+
+import java.util.Arrays;
+
+/**
+ * Event-driven simulation of a netlist, for circuits with state or feedback
+ *
+ * Every gate takes GateType.getDelay() time steps to react. When a net
+ * changes, only the gates reading it are evaluated, once per time step
+ * however many of their inputs changed, and a gate whose new output differs
+ * from the value already on its way schedules a change of its output net.
+ * Pending changes wait in a timing wheel: a ring of buckets, one per time
+ * step and longer than the largest delay, so scheduling an event and
+ * moving time forward are O(1).
+ *
+ * Values are two-state and everything starts at 0. A circuit that keeps
+ * changing (an oscillating loop) is cut off after a budget of events.
+ */
+public final class EventSimulator {
+
+    private static final int WHEEL_SIZE = 8; // Power of two above the largest delay
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int EVENTS_PER_GATE = 256;
+
+    private final Netlist netlist;
+
+    // Gates reading each net (compressed rows)
+    private final int[] consumerStart;
+    private final int[] consumers;
+
+    private final boolean[] values;
+    private final boolean[] projected; // Value once the scheduled events are done
+    private final boolean[] state;     // Stored value of sequential gates
+    private final boolean[] lastClock;
+    private final int[] evaluatedAt;   // Step a gate was last evaluated in
+
+    // Timing wheel, an event is net << 1 | value
+    private final int[][] buckets = new int[WHEEL_SIZE][];
+    private final int[] bucketSize = new int[WHEEL_SIZE];
+    private int pendingEvents;
+    private int now;
+
+    private final int[] ready;
+    private long eventCount;
+
+    public EventSimulator(Netlist netlist) {
+        this.netlist = netlist;
+        int nets = netlist.netCount;
+        int gates = netlist.types.length;
+
+        consumerStart = new int[nets + 1];
+        for (int g = 0; g < gates; g++) {
+            countConsumer(netlist.inputA[g]);
+            countConsumer(netlist.inputB[g]);
+            countConsumer(netlist.inputC[g]);
+        }
+        for (int n = 0; n < nets; n++) {
+            consumerStart[n + 1] += consumerStart[n];
+        }
+        consumers = new int[consumerStart[nets]];
+        int[] fill = Arrays.copyOf(consumerStart, nets);
+        for (int g = 0; g < gates; g++) {
+            for (int net : new int[] {netlist.inputA[g], netlist.inputB[g], netlist.inputC[g]}) {
+                if (net >= 0) consumers[fill[net]++] = g;
+            }
+        }
+
+        values = new boolean[nets];
+        projected = new boolean[nets];
+        state = new boolean[gates];
+        lastClock = new boolean[gates];
+        evaluatedAt = new int[gates];
+        ready = new int[gates];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new int[16];
+        }
+        reset();
+    }
+
+    private void countConsumer(int net) {
+        if (net >= 0) consumerStart[net + 1]++;
+    }
+
+    /**
+     * Back to time 0 with every net and stored value at 0
+     */
+    public void reset() {
+        Arrays.fill(values, false);
+        Arrays.fill(projected, false);
+        Arrays.fill(state, false);
+        Arrays.fill(lastClock, false);
+        Arrays.fill(evaluatedAt, -1);
+        Arrays.fill(bucketSize, 0);
+        pendingEvents = 0;
+        now = 0;
+        eventCount = 0;
+
+        // Gates whose output is 1 with all inputs at 0
+        for (int g = 0; g < netlist.types.length; g++) {
+            evaluate(g);
+        }
+    }
+
+    /**
+     * Drive the circuit inputs; the changes happen at the current time
+     */
+    public void setInputs(boolean[] inputs) {
+        for (int i = 0; i < netlist.inputNets.length; i++) {
+            int net = netlist.inputNets[i];
+            boolean value = i < inputs.length && inputs[i];
+            if (net >= 0 && projected[net] != value) {
+                schedule(net, value, 0);
+            }
+        }
+    }
+
+    /**
+     * Run until nothing changes any more
+     * @return false if the event budget ran out first (the circuit oscillates)
+     */
+    public boolean settle() {
+        long budget = (long) EVENTS_PER_GATE * (netlist.types.length + 1);
+        while (pendingEvents > 0 && budget > 0) {
+            budget -= step();
+        }
+        return pendingEvents == 0;
+    }
+
+    /**
+     * Apply the events of the current time step and evaluate the gates
+     * they reach
+     * @return number of events applied
+     */
+    private int step() {
+        int slot = now & WHEEL_MASK;
+        int[] bucket = buckets[slot];
+        int size = bucketSize[slot];
+        int readyCount = 0;
+
+        for (int e = 0; e < size; e++) {
+            int net = bucket[e] >>> 1;
+            boolean value = (bucket[e] & 1) != 0;
+            if (values[net] == value) continue;
+            values[net] = value;
+
+            for (int c = consumerStart[net]; c < consumerStart[net + 1]; c++) {
+                int g = consumers[c];
+                if (evaluatedAt[g] != now) {
+                    evaluatedAt[g] = now;
+                    ready[readyCount++] = g;
+                }
+            }
+        }
+        bucketSize[slot] = 0;
+        pendingEvents -= size;
+        eventCount += size;
+
+        for (int i = 0; i < readyCount; i++) {
+            evaluate(ready[i]);
+        }
+        now++;
+        return size;
+    }
+
+    private void evaluate(int g) {
+        GateType type = netlist.types[g];
+        boolean a = read(netlist.inputA[g]);
+        boolean b = read(netlist.inputB[g]);
+        boolean output;
+        if (type.isSequential()) {
+            state[g] = type.nextState(state[g], a, b, lastClock[g]);
+            lastClock[g] = b;
+            output = state[g];
+        } else {
+            output = type.evaluate(a, b, read(netlist.inputC[g]));
+        }
+
+        int net = netlist.outputs[g];
+        if (projected[net] != output) {
+            schedule(net, output, type.getDelay());
+        }
+    }
+
+    private boolean read(int net) {
+        return net >= 0 && values[net];
+    }
+
+    private void schedule(int net, boolean value, int delay) {
+        int slot = (now + delay) & WHEEL_MASK;
+        if (bucketSize[slot] == buckets[slot].length) {
+            buckets[slot] = Arrays.copyOf(buckets[slot], bucketSize[slot] * 2);
+        }
+        buckets[slot][bucketSize[slot]++] = net << 1 | (value ? 1 : 0);
+        projected[net] = value;
+        pendingEvents++;
+    }
+
+    // ===== QUERIES =====
+
+    public boolean getOutput() {
+        return netlist.outputNet >= 0 && values[netlist.outputNet];
+    }
+
+    /**
+     * Current value of a net
+     */
+    public boolean getValue(int net) { return values[net]; }
+
+    public int getTime() { return now; }
+    public long getEventCount() { return eventCount; }
+}
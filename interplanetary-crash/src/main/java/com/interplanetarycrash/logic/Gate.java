@@ -0,0 +1,56 @@
+package com.interplanetarycrash.logic;
+
+/**
+ * Gate placed on a circuit grid
+ *
+ * A gate covers the 3x3 cells around its center. Input pins are on the
+ * left column (middle for single input gates, otherwise pin 0 at the
+ * bottom, pin 1 at the top and a third pin in the middle) and the output
+ * is the middle of the right column.
+ */
+public final class Gate {
+
+    private final GateType type;
+    private final int centerX, centerY;
+
+    public Gate(GateType type, int centerX, int centerY) {
+        this.type = type;
+        this.centerX = centerX;
+        this.centerY = centerY;
+    }
+
+    public int getPinCount() {
+        return type.getInputCount();
+    }
+
+    public int getPinX(int pin) { return centerX - 1; }
+
+    public int getPinY(int pin) {
+        if (type.isSingleInput() || pin == 2) {
+            return centerY;
+        }
+        return pin == 0 ? centerY + 1 : centerY - 1;
+    }
+
+    /**
+     * Index of the pin at a cell, or -1
+     */
+    public int pinAt(int x, int y) {
+        for (int p = 0; p < getPinCount(); p++) {
+            if (x == getPinX(p) && y == getPinY(p)) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    public boolean covers(int x, int y) {
+        return Math.abs(x - centerX) <= 1 && Math.abs(y - centerY) <= 1;
+    }
+
+    public GateType getType() { return type; }
+    public int getCenterX() { return centerX; }
+    public int getCenterY() { return centerY; }
+    public int getOutputX() { return centerX + 1; }
+    public int getOutputY() { return centerY; }
+}
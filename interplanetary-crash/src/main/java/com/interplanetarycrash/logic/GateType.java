@@ -0,0 +1,101 @@
+package com.interplanetarycrash.logic;
+
+/**
+ * Logic gate types
+ *
+ * Combinational gates evaluate single values and, bit-parallel, 64
+ * truth-table rows packed into a long (one row per bit lane). Pins are
+ * passed in order (a, b, c); pins a gate does not have are ignored.
+ *
+ * LATCH and DFF hold a stored value instead: a D-latch follows D while EN
+ * is high, a D flip-flop takes D on the rising edge of CLK. They only run
+ * in the event-driven simulation.
+ *
+ * The delay is in simulation time steps, roughly the depth of the gate in
+ * transistors, so inverting gates are the fastest.
+ */
+public enum GateType {
+    NOT(1, "A") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return !a; }
+        public long evaluate(long a, long b, long c) { return ~a; }
+    },
+    AND(2, "A", "B") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return a && b; }
+        public long evaluate(long a, long b, long c) { return a & b; }
+    },
+    OR(2, "A", "B") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return a || b; }
+        public long evaluate(long a, long b, long c) { return a | b; }
+    },
+    NAND(1, "A", "B") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return !(a && b); }
+        public long evaluate(long a, long b, long c) { return ~(a & b); }
+    },
+    NOR(1, "A", "B") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return !(a || b); }
+        public long evaluate(long a, long b, long c) { return ~(a | b); }
+    },
+    XOR(2, "A", "B") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return a != b; }
+        public long evaluate(long a, long b, long c) { return a ^ b; }
+    },
+    XNOR(2, "A", "B") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return a == b; }
+        public long evaluate(long a, long b, long c) { return ~(a ^ b); }
+    },
+    /** Y = S ? B : A */
+    MUX(2, "A", "B", "S") {
+        public boolean evaluate(boolean a, boolean b, boolean c) { return c ? b : a; }
+        public long evaluate(long a, long b, long c) { return (a & ~c) | (b & c); }
+    },
+    /** D-latch: transparent while EN is high */
+    LATCH(2, "D", "EN") {
+        public boolean nextState(boolean state, boolean d, boolean clock, boolean lastClock) {
+            return clock ? d : state;
+        }
+    },
+    /** D flip-flop: samples D on the rising edge of CLK */
+    DFF(2, "D", "CLK") {
+        public boolean nextState(boolean state, boolean d, boolean clock, boolean lastClock) {
+            return clock && !lastClock ? d : state;
+        }
+    };
+
+    private final int delay;
+    private final String[] pinNames;
+
+    GateType(int delay, String... pinNames) {
+        this.delay = delay;
+        this.pinNames = pinNames;
+    }
+
+    /**
+     * Output of a combinational gate
+     */
+    public boolean evaluate(boolean a, boolean b, boolean c) {
+        throw new UnsupportedOperationException(this + " is sequential");
+    }
+
+    /**
+     * Output of a combinational gate for 64 rows at once
+     */
+    public long evaluate(long a, long b, long c) {
+        throw new UnsupportedOperationException(this + " is sequential");
+    }
+
+    /**
+     * New stored value of a sequential gate
+     * @param d data input (pin 0)
+     * @param clock enable or clock input (pin 1) now
+     * @param lastClock the same input when the gate was last evaluated
+     */
+    public boolean nextState(boolean state, boolean d, boolean clock, boolean lastClock) {
+        throw new UnsupportedOperationException(this + " is combinational");
+    }
+
+    public boolean isSequential() { return this == LATCH || this == DFF; }
+    public boolean isSingleInput() { return pinNames.length == 1; }
+    public int getInputCount() { return pinNames.length; }
+    public String getPinName(int pin) { return pinNames[pin]; }
+    public int getDelay() { return delay; }
+}
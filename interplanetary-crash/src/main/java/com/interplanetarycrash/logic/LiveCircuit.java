@@ -0,0 +1,390 @@
+package com.interplanetarycrash.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Signal values of a circuit grid, kept up to date while it is edited
+ *
+ * Listens to cell changes and, on update(), rebuilds only the nets around
+ * the changed cells (flood fill from the changed cells and their
+ * neighbours) and re-evaluates the gates reading or driving those nets,
+ * then the gates downstream of any net whose value changed. The cost of
+ * an edit follows the size of the affected nets and the cone of logic
+ * after them, not the size of the grid.
+ *
+ * Values follow the checker: a gate with an unconnected or valueless input
+ * has no value, and a net with two drivers is a conflict. Latches and
+ * flip-flops keep their stored value between updates, starting at 0, so
+ * stepping through the inputs of a sequence clocks them as it would in
+ * the checker.
+ */
+public final class LiveCircuit {
+
+    public static final int LOW = 0;
+    public static final int HIGH = 1;
+    public static final int UNKNOWN = 2;
+    public static final int CONFLICT = 3;
+
+    private final CircuitGrid grid;
+    private final int width;
+
+    private final Map<Integer, Net> cellNets = new HashMap<>();
+    private final Map<Gate, GateState> gates = new IdentityHashMap<>();
+    private final Set<Integer> pending = new LinkedHashSet<>();
+
+    private boolean[] inputs = new boolean[0];
+
+    // Scratch for an update
+    private final ArrayDeque<Gate> queue = new ArrayDeque<>();
+    private final Set<Gate> touched = new LinkedHashSet<>();
+    private int[] flood = new int[64];
+    private int floodEnd;
+    private int updateNumber = 0;
+
+    private boolean stable = true;
+    private long lastUpdateNanos = 0;
+    private long version = 0;
+
+    public LiveCircuit(CircuitGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        grid.addListener((x, y) -> pending.add(grid.cellId(x, y)));
+
+        // Build everything once
+        grid.forEachOccupied((x, y) -> {
+            if (grid.carriesSignal(x, y)) {
+                pending.add(grid.cellId(x, y));
+            }
+        });
+        update();
+    }
+
+    // ===== QUERIES =====
+
+    /**
+     * Signal at a cell: LOW, HIGH, UNKNOWN or CONFLICT
+     * (UNKNOWN for cells that carry no signal)
+     */
+    public int getSignal(int x, int y) {
+        Net net = cellNets.get(grid.cellId(x, y));
+        if (net == null) return UNKNOWN;
+        return net.drivers > 1 ? CONFLICT : net.value;
+    }
+
+    /**
+     * Value at the circuit output
+     */
+    public int getOutputSignal() {
+        int cell = grid.getOutputCell();
+        return cell < 0 ? UNKNOWN : getSignal(cell % width, cell / width);
+    }
+
+    /**
+     * False if the last update stopped on a feedback loop that did not settle
+     */
+    public boolean isStable() { return stable; }
+
+    public long getLastUpdateNanos() { return lastUpdateNanos; }
+
+    /**
+     * Counter that moves whenever a signal may have changed
+     */
+    public long getVersion() { return version; }
+
+    // ===== INPUTS =====
+
+    /**
+     * Set the circuit inputs and propagate the change
+     */
+    public void setInputs(boolean[] values) {
+        boolean[] previous = inputs;
+        inputs = values.clone();
+
+        for (int i = 0; i < grid.getInputCount(); i++) {
+            boolean before = i < previous.length && previous[i];
+            if (before == inputValue(i)) continue;
+
+            int cell = grid.getInputCell(i);
+            Net net = cell < 0 ? null : cellNets.get(cell);
+            if (net != null && net.drivers == 1) {
+                setNetValue(net, inputValue(i) ? HIGH : LOW);
+            }
+        }
+        propagate();
+    }
+
+    private boolean inputValue(int index) {
+        return index < inputs.length && inputs[index];
+    }
+
+    // ===== INCREMENTAL UPDATE =====
+
+    /**
+     * Apply the cell changes since the last call
+     */
+    public void update() {
+        if (pending.isEmpty()) return;
+        long start = System.nanoTime();
+        updateNumber++;
+
+        // Changed cells and their neighbours: every net that was split,
+        // merged or rewired touches one of them
+        List<Integer> seeds = new ArrayList<>();
+        for (int cell : pending) {
+            int x = cell % width;
+            int y = cell / width;
+            addSeed(seeds, x, y);
+            addSeed(seeds, x - 1, y);
+            addSeed(seeds, x + 1, y);
+            addSeed(seeds, x, y - 1);
+            addSeed(seeds, x, y + 1);
+        }
+
+        // Retire the old nets there
+        for (int cell : seeds) {
+            Net net = cellNets.get(cell);
+            if (net == null || net.retired) continue;
+            net.retired = true;
+            touched.addAll(net.consumers);
+            if (net.gateDriver != null) touched.add(net.gateDriver);
+        }
+        for (int cell : pending) {
+            if (!grid.carriesSignal(cell % width, cell / width)) {
+                cellNets.remove(cell);
+            }
+        }
+        // Gates placed since the last update
+        for (int cell : pending) {
+            Gate gate = grid.getGate(cell % width, cell / width);
+            if (gate != null && !gates.containsKey(gate)) touched.add(gate);
+        }
+
+        // Rebuild them (the flood reaches every cell of a retired net
+        // that still carries a signal)
+        for (int cell : seeds) {
+            if (!isReached(cell) && grid.carriesSignal(cell % width, cell / width)) {
+                fill(cell);
+            }
+        }
+
+        for (Gate gate : touched) {
+            rebind(gate);
+        }
+        for (Gate gate : touched) {
+            enqueue(gate);
+        }
+        propagate();
+
+        pending.clear();
+        touched.clear();
+        lastUpdateNanos = System.nanoTime() - start;
+        version++;
+    }
+
+    private void addSeed(List<Integer> seeds, int x, int y) {
+        if (!grid.contains(x, y)) return;
+        seeds.add(grid.cellId(x, y));
+
+        // A pin joins the cells around it, so a change next to a pin can
+        // split or merge the net on its other sides
+        Gate gate = grid.getGate(x, y);
+        int pin = gate == null ? -1 : gate.pinAt(x, y);
+        if (pin >= 0) {
+            for (int cell : grid.pinNeighbours(gate, pin)) {
+                seeds.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Flood a new net from a cell, collecting its drivers and consumers
+     */
+    private void fill(int start) {
+        Net net = new Net(updateNumber);
+        floodEnd = 0;
+        reach(net, start);
+
+        for (int head = 0; head < floodEnd; head++) {
+            int cell = flood[head];
+            int x = cell % width;
+            int y = cell / width;
+
+            CellType type = grid.getType(x, y);
+            if (type == CellType.INPUT) {
+                net.drivers++;
+                net.value = inputValue(grid.getInputIndex(x, y)) ? HIGH : LOW;
+            } else if (type == CellType.GATE) {
+                net.drivers++;
+                net.gateDriver = grid.getGate(x, y);
+                touched.add(net.gateDriver);
+            }
+
+            visitNeighbour(net, x, y, x - 1, y);
+            visitNeighbour(net, x, y, x + 1, y);
+            visitNeighbour(net, x, y, x, y - 1);
+            visitNeighbour(net, x, y, x, y + 1);
+        }
+        if (net.drivers != 1) {
+            net.value = UNKNOWN;
+        }
+    }
+
+    private void visitNeighbour(Net net, int x, int y, int nx, int ny) {
+        if (!grid.contains(nx, ny)) return;
+
+        if (grid.joins(x, y, nx, ny)) {
+            reach(net, grid.cellId(nx, ny));
+            return;
+        }
+
+        // A gate pin reads this net and joins every cell it touches
+        Gate gate = grid.getGate(nx, ny);
+        if (gate == null || gate.covers(x, y)) return;
+        int pin = gate.pinAt(nx, ny);
+        if (pin < 0) return;
+
+        if (!net.consumers.contains(gate)) {
+            net.consumers.add(gate);
+            touched.add(gate);
+        }
+        for (int cell : grid.pinNeighbours(gate, pin)) {
+            reach(net, cell);
+        }
+    }
+
+    /**
+     * True if the cell already belongs to a net built in this update
+     */
+    private boolean isReached(int cell) {
+        Net net = cellNets.get(cell);
+        return net != null && net.built == updateNumber;
+    }
+
+    private void reach(Net net, int cell) {
+        Net old = cellNets.put(cell, net);
+        if (old != null && old.built == updateNumber) return;
+        if (floodEnd == flood.length) {
+            flood = Arrays.copyOf(flood, floodEnd * 2);
+        }
+        flood[floodEnd++] = cell;
+    }
+
+    /**
+     * Point a gate at its current nets (or forget it if it was removed)
+     */
+    private void rebind(Gate gate) {
+        if (grid.getGate(gate.getCenterX(), gate.getCenterY()) != gate) {
+            gates.remove(gate);
+            return;
+        }
+
+        GateState state = gates.computeIfAbsent(gate, g -> new GateState(g.getPinCount()));
+        for (int p = 0; p < state.pins.length; p++) {
+            int[] touching = grid.pinNeighbours(gate, p);
+            state.pins[p] = touching.length > 0 ? cellNets.get(touching[0]) : null;
+        }
+        state.output = cellNets.get(grid.cellId(gate.getOutputX(), gate.getOutputY()));
+    }
+
+    // ===== EVALUATION =====
+
+    private void enqueue(Gate gate) {
+        GateState state = gates.get(gate);
+        if (state != null && !state.queued) {
+            state.queued = true;
+            queue.add(gate);
+        }
+    }
+
+    private void setNetValue(Net net, int value) {
+        if (net.value == value) return;
+        net.value = value;
+        version++;
+        for (Gate consumer : net.consumers) {
+            enqueue(consumer);
+        }
+    }
+
+    /**
+     * Evaluate queued gates until nothing changes; a feedback loop that
+     * keeps toggling is cut off after a bounded amount of work
+     */
+    private void propagate() {
+        int budget = 64 * (gates.size() + 1);
+        while (!queue.isEmpty() && budget-- > 0) {
+            Gate gate = queue.poll();
+            GateState state = gates.get(gate);
+            if (state == null) continue;
+            state.queued = false;
+
+            int value = evaluate(gate.getType(), state);
+            Net net = state.output;
+            if (net != null && net.drivers == 1) {
+                setNetValue(net, value);
+            }
+        }
+
+        stable = queue.isEmpty();
+        for (Gate gate : queue) {
+            gates.get(gate).queued = false;
+        }
+        queue.clear();
+    }
+
+    private static int evaluate(GateType type, GateState state) {
+        boolean a = false;
+        boolean b = false;
+        boolean c = false;
+        for (int p = 0; p < state.pins.length; p++) {
+            Net net = state.pins[p];
+            if (net == null || net.drivers != 1 || net.value == UNKNOWN) {
+                // A stored value survives an unknown input
+                return type.isSequential() ? (state.stored ? HIGH : LOW) : UNKNOWN;
+            }
+            boolean high = net.value == HIGH;
+            if (p == 0) a = high;
+            else if (p == 1) b = high;
+            else c = high;
+        }
+
+        if (type.isSequential()) {
+            state.stored = type.nextState(state.stored, a, b, state.lastClock);
+            state.lastClock = b;
+            return state.stored ? HIGH : LOW;
+        }
+        return type.evaluate(a, b, c) ? HIGH : LOW;
+    }
+
+    private static final class Net {
+        final int built; // Update that created it
+        int drivers = 0;
+        Gate gateDriver;
+        int value = UNKNOWN;
+        boolean retired = false;
+        final List<Gate> consumers = new ArrayList<>(2);
+
+        Net(int built) {
+            this.built = built;
+        }
+    }
+
+    private static final class GateState {
+        final Net[] pins;
+        Net output;
+        boolean queued = false;
+        boolean stored = false;    // Sequential gates
+        boolean lastClock = false;
+
+        GateState(int pinCount) {
+            this.pins = new Net[pinCount];
+        }
+    }
+}
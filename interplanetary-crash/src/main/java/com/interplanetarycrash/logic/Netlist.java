@@ -0,0 +1,136 @@
+package com.interplanetarycrash.logic;
+
+/**
+ * Compiled circuit: nets and the gates between them
+ *
+ * Built by NetlistCompiler. Every gate reads its input nets and writes its
+ * output net. A combinational circuit has its gates stored in topological
+ * order, so one pass over the gate arrays evaluates the whole circuit for a
+ * set of inputs. A circuit with feedback loops or sequential gates is run
+ * by an EventSimulator instead.
+ * Gates with an input nothing drives (directly or through other gates) are
+ * left out; a net nobody drives reads as 0.
+ */
+public final class Netlist {
+
+    // Read by EventSimulator
+    final int netCount;
+    final int[] inputNets;  // Per input index, -1 = not on the grid
+    final int outputNet;    // -1 = output has no value
+    final GateType[] types; // Evaluation order if combinational
+    final int[] inputA;
+    final int[] inputB;     // -1 if the gate has no such pin
+    final int[] inputC;
+    final int[] outputs;
+
+    private final boolean combinational;
+    private final String problem;
+
+    // Net values of the last evaluation
+    private final boolean[] values;
+    private final long[] lanes;
+
+    Netlist(int netCount, int[] inputNets, int outputNet,
+            GateType[] types, int[] inputA, int[] inputB, int[] inputC, int[] outputs,
+            boolean combinational, String problem) {
+        this.netCount = netCount;
+        this.inputNets = inputNets;
+        this.outputNet = outputNet;
+        this.types = types;
+        this.inputA = inputA;
+        this.inputB = inputB;
+        this.inputC = inputC;
+        this.outputs = outputs;
+        this.combinational = combinational;
+        this.problem = problem;
+        this.values = new boolean[netCount];
+        this.lanes = new long[netCount];
+    }
+
+    /**
+     * Evaluate a combinational circuit for one input combination
+     * @param inputs value per input index
+     * @return output value (false if the circuit is invalid)
+     */
+    public boolean evaluate(boolean[] inputs) {
+        if (problem != null) {
+            return false;
+        }
+        requireCombinational();
+
+        for (int i = 0; i < inputNets.length; i++) {
+            if (inputNets[i] >= 0) {
+                values[inputNets[i]] = i < inputs.length && inputs[i];
+            }
+        }
+
+        for (int g = 0; g < types.length; g++) {
+            boolean a = values[inputA[g]];
+            boolean b = inputB[g] >= 0 && values[inputB[g]];
+            boolean c = inputC[g] >= 0 && values[inputC[g]];
+            values[outputs[g]] = types[g].evaluate(a, b, c);
+        }
+
+        return outputNet >= 0 && values[outputNet];
+    }
+
+    /**
+     * Evaluate a combinational circuit for every input combination at once
+     *
+     * Works one word of 64 rows at a time, so the scratch space is one long
+     * per net whatever the number of inputs.
+     * @param inputCount number of inputs of the truth table
+     * @return output column in BitSlice layout (all 0 if the circuit is invalid)
+     */
+    public long[] evaluateAll(int inputCount) {
+        int words = BitSlice.wordCount(inputCount);
+        long[] column = new long[words];
+        if (problem != null || outputNet < 0) {
+            return column;
+        }
+        requireCombinational();
+
+        for (int w = 0; w < words; w++) {
+            for (int i = 0; i < inputNets.length; i++) {
+                if (inputNets[i] >= 0) {
+                    lanes[inputNets[i]] = i < inputCount ? BitSlice.inputWord(i, inputCount, w) : 0;
+                }
+            }
+
+            for (int g = 0; g < types.length; g++) {
+                long b = inputB[g] >= 0 ? lanes[inputB[g]] : 0;
+                long c = inputC[g] >= 0 ? lanes[inputC[g]] : 0;
+                lanes[outputs[g]] = types[g].evaluate(lanes[inputA[g]], b, c);
+            }
+
+            column[w] = lanes[outputNet];
+        }
+        column[words - 1] &= BitSlice.lastWordMask(inputCount);
+        return column;
+    }
+
+    private void requireCombinational() {
+        if (!combinational) {
+            throw new IllegalStateException("Circuit has state, use an EventSimulator");
+        }
+    }
+
+    /**
+     * True if the circuit can be simulated (no short circuit)
+     */
+    public boolean isValid() { return problem == null; }
+
+    /**
+     * True if the output depends only on the current inputs: no feedback
+     * loops and no sequential gates
+     */
+    public boolean isCombinational() { return combinational; }
+
+    /**
+     * Description of why the circuit is invalid, or null
+     */
+    public String getProblem() { return problem; }
+
+    public int getNetCount() { return netCount; }
+    public int getGateCount() { return types.length; }
+}
@@ -0,0 +1,342 @@
+package com.interplanetarycrash.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles conducting cells and gate pins into a Netlist
+ *
+ * Cells are numbered 0..cellCount-1 by the caller. Connected conducting
+ * cells are merged into nets with a union-find (path halving, union by
+ * size), each gate pin is bound to the net it touches, and gates reading
+ * a net nothing drives are dropped. A net with two drivers is a short
+ * circuit and makes the netlist invalid. The remaining gates are sorted
+ * topologically (Kahn's algorithm); if that leaves a feedback loop, or a
+ * gate is sequential, the netlist is marked as not combinational and is
+ * left to the event-driven simulation.
+ */
+public final class NetlistCompiler {
+
+    private static final int NO_DRIVER = -1;
+    private static final int INPUT_DRIVER = -2;
+
+    // Union-find over cells, parent -1 = not a conductor
+    private final int[] parent;
+    private final int[] size;
+
+    private final List<Integer> inputCells = new ArrayList<>();
+    private int outputCell = -1;
+
+    private final List<GateType> gateTypes = new ArrayList<>();
+    private final List<int[]> gatePins = new ArrayList<>(); // One cell per pin, -1 = unconnected
+    private final List<Integer> gateOutputs = new ArrayList<>();
+
+    public NetlistCompiler(int cellCount) {
+        this.parent = new int[cellCount];
+        this.size = new int[cellCount];
+        Arrays.fill(parent, -1);
+    }
+
+    /**
+     * Compile the circuit on a grid
+     *
+     * Only signal carrying cells get a union-find slot, so the work and
+     * memory follow the size of the circuit, not of the grid.
+     */
+    public static Netlist compile(CircuitGrid grid) {
+        Map<Integer, Integer> slots = new HashMap<>();
+        List<int[]> cells = new ArrayList<>();
+        grid.forEachOccupied((x, y) -> {
+            if (grid.carriesSignal(x, y)) {
+                slots.put(grid.cellId(x, y), cells.size());
+                cells.add(new int[] {x, y});
+            }
+        });
+
+        NetlistCompiler compiler = new NetlistCompiler(cells.size());
+        for (int[] cell : cells) {
+            int x = cell[0];
+            int y = cell[1];
+            int slot = slots.get(grid.cellId(x, y));
+            compiler.addConductor(slot);
+            if (x + 1 < grid.getWidth() && grid.joins(x, y, x + 1, y)) {
+                compiler.connect(slot, slots.get(grid.cellId(x + 1, y)));
+            }
+            if (y + 1 < grid.getHeight() && grid.joins(x, y, x, y + 1)) {
+                compiler.connect(slot, slots.get(grid.cellId(x, y + 1)));
+            }
+        }
+
+        for (int i = 0; i < grid.getInputCount(); i++) {
+            if (grid.getInputCell(i) >= 0) {
+                compiler.addInput(i, slots.get(grid.getInputCell(i)));
+            }
+        }
+        if (grid.getOutputCell() >= 0) {
+            compiler.setOutput(slots.get(grid.getOutputCell()));
+        }
+
+        for (Gate gate : grid.getGates()) {
+            int[][] pins = new int[gate.getPinCount()][];
+            for (int p = 0; p < pins.length; p++) {
+                pins[p] = grid.pinNeighbours(gate, p);
+                for (int i = 0; i < pins[p].length; i++) {
+                    pins[p][i] = slots.get(pins[p][i]);
+                }
+            }
+            compiler.addGate(gate.getType(), pins,
+                             slots.get(grid.cellId(gate.getOutputX(), gate.getOutputY())));
+        }
+
+        return compiler.compile();
+    }
+
+    // ===== BUILDING =====
+
+    /**
+     * Mark a cell as carrying a signal
+     */
+    public void addConductor(int cell) {
+        if (parent[cell] < 0) {
+            parent[cell] = cell;
+            size[cell] = 1;
+        }
+    }
+
+    /**
+     * Join two conducting cells into the same net
+     */
+    public void connect(int a, int b) {
+        addConductor(a);
+        addConductor(b);
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) return;
+
+        if (size[rootA] < size[rootB]) {
+            int t = rootA;
+            rootA = rootB;
+            rootB = t;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+    }
+
+    /**
+     * Circuit input, drives the net of its cell
+     */
+    public void addInput(int index, int cell) {
+        addConductor(cell);
+        while (inputCells.size() <= index) {
+            inputCells.add(-1);
+        }
+        inputCells.set(index, cell);
+    }
+
+    /**
+     * Circuit output, read from the net of its cell
+     */
+    public void setOutput(int cell) {
+        addConductor(cell);
+        outputCell = cell;
+    }
+
+    /**
+     * Add a gate
+     * @param pinCells for each input pin, the conducting cells it touches
+     *                 (several cells are joined into one net)
+     * @param outputCell cell the gate drives
+     */
+    public void addGate(GateType type, int[][] pinCells, int outputCell) {
+        int[] pins = new int[pinCells.length];
+        for (int p = 0; p < pinCells.length; p++) {
+            int[] touching = pinCells[p];
+            pins[p] = touching.length > 0 ? touching[0] : -1;
+            for (int i = 1; i < touching.length; i++) {
+                connect(touching[0], touching[i]);
+            }
+        }
+
+        addConductor(outputCell);
+        gateTypes.add(type);
+        gatePins.add(pins);
+        gateOutputs.add(outputCell);
+    }
+
+    private int find(int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    // ===== COMPILING =====
+
+    public Netlist compile() {
+        // Dense net numbers for the union-find roots
+        int[] netOfCell = new int[parent.length];
+        int[] netOfRoot = new int[parent.length];
+        Arrays.fill(netOfRoot, -1);
+        int netCount = 0;
+        for (int cell = 0; cell < parent.length; cell++) {
+            if (parent[cell] < 0) {
+                netOfCell[cell] = -1;
+                continue;
+            }
+            int root = find(cell);
+            if (netOfRoot[root] < 0) {
+                netOfRoot[root] = netCount++;
+            }
+            netOfCell[cell] = netOfRoot[root];
+        }
+
+        int gateCount = gateTypes.size();
+        int[] inputNets = new int[inputCells.size()];
+        int[] outNet = new int[gateCount];
+        int[][] pinNets = new int[gateCount][];
+
+        // Drivers: at most one per net
+        int[] driver = new int[netCount];
+        Arrays.fill(driver, NO_DRIVER);
+        String problem = null;
+
+        for (int i = 0; i < inputNets.length; i++) {
+            int cell = inputCells.get(i);
+            inputNets[i] = cell >= 0 ? netOfCell[cell] : -1;
+            if (inputNets[i] < 0) continue;
+            if (driver[inputNets[i]] != NO_DRIVER) {
+                problem = "Short circuit: two signals drive the same wire";
+            }
+            driver[inputNets[i]] = INPUT_DRIVER;
+        }
+
+        for (int g = 0; g < gateCount; g++) {
+            outNet[g] = netOfCell[gateOutputs.get(g)];
+            if (driver[outNet[g]] != NO_DRIVER) {
+                problem = "Short circuit: two signals drive the same wire";
+            }
+            driver[outNet[g]] = g;
+
+            int[] pins = gatePins.get(g);
+            pinNets[g] = new int[pins.length];
+            for (int p = 0; p < pins.length; p++) {
+                pinNets[g][p] = pins[p] >= 0 ? netOfCell[pins[p]] : -1;
+            }
+        }
+
+        if (problem != null) {
+            return invalid(netCount, inputNets, problem);
+        }
+
+        // Consumers of each net (compressed rows)
+        int[] consumerStart = new int[netCount + 1];
+        for (int g = 0; g < gateCount; g++) {
+            for (int net : pinNets[g]) {
+                if (net >= 0) consumerStart[net + 1]++;
+            }
+        }
+        for (int n = 0; n < netCount; n++) {
+            consumerStart[n + 1] += consumerStart[n];
+        }
+        int[] consumers = new int[consumerStart[netCount]];
+        int[] fill = Arrays.copyOf(consumerStart, netCount);
+        for (int g = 0; g < gateCount; g++) {
+            for (int net : pinNets[g]) {
+                if (net >= 0) consumers[fill[net]++] = g;
+            }
+        }
+
+        // Drop gates with an undriven input; their outputs become undriven
+        // in turn, so follow them downstream
+        boolean[] dropped = new boolean[gateCount];
+        int[] work = new int[gateCount];
+        int top = 0;
+        for (int g = 0; g < gateCount; g++) {
+            for (int net : pinNets[g]) {
+                if (net < 0 || driver[net] == NO_DRIVER) {
+                    dropped[g] = true;
+                }
+            }
+            if (dropped[g]) work[top++] = g;
+        }
+        while (top > 0) {
+            int net = outNet[work[--top]];
+            driver[net] = NO_DRIVER;
+            for (int c = consumerStart[net]; c < consumerStart[net + 1]; c++) {
+                if (!dropped[consumers[c]]) {
+                    dropped[consumers[c]] = true;
+                    work[top++] = consumers[c];
+                }
+            }
+        }
+
+        // Topological order of the rest
+        int[] indegree = new int[gateCount];
+        int kept = 0;
+        boolean sequential = false;
+        for (int g = 0; g < gateCount; g++) {
+            if (dropped[g]) continue;
+            kept++;
+            sequential |= gateTypes.get(g).isSequential();
+            for (int net : pinNets[g]) {
+                if (driver[net] >= 0) indegree[g]++;
+            }
+        }
+
+        int[] order = new int[gateCount];
+        int head = 0, tail = 0;
+        for (int g = 0; g < gateCount; g++) {
+            if (!dropped[g] && indegree[g] == 0) order[tail++] = g;
+        }
+        while (head < tail) {
+            int g = order[head++];
+            int net = outNet[g];
+            for (int c = consumerStart[net]; c < consumerStart[net + 1]; c++) {
+                if (!dropped[consumers[c]] && --indegree[consumers[c]] == 0) {
+                    order[tail++] = consumers[c];
+                }
+            }
+        }
+
+        // A loop leaves gates unsorted; they follow in grid order
+        boolean combinational = tail == kept && !sequential;
+        if (tail < kept) {
+            for (int g = 0; g < gateCount; g++) {
+                if (!dropped[g] && indegree[g] > 0) order[tail++] = g;
+            }
+        }
+
+        GateType[] types = new GateType[kept];
+        int[] inputA = new int[kept];
+        int[] inputB = new int[kept];
+        int[] inputC = new int[kept];
+        int[] outputs = new int[kept];
+        for (int i = 0; i < kept; i++) {
+            int g = order[i];
+            types[i] = gateTypes.get(g);
+            inputA[i] = pinNets[g][0];
+            inputB[i] = pinNets[g].length > 1 ? pinNets[g][1] : -1;
+            inputC[i] = pinNets[g].length > 2 ? pinNets[g][2] : -1;
+            outputs[i] = outNet[g];
+        }
+
+        int outputNet = outputCell >= 0 ? netOfCell[outputCell] : -1;
+        if (outputNet >= 0 && driver[outputNet] == NO_DRIVER) {
+            outputNet = -1;
+        }
+
+        return new Netlist(netCount, inputNets, outputNet,
+                           types, inputA, inputB, inputC, outputs,
+                           combinational, null);
+    }
+
+    private static Netlist invalid(int netCount, int[] inputNets, String problem) {
+        return new Netlist(netCount, inputNets, -1,
+                           new GateType[0], new int[0], new int[0], new int[0], new int[0],
+                           true, problem);
+    }
+}
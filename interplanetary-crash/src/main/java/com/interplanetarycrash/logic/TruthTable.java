@@ -0,0 +1,215 @@
+package com.interplanetarycrash.logic;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Expected outputs of a combinational task, packed in BitSlice layout
+ *
+ * Two bit columns of 2^n bits: the output of every row, and which rows are
+ * tested (rows not listed, or listed with output x, may be anything). A
+ * 24-input table takes 4 MB instead of millions of row objects. The
+ * tested rows are numbered in row order for display (testedRow(k)), using
+ * a running count per word so finding one is a binary search.
+ */
+public final class TruthTable {
+
+    // [NAME[(inputs)] =] [Σ|sum] m(1, 3, 5) [+ d(2, 4)]
+    private static final Pattern MINTERMS = Pattern.compile(
+        "(?i)(?:Σ|sum)?\\s*m\\s*\\(([\\d\\s,]*)\\)(?:\\s*\\+\\s*d\\s*\\(([\\d\\s,]*)\\))?");
+
+    private final int inputCount;
+    private final long[] outputs;
+    private final long[] tested;
+    private final int[] testedBefore; // Per word, tested rows in the words before it
+    private final int testedCount;
+
+    private TruthTable(int inputCount, long[] outputs, long[] tested) {
+        this.inputCount = inputCount;
+        this.outputs = outputs;
+        this.tested = tested;
+        this.testedBefore = new int[tested.length];
+        int count = 0;
+        for (int w = 0; w < tested.length; w++) {
+            outputs[w] &= tested[w];
+            testedBefore[w] = count;
+            count += Long.bitCount(tested[w]);
+        }
+        this.testedCount = count;
+    }
+
+    /**
+     * Table of every row, from an output column in BitSlice layout
+     */
+    public static TruthTable fromColumn(int inputCount, long[] column) {
+        int words = BitSlice.wordCount(inputCount);
+        if (column.length != words) {
+            throw new IllegalArgumentException("Column of " + column.length + " words, expected " + words);
+        }
+        long[] tested = new long[words];
+        Arrays.fill(tested, -1L);
+        tested[words - 1] = BitSlice.lastWordMask(inputCount);
+        return new TruthTable(inputCount, column.clone(), tested);
+    }
+
+    /**
+     * Table of the listed rows: input values followed by the output
+     * @throws IllegalArgumentException if a row's length differs from the
+     *         first row's
+     */
+    public static TruthTable fromRows(List<boolean[]> rows) {
+        if (rows.isEmpty() || rows.get(0).length < 2) {
+            throw new IllegalArgumentException("Truth table needs rows of inputs and an output");
+        }
+        int inputCount = rows.get(0).length - 1;
+        int words = BitSlice.wordCount(inputCount);
+        long[] outputs = new long[words];
+        long[] tested = new long[words];
+        for (int r = 0; r < rows.size(); r++) {
+            boolean[] row = rows.get(r);
+            if (row.length != inputCount + 1) {
+                throw new IllegalArgumentException("Truth table row " + (r + 1) + " has " + row.length
+                                                   + " columns, expected " + (inputCount + 1));
+            }
+            int index = BitSlice.rowIndex(row, inputCount);
+            BitSlice.set(outputs, index, row[inputCount]);
+            BitSlice.set(tested, index, true);
+        }
+        return new TruthTable(inputCount, outputs, tested);
+    }
+
+    /**
+     * True if a line is a minterm list rather than a formula
+     */
+    public static boolean isMinterms(String text) {
+        return MINTERMS.matcher(text.substring(text.indexOf('=') + 1).trim()).matches();
+    }
+
+    /**
+     * Parse "F(A,B,C) = Σm(1,3,5) + d(2)": rows 1, 3 and 5 are 1, row 2 is
+     * not tested, the others are 0. Row numbers read the inputs as a binary
+     * number, first input most significant. Without declared inputs the
+     * table has as many as the largest row number needs.
+     * @throws IllegalArgumentException for bad syntax or row numbers
+     */
+    public static TruthTable parseMinterms(String text) {
+        int equals = text.indexOf('=');
+        Matcher matcher = MINTERMS.matcher(text.substring(equals + 1).trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Expected a minterm list like Σm(1,3,5): " + text);
+        }
+        int[] ones = parseRowNumbers(matcher.group(1));
+        int[] dontCares = matcher.group(2) == null ? new int[0] : parseRowNumbers(matcher.group(2));
+
+        int inputCount = 1;
+        String head = equals < 0 ? "" : text.substring(0, equals);
+        int open = head.indexOf('(');
+        if (open >= 0 && head.indexOf(')') > open) {
+            inputCount = head.substring(open + 1, head.indexOf(')')).split(",").length;
+        } else {
+            for (int row : ones) inputCount = Math.max(inputCount, 32 - Integer.numberOfLeadingZeros(row));
+            for (int row : dontCares) inputCount = Math.max(inputCount, 32 - Integer.numberOfLeadingZeros(row));
+        }
+
+        int rows = BitSlice.rowCount(inputCount);
+        int words = BitSlice.wordCount(inputCount);
+        long[] outputs = new long[words];
+        long[] tested = new long[words];
+        Arrays.fill(tested, -1L);
+        tested[words - 1] = BitSlice.lastWordMask(inputCount);
+        for (int row : ones) {
+            checkRow(row, rows, text);
+            BitSlice.set(outputs, row, true);
+        }
+        for (int row : dontCares) {
+            checkRow(row, rows, text);
+            if (BitSlice.get(outputs, row)) {
+                throw new IllegalArgumentException("Row " + row + " is both a minterm and a don't care: " + text);
+            }
+            BitSlice.set(tested, row, false);
+        }
+        return new TruthTable(inputCount, outputs, tested);
+    }
+
+    private static int[] parseRowNumbers(String list) {
+        if (list.trim().isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = list.split(",");
+        int[] rows = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            rows[i] = Integer.parseInt(parts[i].trim());
+        }
+        return rows;
+    }
+
+    private static void checkRow(int row, int rows, String text) {
+        if (row >= rows) {
+            throw new IllegalArgumentException("Row " + row + " does not exist in a table of " + rows + " rows: " + text);
+        }
+    }
+
+    // ===== QUERIES =====
+
+    public int getInputCount() { return inputCount; }
+    public int getRowCount() { return BitSlice.rowCount(inputCount); }
+
+    /**
+     * Number of rows whose output is checked
+     */
+    public int getTestedCount() { return testedCount; }
+
+    public boolean isTested(int row) { return BitSlice.get(tested, row); }
+    public boolean getOutput(int row) { return BitSlice.get(outputs, row); }
+
+    /**
+     * Word of the output column (BitSlice layout), 0 in untested rows
+     */
+    public long getOutputWord(int word) { return outputs[word]; }
+    public long getTestedWord(int word) { return tested[word]; }
+
+    /**
+     * Row number of the k-th tested row, in row order
+     */
+    public int testedRow(int k) {
+        if (k < 0 || k >= testedCount) {
+            throw new IndexOutOfBoundsException("Tested row " + k + " of " + testedCount);
+        }
+        int low = 0, high = tested.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (testedBefore[middle] <= k) low = middle; else high = middle - 1;
+        }
+        long bits = tested[low];
+        for (int skip = k - testedBefore[low]; skip > 0; skip--) {
+            bits &= bits - 1;
+        }
+        return low * 64 + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Input values of a row, first input first
+     */
+    public boolean[] getInputs(int row) {
+        boolean[] values = new boolean[inputCount];
+        for (int i = 0; i < inputCount; i++) {
+            values[i] = ((row >>> (inputCount - 1 - i)) & 1) != 0;
+        }
+        return values;
+    }
+
+    /**
+     * First tested row where a circuit's output column differs, or -1
+     */
+    public int firstMismatch(long[] column) {
+        for (int w = 0; w < outputs.length; w++) {
+            long wrong = (column[w] ^ outputs[w]) & tested[w];
+            if (wrong != 0) {
+                return w * 64 + Long.numberOfTrailingZeros(wrong);
+            }
+        }
+        return -1;
+    }
+}
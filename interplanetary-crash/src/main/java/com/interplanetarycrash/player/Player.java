@@ -2,6 +2,7 @@ package com.interplanetarycrash.player;
 
 import com.interplanetarycrash.animation.AnimatedSprite;
 import com.interplanetarycrash.animation.Animation;
+import com.interplanetarycrash.animation.AnimationSystem;
 import com.interplanetarycrash.assets.AssetManager;
 import com.interplanetarycrash.rendering.GameRenderer;
 import javafx.geometry.Rectangle2D;
@@ -20,6 +21,13 @@ public class Player {
     private boolean isDead = false;
     
     private AnimatedSprite animatedSprite;
+    private int idleLeftAnimation;
+    private int idleRightAnimation;
+    private int walkLeftAnimation;
+    private int walkRightAnimation;
+    private int deathLeftAnimation;
+    private int deathRightAnimation;
+    private String paletteVariant; // null = normal colors
     
     // Collision box
     private static final double HITBOX_WIDTH = 16;
@@ -27,70 +35,49 @@ public class Player {
     private static final double SPRITE_WIDTH = 64;
     private static final double SPRITE_HEIGHT = 64;
     
-    public Player(double startX, double startY) {
+    public Player(double startX, double startY, AnimationSystem animationSystem) {
         this.x = startX;
         this.y = startY;
         this.currentDirection = Direction.DOWN;
         this.isMoving = false;
         
-        initializeAnimations();
+        initializeAnimations(animationSystem);
     }
     
     /**
      * Initialize all player animations
      */
-    private void initializeAnimations() {
-        animatedSprite = new AnimatedSprite();
+    private void initializeAnimations(AnimationSystem animationSystem) {
+        animatedSprite = new AnimatedSprite(animationSystem);
         AssetManager assets = AssetManager.getInstance();
         
-        Animation idle_left = new Animation(
-            assets.getAnimationFrames("Astronaut-Idle-Left", 2), 
-            0.15, 
-            true);
+        Animation idle_left = assets.getAnimation("Astronaut-Idle-Left", true);
 
-        Animation idle_right = new Animation(
-            assets.getAnimationFrames("Astronaut-Idle-Right", 2), 
-            0.15, 
-            true);
+        Animation idle_right = assets.getAnimation("Astronaut-Idle-Right", true);
 
-        animatedSprite.addAnimation("idle_left", idle_left);
-        animatedSprite.addAnimation("idle_right", idle_right);
+        idleLeftAnimation = animatedSprite.addAnimation("idle_left", idle_left);
+        idleRightAnimation = animatedSprite.addAnimation("idle_right", idle_right);
         
-        Animation walk_left = new Animation(
-            assets.getAnimationFrames("Astronaut-Walking-Left", 2),
-            0.15,
-            true
-        );
+        Animation walk_left = assets.getAnimation("Astronaut-Walking-Left", true);
 
-        Animation walk_right = new Animation(
-            assets.getAnimationFrames("Astronaut-Walking-Right", 2),
-            0.15,
-            true
-        );
+        Animation walk_right = assets.getAnimation("Astronaut-Walking-Right", true);
 
-        animatedSprite.addAnimation("walk_left", walk_left);
-        animatedSprite.addAnimation("walk_right", walk_right);
+        walkLeftAnimation = animatedSprite.addAnimation("walk_left", walk_left);
+        walkRightAnimation = animatedSprite.addAnimation("walk_right", walk_right);
 
-        Animation death_right = new Animation(
-            assets.getAnimationFrames("Astronaut-Death-Right", 13),
-            0.15,
-            false
-        );
+        Animation death_right = assets.getAnimation("Astronaut-Death-Right", false);
 
-        Animation death_left = new Animation(
-            assets.getAnimationFrames("Astronaut-Death-Left", 13),
-            0.15,
-            false
-        );
+        Animation death_left = assets.getAnimation("Astronaut-Death-Left", false);
 
-        animatedSprite.addAnimation("death_right", death_right);
-        animatedSprite.addAnimation("death_left", death_left);    
+        deathRightAnimation = animatedSprite.addAnimation("death_right", death_right);
+        deathLeftAnimation = animatedSprite.addAnimation("death_left", death_left);    
         
-        animatedSprite.setAnimation("idle_right");
+        animatedSprite.setAnimation(idleRightAnimation);
     }
     
     /**
-     * Update player position and animation
+     * Update player position and select animation
+     * (frames are advanced by the level's AnimationSystem)
      */
     public void update(double deltaTime, Direction moveDirection) {
         isMoving = moveDirection != Direction.NONE_RIGHT && moveDirection != Direction.NONE_LEFT;
@@ -103,42 +90,39 @@ public class Player {
                 switch (moveDirection) {
                     case UP:
                         y -= speed * deltaTime;
-                        animatedSprite.setAnimation("walk_right");
+                        animatedSprite.setAnimation(walkRightAnimation);
                         break;
                     case DOWN:
                         y += speed * deltaTime;
-                        animatedSprite.setAnimation("walk_left");
+                        animatedSprite.setAnimation(walkLeftAnimation);
                         break;
                     case LEFT:
                         x -= speed * deltaTime;
-                        animatedSprite.setAnimation("walk_left");
+                        animatedSprite.setAnimation(walkLeftAnimation);
                         break;
                     case RIGHT:
                         x += speed * deltaTime;
-                        animatedSprite.setAnimation("walk_right");
+                        animatedSprite.setAnimation(walkRightAnimation);
                         break;
                 }
             } else {
                 switch (moveDirection) {
                     case NONE_LEFT:
-                        animatedSprite.setAnimation("idle_left");
+                        animatedSprite.setAnimation(idleLeftAnimation);
                         break;
                     case NONE_RIGHT:
-                        animatedSprite.setAnimation("idle_right");
+                        animatedSprite.setAnimation(idleRightAnimation);
                         break;
                 }
             }
         } else {
             // Death animation
             if (currentDirection == Direction.LEFT || currentDirection == Direction.NONE_LEFT || currentDirection == Direction.DOWN) {
-                animatedSprite.setAnimation("death_left");
+                animatedSprite.setAnimation(deathLeftAnimation);
             } else {
-                animatedSprite.setAnimation("death_right");
+                animatedSprite.setAnimation(deathRightAnimation);
             }
         }
-
-        // Update animation
-        animatedSprite.update(deltaTime);
     }
     
     /**
@@ -146,6 +130,9 @@ public class Player {
      */
     public void render(GameRenderer renderer) {
         Image currentFrame = animatedSprite.getCurrentFrame();
+        if (paletteVariant != null) {
+            currentFrame = AssetManager.getInstance().getPaletteVariant(currentFrame, paletteVariant);
+        }
         if (currentFrame != null) {
             // Center sprite on position
             double renderX = x - SPRITE_WIDTH / 2;
@@ -176,6 +163,13 @@ public class Player {
         isDead = true;
     }
     
+    /**
+     * Draw the player with a palette swap from AssetManager (null for normal colors)
+     */
+    public void setPaletteVariant(String paletteVariant) {
+        this.paletteVariant = paletteVariant;
+    }
+    
     /**
      * Check if player can interact with something at given position
      */
@@ -54,6 +54,9 @@ public class GameRenderer {
         this.scaleY = scaleY;
     }
     
+    public double getScaleX() { return scaleX; }
+    public double getScaleY() { return scaleY; }
+    
     /**
      * Convert logical X coordinate to screen coordinate
      */
@@ -102,6 +105,16 @@ public class GameRenderer {
                      toScreenWidth(width), toScreenHeight(height));
     }
     
+    /**
+     * Draw part of an image (source in image pixels) into a logical rectangle
+     */
+    public void drawImageRegion(Image image, double sx, double sy, double sw, double sh,
+                                double x, double y, double width, double height) {
+        if (image == null) return;
+        gc.drawImage(image, sx, sy, sw, sh, toScreenX(x), toScreenY(y), 
+                     toScreenWidth(width), toScreenHeight(height));
+    }
+    
     /**
      * Draw rectangle
      */
@@ -188,4 +201,13 @@ public class GameRenderer {
     public void restore() {
         gc.restore();
     }
+    
+    /**
+     * Clip further drawing to a logical rectangle (undo with restore())
+     */
+    public void clipRect(double x, double y, double width, double height) {
+        gc.beginPath();
+        gc.rect(toScreenX(x), toScreenY(y), toScreenWidth(width), toScreenHeight(height));
+        gc.clip();
+    }
 }
\ No newline at end of file
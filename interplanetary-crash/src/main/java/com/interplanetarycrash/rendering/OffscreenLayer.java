@@ -0,0 +1,73 @@
+package com.interplanetarycrash.rendering;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Picture kept between frames and drawn with a single image blit
+ *
+ * Draw into it through getRenderer(), in logical coordinates relative to
+ * the layer's top-left corner, and only where something changed; draw()
+ * copies the pending changes into the image once and then blits it.
+ * The layer follows the scale of the screen renderer so it stays sharp,
+ * and prepare() reports when it had to start over with a blank picture.
+ */
+public class OffscreenLayer {
+
+    private final double width;
+    private final double height;
+
+    private Canvas canvas;
+    private GameRenderer renderer;
+    private WritableImage image;
+    private boolean changed = false;
+
+    public OffscreenLayer(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Match the scale of the screen renderer
+     * @return true if the layer is new or was resized and must be drawn completely
+     */
+    public boolean prepare(GameRenderer screen) {
+        int pixelWidth = Math.max(1, (int) Math.ceil(width * screen.getScaleX()));
+        int pixelHeight = Math.max(1, (int) Math.ceil(height * screen.getScaleY()));
+        if (canvas != null && (int) canvas.getWidth() == pixelWidth
+                && (int) canvas.getHeight() == pixelHeight) {
+            return false;
+        }
+
+        canvas = new Canvas(pixelWidth, pixelHeight);
+        renderer = new GameRenderer(canvas);
+        renderer.setScale(screen.getScaleX(), screen.getScaleY());
+        image = new WritableImage(pixelWidth, pixelHeight);
+        changed = true;
+        return true;
+    }
+
+    /**
+     * Renderer drawing into the layer (call prepare() first)
+     */
+    public GameRenderer getRenderer() {
+        changed = true;
+        return renderer;
+    }
+
+    /**
+     * Draw the layer with its top-left corner at a logical position
+     */
+    public void draw(GameRenderer screen, double x, double y) {
+        if (canvas == null) return;
+        if (changed) {
+            SnapshotParameters params = new SnapshotParameters();
+            params.setFill(Color.TRANSPARENT);
+            canvas.snapshot(params, image);
+            changed = false;
+        }
+        screen.drawImage(image, x, y, width, height);
+    }
+}
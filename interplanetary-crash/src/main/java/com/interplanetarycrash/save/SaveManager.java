@@ -1,7 +1,10 @@
 package com.interplanetarycrash.save;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,6 +15,7 @@ public class SaveManager {
     
     private static SaveManager instance;
     private static final String SAVE_FILE = "intergalactic_crash_save.dat";
+    private static final String CIRCUIT_DIRECTORY = "intergalactic_crash_circuits";
     
     private GameSave currentSave;
     
@@ -132,6 +136,42 @@ public class SaveManager {
         save();
     }
     
+    /**
+     * Keep the circuit a player drew for a task, in a text file beside the
+     * save named after the task file (e.g. level1_module1.circuit)
+     */
+    public void saveCircuit(String taskFilename, String circuit) {
+        File file = getCircuitFile(taskFilename);
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), circuit.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            System.err.println("Error saving circuit: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Lines of the circuit kept for a task, or null if there is none
+     */
+    public List<String> loadCircuit(String taskFilename) {
+        File file = getCircuitFile(taskFilename);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            System.err.println("Error loading circuit: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private File getCircuitFile(String taskFilename) {
+        String name = taskFilename.endsWith(".txt")
+            ? taskFilename.substring(0, taskFilename.length() - 4) : taskFilename;
+        return new File(CIRCUIT_DIRECTORY, name + ".circuit");
+    }
+    
     /**
      * Inner class representing save data
      */
@@ -7,6 +7,7 @@ import com.interplanetarycrash.level.Module;
 import com.interplanetarycrash.player.Direction;
 import com.interplanetarycrash.player.Player;
 import com.interplanetarycrash.rendering.GameRenderer;
+import com.interplanetarycrash.tasks.Task;
 import com.interplanetarycrash.ui.InteractionPrompt;
 import com.interplanetarycrash.ui.LifeSupportBar;
 import com.interplanetarycrash.ui.Timer;
@@ -93,12 +94,15 @@ public class LevelPlayingState extends State {
             return;
         }
         
-        // Update level (time, life support drain, module animations)
+        // Update level (time, life support drain)
         level.update(deltaTime);
 
         // Handle player movement
         updatePlayerMovement(deltaTime);
         
+        // Animations last, once everything has picked its clip
+        level.updateAnimations(deltaTime);
+        
         // Check interactions
         updateInteractions();
         
@@ -106,6 +110,11 @@ public class LevelPlayingState extends State {
         interactionPrompt.update(deltaTime);
     }
     
+    @Override
+    public void onTaskReloaded(String filename, Task task) {
+        level.replaceTask(filename, task);
+    }
+    
     /**
      * Toggle pause state
      */
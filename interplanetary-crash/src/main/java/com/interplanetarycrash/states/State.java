@@ -2,6 +2,7 @@ package com.interplanetarycrash.states;
 
 import com.interplanetarycrash.core.Game;
 import com.interplanetarycrash.rendering.GameRenderer;
+import com.interplanetarycrash.tasks.Task;
 
 /**
  * Base interface for all game states
@@ -36,4 +37,13 @@ public abstract class State {
      * @param renderer The game renderer
      */
     public abstract void render(GameRenderer renderer);
+    
+    /**
+     * Called in development mode when a task file changed on disk
+     * @param filename Task file name (e.g. "level1_module1.txt")
+     * @param task Freshly loaded task from that file
+     */
+    public void onTaskReloaded(String filename, Task task) {
+        // Most states don't show tasks
+    }
 }
@@ -1,9 +1,13 @@
 package com.interplanetarycrash.states;
 
+import java.util.List;
+
 import com.interplanetarycrash.core.Game;
 import com.interplanetarycrash.level.Level;
 import com.interplanetarycrash.level.Module;
 import com.interplanetarycrash.rendering.GameRenderer;
+import com.interplanetarycrash.save.SaveManager;
+import com.interplanetarycrash.tasks.LogicGatesTask;
 import com.interplanetarycrash.tasks.Task;
 import com.interplanetarycrash.ui.*;
 
@@ -41,18 +45,33 @@ public class TaskActiveState extends State {
             System.err.println("ERROR: Task is null!");
             // Return to playing state
             game.getStateManager().changeState(levelPlayingState);
+            return;
+        }
+        
+        // Bring back the circuit drawn for this task in an earlier session
+        if (task instanceof LogicGatesTask) {
+            List<String> saved = SaveManager.getInstance().loadCircuit(level.getTaskFilename(module));
+            if (saved != null && ((LogicGatesTask) task).restoreCircuit(saved)) {
+                System.out.println("Restored saved circuit");
+            }
         }
     }
     
     @Override
     public void exit() {
         System.out.println("Exiting task");
+        
+        if (task instanceof LogicGatesTask) {
+            String filename = level.getTaskFilename(module);
+            SaveManager.getInstance().saveCircuit(filename, ((LogicGatesTask) task).exportCircuit(filename));
+        }
     }
     
     @Override
     public void update(double deltaTime) {
         // IMPORTANT: Level continues to update (time passes, life drains!)
         level.update(deltaTime);
+        level.updateAnimations(deltaTime);
         
         // Check if game over
         if (level.isGameOver()) {
@@ -102,6 +121,17 @@ public class TaskActiveState extends State {
         task.update(deltaTime, game.getInputHandler());
     }
     
+    @Override
+    public void onTaskReloaded(String filename, Task task) {
+        level.replaceTask(filename, task);
+        
+        // Restart the open task with the new content
+        if (module.getTask() != this.task) {
+            this.task = module.getTask();
+            waitingForConfirm = false;
+        }
+    }
+    
     @Override
     public void render(GameRenderer renderer) {
         // Render the task UI
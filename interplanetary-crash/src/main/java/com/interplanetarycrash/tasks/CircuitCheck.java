@@ -0,0 +1,99 @@
+package com.interplanetarycrash.tasks;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.interplanetarycrash.logic.EventSimulator;
+import com.interplanetarycrash.logic.Netlist;
+import com.interplanetarycrash.logic.TruthTable;
+
+/**
+ * Outcome of testing a circuit against a LOGIC task
+ *
+ * Shared by the task itself and the offline grader, so a circuit passes
+ * the grader exactly when it would pass in the game.
+ */
+final class CircuitCheck {
+    
+    private final boolean passed;
+    private final String message;
+    
+    private CircuitCheck(boolean passed, String message) {
+        this.passed = passed;
+        this.message = message;
+    }
+    
+    /**
+     * Test a circuit against a truth table, or against steps applied in
+     * order when the task is a sequence (table null) or the circuit keeps
+     * state
+     */
+    static CircuitCheck run(Netlist circuit, TruthTable table, List<boolean[]> steps,
+                            boolean[] checkedSteps) {
+        if (!circuit.isValid()) {
+            return new CircuitCheck(false, circuit.getProblem());
+        }
+        if (table == null || !circuit.isCombinational()) {
+            return runSequence(circuit, table, steps, checkedSteps);
+        }
+        
+        // Whole truth table at once, 64 rows per word
+        int failed = table.firstMismatch(circuit.evaluateAll(table.getInputCount()));
+        if (failed >= 0) {
+            return new CircuitCheck(false, "Failed row " + describeInputs(table.getInputs(failed)) +
+                                    " expected=" + table.getOutput(failed) + " ✗");
+        }
+        return new CircuitCheck(true, "All " + table.getTestedCount() + " tests PASSED! ✓");
+    }
+    
+    /**
+     * Apply the rows in order to an event-driven simulation that keeps its
+     * state between them, checking the output once each row has settled
+     */
+    private static CircuitCheck runSequence(Netlist circuit, TruthTable table, List<boolean[]> steps,
+                                            boolean[] checkedSteps) {
+        EventSimulator simulator = new EventSimulator(circuit);
+        int inputCount = table != null ? table.getInputCount() : steps.get(0).length - 1;
+        int count = table != null ? table.getTestedCount() : steps.size();
+        for (int r = 0; r < count; r++) {
+            boolean[] inputs;
+            boolean expected;
+            boolean checked;
+            if (table != null) {
+                int row = table.testedRow(r);
+                inputs = table.getInputs(row);
+                expected = table.getOutput(row);
+                checked = true;
+            } else {
+                boolean[] step = steps.get(r);
+                inputs = Arrays.copyOf(step, inputCount);
+                expected = step[inputCount];
+                checked = checkedSteps[r];
+            }
+            
+            simulator.setInputs(inputs);
+            if (!simulator.settle()) {
+                return new CircuitCheck(false, "Step " + (r + 1) + ": output never settles (oscillating loop) ✗");
+            }
+            if (checked && simulator.getOutput() != expected) {
+                return new CircuitCheck(false, "Failed step " + (r + 1) + " " + describeInputs(inputs) +
+                                        " expected=" + expected + " ✗");
+            }
+        }
+        
+        return new CircuitCheck(true, "All " + count + " steps PASSED! ✓ (" +
+                                simulator.getTime() + " time steps, " +
+                                simulator.getEventCount() + " events)");
+    }
+    
+    private static String describeInputs(boolean[] values) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            text.append((char) ('A' + i)).append('=').append(values[i] ? 1 : 0).append(' ');
+        }
+        return text.toString().trim();
+    }
+    
+    boolean isPassed() { return passed; }
+    String getMessage() { return message; }
+}
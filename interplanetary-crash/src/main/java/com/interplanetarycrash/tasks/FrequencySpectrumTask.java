@@ -2,9 +2,23 @@ package com.interplanetarycrash.tasks;
 
 import com.interplanetarycrash.GameApplication;
 import com.interplanetarycrash.assets.AssetManager;
+import com.interplanetarycrash.dsp.FFT;
+import com.interplanetarycrash.dsp.Oscillator;
+import com.interplanetarycrash.dsp.SpectralPeaks;
+import com.interplanetarycrash.dsp.Spectrogram;
+import com.interplanetarycrash.dsp.Wavetable;
+import com.interplanetarycrash.dsp.WindowFunction;
 import com.interplanetarycrash.input.InputHandler;
 import com.interplanetarycrash.rendering.GameRenderer;
+import com.interplanetarycrash.ui.Oscilloscope;
 
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 
@@ -13,20 +27,17 @@ import javafx.scene.text.Font;
  * Player adjusts amplitude, frequency, phase AND WAVEFORM TYPE
  * 
  * NOW WITH MULTIPLE WAVEFORMS AND REAL FFT!
+ * Composite targets (sum of several components) are scored by spectral
+ * distance between peak sets instead of per-parameter comparison.
  */
 public class FrequencySpectrumTask extends Task {
     
-    // Target values
-    private double targetAmplitude;
-    private double targetFrequency;
-    private double targetPhase;
-    private WaveformType targetWaveform;
+    // Target signal (sum of components)
+    private final Component[] targetComponents;
     
-    // Current values (what player sets)
-    private double currentAmplitude;
-    private double currentFrequency;
-    private double currentPhase;
-    private WaveformType currentWaveform;
+    // Current signal (what player sets), edited one component at a time
+    private final Component[] currentComponents;
+    private int selectedComponent = 0;
     
     // Ranges
     private double amplitudeMin, amplitudeMax;
@@ -34,6 +45,7 @@ public class FrequencySpectrumTask extends Task {
     private double phaseMin, phaseMax;
     
     // Tolerance for correct answer
+    // (parameter units for a single tone, max spectral distance for composites)
     private double tolerance;
     
     // UI state
@@ -48,10 +60,79 @@ public class FrequencySpectrumTask extends Task {
     private static final int WAVEFORM_HEIGHT = 180;
     private static final int SPECTRUM_WIDTH = 400;
     private static final int SPECTRUM_HEIGHT = 180;
-    private static final int WAVEFORM_SAMPLES = 256; // Power of 2 for FFT
+    private static final int WAVEFORM_SAMPLES = 256;
+    private static final double WAVEFORM_SAMPLE_RATE = 1000.0; // Hz, time domain view
+    
+    // FFT parameters (defaults for task files that don't set them)
+    public static final int DEFAULT_FFT_SIZE = 256;
+    public static final double DEFAULT_SAMPLE_RATE = 1000.0; // Hz
+    public static final int MIN_FFT_SIZE = 16;
+    public static final int MAX_FFT_SIZE = 8192;
+    private final int fftSize;
+    private final double sampleRate;
+    private final WindowFunction window;
+    private final int spectrumBins;
+    private final double magnitudeScale;
+    
+    // FFT work buffers, reused every frame
+    private final FFT fft;
+    private final double[] signalBuffer;
+    private final double[] fftRe;
+    private final double[] fftIm;
     
-    // FFT parameters
-    private static final double SAMPLE_RATE = 1000.0; // Hz
+    // Band-limited signal generation
+    private static final int STREAM_CHUNK = 256;
+    private final Map<WaveformType, Oscillator> oscillators = new EnumMap<>(WaveformType.class);
+    private final Oscillator envelopeOscillator = new Oscillator(Wavetable.SINE);
+    private final double[] waveformBuffer = new double[WAVEFORM_SAMPLES + 1];
+    private final double[] streamBuffer = new double[STREAM_CHUNK];
+    private final double[] envelopeBuffer;
+    private final double[] mixBuffer;
+    
+    // Spectrogram (STFT) view of the current signal, toggled with TAB
+    private static final int SPECTROGRAM_HISTORY = 200;   // columns
+    private static final int SPECTROGRAM_MAX_ROWS = 128;
+    private static final double SPECTROGRAM_COLUMNS_PER_SECOND = 20.0;
+    private static final double SPECTROGRAM_RANGE_DB = 60.0;
+    private static final double MAX_STREAM_SECONDS = 0.25; // Cap after a long frame
+    private Spectrogram spectrogram; // Created on the first TAB
+    private final int spectrogramHop;
+    private final int spectrogramRows;
+    private final int[] spectrogramColumnPixels;
+    private WritableImage spectrogramImage;
+    private int spectrogramWriteColumn = 0;
+    private boolean spectrogramMode = false;
+    private long streamSample = 0;
+    private double pendingSamples = 0;
+    
+    // Oscilloscope view of the current signal, toggled with O
+    private static final double SCOPE_SAMPLE_RATE = 20000.0; // Hz
+    private static final double TRIGGER_SPEED = 0.5;         // Full scales per second
+    private final Oscilloscope oscilloscope;
+    private final double[] scopeBuffer = new double[STREAM_CHUNK];
+    private boolean scopeMode = false;
+    private long scopeSample = 0;
+    private double pendingScopeSamples = 0;
+    
+    // Spectrum cache: target never changes, current only when a control moves
+    private static final int SPECTRUM_CACHE_SIZE = 32;
+    private static final double HARMONIC_THRESHOLD = 0.05; // 5% of max
+    private final Map<SpectrumKey, Spectrum> spectrumCache =
+        new LinkedHashMap<SpectrumKey, Spectrum>(SPECTRUM_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SpectrumKey, Spectrum> eldest) {
+                return size() > SPECTRUM_CACHE_SIZE;
+            }
+        };
+    private Spectrum targetSpectrum;
+    private Spectrum currentSpectrum;
+    
+    // Peak matching (composite tasks)
+    private static final int MAX_PEAKS = 16;
+    private static final double PEAK_FLOOR = 0.02;     // Fraction of the max magnitude
+    private static final double PEAK_MATCH_BINS = 2.0; // Frequency scale of the distance
+    private Spectrum scoredSpectrum;
+    private double spectralDistance;
     
     private Font normalFont;
     private Font smallFont;
@@ -61,20 +142,23 @@ public class FrequencySpectrumTask extends Task {
      * Waveform types with different spectral characteristics
      */
     public enum WaveformType {
-        SINE("Sine"),
-        SQUARE("Square"),
-        SAWTOOTH("Sawtooth"),
-        TRIANGLE("Triangle"),
-        SINC("Sinc"),
-        PULSE("Pulse");
+        SINE("Sine", Wavetable.SINE),
+        SQUARE("Square", Wavetable.SQUARE),
+        SAWTOOTH("Sawtooth", Wavetable.SAWTOOTH),
+        TRIANGLE("Triangle", Wavetable.TRIANGLE),
+        SINC("Sinc", Wavetable.SINE), // Sine carrier, envelope applied separately
+        PULSE("Pulse", Wavetable.pulse(0.1));
         
         private final String displayName;
+        private final Wavetable wavetable;
         
-        WaveformType(String displayName) {
+        WaveformType(String displayName, Wavetable wavetable) {
             this.displayName = displayName;
+            this.wavetable = wavetable;
         }
         
         public String getDisplayName() { return displayName; }
+        public Wavetable getWavetable() { return wavetable; }
     }
     
     
@@ -86,12 +170,83 @@ public class FrequencySpectrumTask extends Task {
                                 double frequencyMin, double frequencyMax,
                                 double phaseMin, double phaseMax,
                                 double tolerance, int difficulty) {
+        this(instruction, targetAmplitude, targetFrequency, targetPhase, targetWaveform,
+             amplitudeMin, amplitudeMax, frequencyMin, frequencyMax, phaseMin, phaseMax,
+             tolerance, difficulty, DEFAULT_FFT_SIZE, DEFAULT_SAMPLE_RATE, WindowFunction.RECTANGULAR);
+    }
+    
+    /**
+     * Constructor with analysis settings
+     * @param fftSize power of 2 between MIN_FFT_SIZE and MAX_FFT_SIZE
+     * @param sampleRate sampling rate of the analysed signal in Hz
+     * @param window window applied before the FFT
+     */
+    public FrequencySpectrumTask(String instruction,
+                                double targetAmplitude, double targetFrequency, double targetPhase,
+                                WaveformType targetWaveform,
+                                double amplitudeMin, double amplitudeMax,
+                                double frequencyMin, double frequencyMax,
+                                double phaseMin, double phaseMax,
+                                double tolerance, int difficulty,
+                                int fftSize, double sampleRate, WindowFunction window) {
+        this(instruction,
+             new Component[] { new Component(targetWaveform, targetAmplitude, targetFrequency, targetPhase) },
+             amplitudeMin, amplitudeMax, frequencyMin, frequencyMax, phaseMin, phaseMax,
+             tolerance, difficulty, fftSize, sampleRate, window);
+    }
+    
+    /**
+     * Constructor for a target made of several components
+     * @param tolerance max spectral distance (0..1) when there is more than one component
+     */
+    public FrequencySpectrumTask(String instruction, Component[] targetComponents,
+                                double amplitudeMin, double amplitudeMax,
+                                double frequencyMin, double frequencyMax,
+                                double phaseMin, double phaseMax,
+                                double tolerance, int difficulty,
+                                int fftSize, double sampleRate, WindowFunction window) {
         super(TaskType.FREQUENCY_SPECTRUM, instruction, difficulty);
         
-        this.targetAmplitude = targetAmplitude;
-        this.targetFrequency = targetFrequency;
-        this.targetPhase = targetPhase;
-        this.targetWaveform = targetWaveform;
+        if (targetComponents.length == 0) {
+            throw new IllegalArgumentException("Frequency task needs at least one component");
+        }
+        
+        if (fftSize < MIN_FFT_SIZE || fftSize > MAX_FFT_SIZE || Integer.bitCount(fftSize) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of 2 between "
+                + MIN_FFT_SIZE + " and " + MAX_FFT_SIZE + ": " + fftSize);
+        }
+        if (!(sampleRate > 0)) {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        }
+        
+        this.fftSize = fftSize;
+        this.sampleRate = sampleRate;
+        this.window = window;
+        this.spectrumBins = fftSize / 2;
+        this.magnitudeScale = 2.0 / (fftSize * window.coherentGain(fftSize));
+        
+        this.fft = FFT.forSize(fftSize);
+        this.signalBuffer = new double[fftSize];
+        this.fftRe = new double[spectrumBins + 1];
+        this.fftIm = new double[spectrumBins + 1];
+        this.envelopeBuffer = new double[Math.max(fftSize, Math.max(WAVEFORM_SAMPLES + 1, STREAM_CHUNK))];
+        this.mixBuffer = new double[envelopeBuffer.length];
+        for (WaveformType type : WaveformType.values()) {
+            oscillators.put(type, new Oscillator(type.getWavetable()));
+        }
+        
+        // Frames overlap by at least half
+        int hop = (int) Math.round(sampleRate / SPECTROGRAM_COLUMNS_PER_SECOND);
+        hop = Math.max(1, Math.min(fftSize / 2, hop));
+        this.spectrogramHop = hop;
+        this.spectrogramRows = Math.min(spectrumBins, SPECTROGRAM_MAX_ROWS);
+        this.spectrogramColumnPixels = new int[spectrogramRows];
+        
+        this.targetComponents = new Component[targetComponents.length];
+        for (int i = 0; i < targetComponents.length; i++) {
+            this.targetComponents[i] = targetComponents[i].copy();
+        }
+        this.currentComponents = new Component[targetComponents.length];
         
         this.amplitudeMin = amplitudeMin;
         this.amplitudeMax = amplitudeMax;
@@ -103,10 +258,10 @@ public class FrequencySpectrumTask extends Task {
         this.tolerance = tolerance;
         
         // Start at middle of ranges
-        this.currentAmplitude = (amplitudeMin + amplitudeMax) / 2.0;
-        this.currentFrequency = (frequencyMin + frequencyMax) / 2.0;
-        this.currentPhase = (phaseMin + phaseMax) / 2.0;
-        this.currentWaveform = WaveformType.SINE;
+        resetCurrentComponents();
+        
+        this.oscilloscope = new Oscilloscope(530, 170, WAVEFORM_WIDTH, WAVEFORM_HEIGHT,
+            SCOPE_SAMPLE_RATE, Math.max(amplitudeMax * targetComponents.length, 1.0));
         
         this.selectedParameter = PARAM_WAVEFORM;
 
@@ -141,6 +296,11 @@ public class FrequencySpectrumTask extends Task {
             }
         }
         
+        // Switch edited component (C)
+        if (isComposite() && input.isSwitchingComponent()) {
+            selectedComponent = (selectedComponent + 1) % currentComponents.length;
+        }
+        
         // Adjust selected parameter
         if (selectedParameter == PARAM_WAVEFORM) {
             // Cycle waveforms with A/D or Q/E
@@ -163,38 +323,176 @@ public class FrequencySpectrumTask extends Task {
             }
         }
         
+        // Switch between spectrum and spectrogram (TAB)
+        if (input.isTogglingView()) {
+            spectrogramMode = !spectrogramMode;
+            if (spectrogramMode) {
+                clearSpectrogram();
+            }
+        }
+        
+        if (spectrogramMode) {
+            streamSpectrogram(deltaTime);
+        }
+        
+        // Oscilloscope (O), timebase (Z/X) and trigger level (R/F)
+        if (difficulty < 3) {
+            if (input.isTogglingScope()) {
+                scopeMode = !scopeMode;
+                if (scopeMode) {
+                    oscilloscope.clear();
+                    scopeSample = 0;
+                    pendingScopeSamples = 0;
+                }
+            }
+            if (scopeMode) {
+                updateOscilloscope(deltaTime, input);
+            }
+        }
+        
         // Submit answer (ENTER)
         if (input.isConfirming()) {
             submitAnswer();
         }
     }
     
+    /**
+     * Feed the current signal into the spectrogram in real time
+     */
+    private void streamSpectrogram(double deltaTime) {
+        pendingSamples = Math.min(pendingSamples + deltaTime * sampleRate, sampleRate * MAX_STREAM_SECONDS);
+        int count = (int) pendingSamples;
+        pendingSamples -= count;
+        
+        while (count > 0) {
+            int chunk = Math.min(count, STREAM_CHUNK);
+            generateSignal(streamBuffer, chunk, streamSample / sampleRate, sampleRate, currentComponents);
+            for (int i = 0; i < chunk; i++) {
+                if (spectrogram.push(streamBuffer[i]) && spectrogramImage != null) {
+                    writeSpectrogramColumn(spectrogram.getColumn());
+                }
+            }
+            streamSample += chunk;
+            count -= chunk;
+        }
+    }
+    
+    /**
+     * Advance the oscilloscope clock and feed it the new samples only
+     */
+    private void updateOscilloscope(double deltaTime, InputHandler input) {
+        if (input.isSlowingTimebase()) oscilloscope.stepTimebase(1);
+        if (input.isSpeedingTimebase()) oscilloscope.stepTimebase(-1);
+        
+        double triggerStep = TRIGGER_SPEED * Math.max(amplitudeMax, 1.0) * deltaTime;
+        if (input.isRaisingTrigger()) oscilloscope.adjustTriggerLevel(triggerStep);
+        if (input.isLoweringTrigger()) oscilloscope.adjustTriggerLevel(-triggerStep);
+        
+        pendingScopeSamples = Math.min(pendingScopeSamples + deltaTime * SCOPE_SAMPLE_RATE,
+                                       SCOPE_SAMPLE_RATE * MAX_STREAM_SECONDS);
+        int count = (int) pendingScopeSamples;
+        pendingScopeSamples -= count;
+        
+        while (count > 0) {
+            int chunk = Math.min(count, STREAM_CHUNK);
+            generateSignal(scopeBuffer, chunk, scopeSample / SCOPE_SAMPLE_RATE, SCOPE_SAMPLE_RATE, currentComponents);
+            oscilloscope.write(scopeBuffer, chunk);
+            scopeSample += chunk;
+            count -= chunk;
+        }
+    }
+    
+    /**
+     * Write the newest spectrogram column into the scrolling image
+     * (rows are bin groups, highest frequency at the top, level in dB)
+     */
+    private void writeSpectrogramColumn(double[] magnitudes) {
+        double reference = Math.max(amplitudeMax, 1e-9);
+        for (int row = 0; row < spectrogramRows; row++) {
+            int band = spectrogramRows - 1 - row;
+            int binStart = band * spectrumBins / spectrogramRows;
+            int binEnd = Math.max(binStart + 1, (band + 1) * spectrumBins / spectrogramRows);
+            
+            double peak = 0;
+            for (int bin = binStart; bin < binEnd; bin++) {
+                if (magnitudes[bin] > peak) peak = magnitudes[bin];
+            }
+            
+            double level = 0;
+            if (peak > 0) {
+                double db = 20 * Math.log10(peak / reference);
+                level = clamp((db + SPECTROGRAM_RANGE_DB) / SPECTROGRAM_RANGE_DB, 0, 1);
+            }
+            int green = 20 + (int) (level * 235);
+            spectrogramColumnPixels[row] = 0xFF000000 | (green << 8);
+        }
+        
+        spectrogramImage.getPixelWriter().setPixels(spectrogramWriteColumn, 0, 1, spectrogramRows,
+            PixelFormat.getIntArgbInstance(), spectrogramColumnPixels, 0, 1);
+        spectrogramWriteColumn = (spectrogramWriteColumn + 1) % SPECTROGRAM_HISTORY;
+    }
+    
+    private void clearSpectrogram() {
+        if (spectrogram == null) {
+            spectrogram = new Spectrogram(fftSize, spectrogramHop, window);
+        }
+        spectrogram.reset();
+        streamSample = 0;
+        pendingSamples = 0;
+        spectrogramWriteColumn = 0;
+        if (spectrogramImage == null) {
+            spectrogramImage = new WritableImage(SPECTROGRAM_HISTORY, spectrogramRows);
+        }
+        int background = 0xFF001400;
+        for (int x = 0; x < SPECTROGRAM_HISTORY; x++) {
+            for (int y = 0; y < spectrogramRows; y++) {
+                spectrogramImage.getPixelWriter().setArgb(x, y, background);
+            }
+        }
+    }
+    
     private void cycleWaveform(int direction) {
+        Component component = currentComponents[selectedComponent];
         WaveformType[] types = WaveformType.values();
-        int currentIndex = currentWaveform.ordinal();
+        int currentIndex = component.waveform.ordinal();
         currentIndex = (currentIndex + direction + types.length) % types.length;
-        currentWaveform = types[currentIndex];
+        component.waveform = types[currentIndex];
     }
     
     private void adjustParameter(double delta) {
+        Component component = currentComponents[selectedComponent];
         switch (selectedParameter) {
             case PARAM_AMPLITUDE:
-                currentAmplitude += delta * (amplitudeMax - amplitudeMin) / 10.0;
-                currentAmplitude = clamp(currentAmplitude, amplitudeMin, amplitudeMax);
+                component.amplitude += delta * (amplitudeMax - amplitudeMin) / 10.0;
+                component.amplitude = clamp(component.amplitude, amplitudeMin, amplitudeMax);
                 break;
                 
             case PARAM_FREQUENCY:
-                currentFrequency += delta * (frequencyMax - frequencyMin) / 10.0;
-                currentFrequency = clamp(currentFrequency, frequencyMin, frequencyMax);
+                component.frequency += delta * (frequencyMax - frequencyMin) / 10.0;
+                component.frequency = clamp(component.frequency, frequencyMin, frequencyMax);
                 break;
                 
             case PARAM_PHASE:
-                currentPhase += delta * (phaseMax - phaseMin) / 10.0;
-                currentPhase = clamp(currentPhase, phaseMin, phaseMax);
+                component.phase += delta * (phaseMax - phaseMin) / 10.0;
+                component.phase = clamp(component.phase, phaseMin, phaseMax);
                 break;
         }
     }
     
+    private void resetCurrentComponents() {
+        for (int i = 0; i < currentComponents.length; i++) {
+            currentComponents[i] = new Component(WaveformType.SINE,
+                (amplitudeMin + amplitudeMax) / 2.0,
+                (frequencyMin + frequencyMax) / 2.0,
+                (phaseMin + phaseMax) / 2.0);
+        }
+        selectedComponent = 0;
+    }
+    
+    private boolean isComposite() {
+        return targetComponents.length > 1;
+    }
+    
     private double clamp(double value, double min, double max) {
         return Math.max(min, Math.min(max, value));
     }
@@ -238,7 +536,8 @@ public class FrequencySpectrumTask extends Task {
             renderResult(renderer);
         } else {
             renderer.drawCenteredText(
-                "↑↓: Select  |  ←→/Q/E: Adjust  |  ENTER: Submit | ESC: Exit",
+                "↑↓: Select  |  ←→/Q/E: Adjust  |  " + (isComposite() ? "C: Component  |  " : "") +
+                "TAB: Spectrogram  |  O: Scope  |  ENTER: Submit | ESC: Exit",
                 GameApplication.LOGICAL_WIDTH / 2.0,
                 GameApplication.LOGICAL_HEIGHT - 30,
                 smallFont,
@@ -256,6 +555,13 @@ public class FrequencySpectrumTask extends Task {
         double width = WAVEFORM_WIDTH;
         double height = WAVEFORM_HEIGHT;
         
+        if (scopeMode) {
+            renderer.drawText("OSCILLOSCOPE (Current Signal)  Z/X: Time  R/F: Trigger", startX + 10, startY - 8,
+                             smallFont, GameRenderer.RETRO_GREEN);
+            oscilloscope.render(renderer);
+            return;
+        }
+        
         // Background
         renderer.fillRect(startX, startY, width, height, Color.rgb(0, 20, 0));
         renderer.drawRect(startX, startY, width, height, GameRenderer.RETRO_GREEN);
@@ -270,44 +576,51 @@ public class FrequencySpectrumTask extends Task {
                          GameRenderer.RETRO_GREEN_DARKER, 1);
         
         // Draw target waveform (semi-transparent)
-        drawWaveform(renderer, startX, startY, width, height, 
-                    targetAmplitude, targetFrequency, targetPhase, targetWaveform,
+        drawWaveform(renderer, startX, startY, width, height, targetComponents,
                     Color.rgb(0, 255, 0, 0.3), 2);
         
         // Draw current waveform
-        drawWaveform(renderer, startX, startY, width, height,
-                    currentAmplitude, currentFrequency, currentPhase, currentWaveform,
+        drawWaveform(renderer, startX, startY, width, height, currentComponents,
                     GameRenderer.RETRO_GREEN, 2);
         
         // Legend with waveform types
-        renderer.drawText("Target: " + targetWaveform.getDisplayName(), 
+        renderer.drawText("Target: " + describe(targetComponents), 
                          startX + 10, startY + 15, smallFont, 
                          Color.rgb(0, 255, 0, 0.5));
-        renderer.drawText("Current: " + currentWaveform.getDisplayName(), 
+        renderer.drawText("Current: " + describe(currentComponents), 
                          startX + 10, startY + 30, smallFont, 
                          GameRenderer.RETRO_GREEN);
     }
     
     /**
-     * Draw a waveform based on type
+     * Waveform names of a signal ("Square + Sine")
+     */
+    private static String describe(Component[] components) {
+        StringBuilder text = new StringBuilder(components[0].waveform.getDisplayName());
+        for (int i = 1; i < components.length; i++) {
+            text.append(" + ").append(components[i].waveform.getDisplayName());
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Draw a signal's waveform
      */
     private void drawWaveform(GameRenderer renderer, double startX, double startY, 
-                             double width, double height,
-                             double amplitude, double frequency, double phase,
-                             WaveformType waveform,
+                             double width, double height, Component[] components,
                              Color color, double lineWidth) {
         double prevX = startX;
         double prevY = startY + height / 2;
         
+        // Generate waveform samples
+        generateSignal(waveformBuffer, WAVEFORM_SAMPLES + 1, 0, WAVEFORM_SAMPLE_RATE, components);
+        
         for (int i = 0; i <= WAVEFORM_SAMPLES; i++) {
-            double t = (double)i / SAMPLE_RATE;
             double x = startX + (i / (double)WAVEFORM_SAMPLES) * width;
-            
-            // Generate waveform sample
-            double sample = generateWaveformSample(t, amplitude, frequency, phase, waveform);
+            double sample = waveformBuffer[i];
             
             // Scale to display
-            double maxAmplitude = Math.max(amplitudeMax, 10.0);
+            double maxAmplitude = Math.max(amplitudeMax * components.length, 10.0);
             double y = startY + height / 2 - (sample / maxAmplitude) * (height / 2 - 10);
             
             if (i > 0) {
@@ -320,46 +633,53 @@ public class FrequencySpectrumTask extends Task {
     }
     
     /**
-     * Generate a single waveform sample based on type
+     * Fill a buffer with the sum of a signal's components, starting at time startTime
      */
-    private double generateWaveformSample(double t, double amplitude, double frequency, 
-                                         double phase, WaveformType waveform) {
-        double omega = 2 * Math.PI * frequency;
-        double arg = omega * t + phase;
-        
-        switch (waveform) {
-            case SINE:
-                return amplitude * Math.sin(arg);
-                
-            case SQUARE:
-                return amplitude * Math.signum(Math.sin(arg));
-                
-            case SAWTOOTH:
-                // Sawtooth: ramp from -1 to 1
-                double sawPhase = (arg / (2 * Math.PI)) % 1.0;
-                return amplitude * (2.0 * sawPhase - 1.0);
-                
-            case TRIANGLE:
-                // Triangle: |sawtooth|
-                double triPhase = (arg / (2 * Math.PI)) % 1.0;
-                return amplitude * (1.0 - 4.0 * Math.abs(triPhase - 0.5));
-                
-            case SINC:
-                // Sinc function: sin(πx)/(πx)
-                // Modulated by carrier frequency
-                double x = frequency * t * 4; // Scale factor for visibility
-                if (Math.abs(x) < 0.001) {
-                    return amplitude;
-                }
-                return amplitude * Math.sin(Math.PI * x) / (Math.PI * x) * Math.cos(arg);
-                
-            case PULSE:
-                // Narrow pulse train
-                double pulsePhase = (arg / (2 * Math.PI)) % 1.0;
-                return (pulsePhase < 0.1) ? amplitude : 0;
-                
-            default:
-                return 0;
+    private void generateSignal(double[] out, int count, double startTime, double rate,
+                                Component[] components) {
+        Component first = components[0];
+        generateWaveform(out, count, startTime, rate,
+                         first.amplitude, first.frequency, first.phase, first.waveform);
+        
+        for (int c = 1; c < components.length; c++) {
+            Component component = components[c];
+            generateWaveform(mixBuffer, count, startTime, rate,
+                             component.amplitude, component.frequency, component.phase, component.waveform);
+            for (int i = 0; i < count; i++) {
+                out[i] += mixBuffer[i];
+            }
+        }
+    }
+    
+    /**
+     * Fill a buffer with a band-limited waveform, starting at time startTime
+     */
+    private void generateWaveform(double[] out, int count, double startTime, double rate,
+                                  double amplitude, double frequency, double phase,
+                                  WaveformType waveform) {
+        Oscillator oscillator = oscillators.get(waveform);
+        double startCycles = frequency * startTime + phase / (2 * Math.PI);
+        
+        if (waveform != WaveformType.SINC) {
+            oscillator.setPhase(startCycles);
+            oscillator.fill(out, 0, count, amplitude, frequency, rate);
+            return;
+        }
+        
+        // Sinc: sin(pi*x)/(pi*x) with x = 4*f*t, modulating a cosine carrier
+        // sin(pi*x) is a sine at 2*f, so both come from the oscillator tables
+        oscillator.setPhase(startCycles + 0.25);
+        oscillator.fill(out, 0, count, amplitude, frequency, rate);
+        envelopeOscillator.setPhase(2 * frequency * startTime);
+        envelopeOscillator.fill(envelopeBuffer, 0, count, 1.0, 2 * frequency, rate);
+        
+        for (int i = 0; i < count; i++) {
+            double x = 4 * frequency * (startTime + i / rate);
+            if (Math.abs(x) < 0.001) {
+                out[i] = amplitude;
+            } else {
+                out[i] *= envelopeBuffer[i] / (Math.PI * x);
+            }
         }
     }
     
@@ -377,15 +697,14 @@ public class FrequencySpectrumTask extends Task {
         renderer.drawRect(startX, startY, width, height, GameRenderer.RETRO_GREEN);
         
         // Title
-        renderer.drawText("FFT SPECTRUM (Frequency Domain)", startX + 10, startY - 8, smallFont, 
+        String title = spectrogramMode ? "SPECTROGRAM (STFT, Current Signal)" : "FFT SPECTRUM (Frequency Domain)";
+        renderer.drawText(title + " - " + window.getDisplayName(), startX + 10, startY - 8, smallFont, 
                          GameRenderer.RETRO_GREEN);
         
-        // Compute FFT for both signals
-        double[] targetFFT = computeFFT(targetAmplitude, targetFrequency, targetPhase, targetWaveform);
-        double[] currentFFT = computeFFT(currentAmplitude, currentFrequency, currentPhase, currentWaveform);
+        updateSpectra();
         
         // Draw frequency axis labels
-        double freqStep = SAMPLE_RATE / 2.0 / 5.0;
+        double freqStep = sampleRate / 2.0 / 5.0;
         for (int i = 0; i <= 5; i++) {
             double freq = i * freqStep;
             double x = startX + 40 + (width - 60) * (i / 5.0);
@@ -395,132 +714,144 @@ public class FrequencySpectrumTask extends Task {
         renderer.drawText("Hz", startX + width - 30, startY + height + 15,
                          smallFont, GameRenderer.RETRO_GREEN_DARKER);
         
-        // Draw FFT bars
-        drawFFTBars(renderer, startX + 40, startY + 20, width - 60, height - 50, 
-                   targetFFT, Color.rgb(0, 255, 0, 0.5));
-        drawFFTBars(renderer, startX + 40, startY + 20, width - 60, height - 50, 
-                   currentFFT, GameRenderer.RETRO_GREEN);
-        
-        // Legend
-        renderer.drawText("Target", startX + 10, startY + 15, smallFont, 
-                         Color.rgb(0, 255, 0, 0.5));
-        renderer.drawText("Current", startX + 10, startY + 30, smallFont, 
-                         GameRenderer.RETRO_GREEN);
+        if (spectrogramMode) {
+            drawSpectrogram(renderer, startX + 40, startY + 20, width - 60, height - 50);
+        } else {
+            // Draw FFT bars
+            drawFFTBars(renderer, startX + 40, startY + 20, width - 60, height - 50, 
+                       targetSpectrum, Color.rgb(0, 255, 0, 0.5));
+            drawFFTBars(renderer, startX + 40, startY + 20, width - 60, height - 50, 
+                       currentSpectrum, GameRenderer.RETRO_GREEN);
+            
+            // Legend
+            renderer.drawText("Target", startX + 10, startY + 15, smallFont, 
+                             Color.rgb(0, 255, 0, 0.5));
+            renderer.drawText("Current", startX + 10, startY + 30, smallFont, 
+                             GameRenderer.RETRO_GREEN);
+        }
         
         // Show dominant frequency and harmonic info
-        double targetDominant = findDominantFrequency(targetFFT);
-        double currentDominant = findDominantFrequency(currentFFT);
-        int targetHarmonics = countSignificantHarmonics(targetFFT);
-        int currentHarmonics = countSignificantHarmonics(currentFFT);
-        
         double textY = startY + height + 35;
-        renderer.drawText(String.format("Target Dominant Frequency: %.1f Hz (%d harmonics)", targetDominant, targetHarmonics),
+        renderer.drawText(String.format("Target Dominant Frequency: %.1f Hz (%d harmonics)",
+                         targetSpectrum.dominantFrequency, targetSpectrum.harmonics),
                          startX + 5, textY, smallFont, GameRenderer.RETRO_GREEN_DARK);
-        renderer.drawText(String.format("Current Dominant Frequency: %.1f Hz (%d harmonics)", currentDominant, currentHarmonics),
+        renderer.drawText(String.format("Current Dominant Frequency: %.1f Hz (%d harmonics)",
+                         currentSpectrum.dominantFrequency, currentSpectrum.harmonics),
                          startX + 5, textY + 15, smallFont, GameRenderer.RETRO_GREEN);
         
+        // Live score and edited component for composite targets
+        if (isComposite()) {
+            double distance = getSpectralDistance();
+            Color scoreColor = distance <= tolerance ? GameRenderer.RETRO_GREEN : GameRenderer.RETRO_GREEN_DARK;
+            renderer.drawText(String.format("SPECTRAL MATCH: %.0f%%", (1 - distance) * 100),
+                             530, textY, smallFont, scoreColor);
+            renderer.drawText(String.format("COMPONENT %d/%d  (C: next)", selectedComponent + 1, currentComponents.length),
+                             530, textY + 15, smallFont, GameRenderer.RETRO_GREEN);
+        }
     }
     
     /**
-     * Compute FFT magnitude spectrum for any waveform
-     * 
+     * Make sure both spectra match the current parameters
+     * (cached, recomputed only on parameter change)
      */
-    private double[] computeFFT(double amplitude, double frequency, double phase, WaveformType waveform) {
-        int n = WAVEFORM_SAMPLES;
-        double[] signal = new double[n];
-        
-        // Generate signal
-        for (int i = 0; i < n; i++) {
-            double t = i / SAMPLE_RATE;
-            signal[i] = generateWaveformSample(t, amplitude, frequency, phase, waveform);
+    private void updateSpectra() {
+        if (targetSpectrum == null) {
+            targetSpectrum = getSpectrum(targetComponents);
         }
-        
-        // Perform FFT
-        Complex[] fft = fft(signal);
-        
-        // Compute magnitude spectrum (only positive frequencies)
-        int numBins = n / 2;
-        double[] magnitudes = new double[numBins];
-        
-        for (int i = 0; i < numBins; i++) {
-            magnitudes[i] = fft[i].abs() * 2.0 / n; // Normalize
+        if (currentSpectrum == null || !currentSpectrum.key.matches(currentComponents)) {
+            currentSpectrum = getSpectrum(currentComponents);
         }
-        
-        return magnitudes;
     }
     
     /**
-     * Count significant harmonics (above threshold)
+     * Distance between current and target peak sets (0 = identical),
+     * only re-evaluated when the current spectrum changed
      */
-    private int countSignificantHarmonics(double[] magnitudes) {
-        double maxMagnitude = 0;
-        for (double mag : magnitudes) {
-            if (mag > maxMagnitude) maxMagnitude = mag;
+    private double getSpectralDistance() {
+        if (scoredSpectrum != currentSpectrum) {
+            double frequencyScale = PEAK_MATCH_BINS * sampleRate / fftSize;
+            spectralDistance = currentSpectrum.peaks.distanceTo(targetSpectrum.peaks, frequencyScale);
+            scoredSpectrum = currentSpectrum;
         }
-        
-        double threshold = maxMagnitude * 0.05; // 5% of max
-        int count = 0;
-        
-        for (double mag : magnitudes) {
-            if (mag > threshold) count++;
-        }
-        
-        return count;
+        return spectralDistance;
     }
     
     /**
-     * Fast Fourier Transform (Cooley-Tukey algorithm)
+     * Get the spectrum of a signal, from the cache when possible
      */
-    private Complex[] fft(double[] signal) {
-        int n = signal.length;
-        
-        if (n == 1) {
-            return new Complex[] { new Complex(signal[0], 0) };
-        }
-        
-        if (n % 2 != 0) {
-            throw new IllegalArgumentException("n must be power of 2");
+    private Spectrum getSpectrum(Component[] components) {
+        SpectrumKey key = new SpectrumKey(components);
+        Spectrum spectrum = spectrumCache.get(key);
+        if (spectrum == null) {
+            spectrum = computeSpectrum(key);
+            spectrumCache.put(key, spectrum);
         }
+        return spectrum;
+    }
+    
+    /**
+     * Compute FFT magnitude spectrum and its peak statistics for any waveform
+     */
+    private Spectrum computeSpectrum(SpectrumKey key) {
+        int n = fftSize;
         
-        double[] even = new double[n / 2];
-        double[] odd = new double[n / 2];
-        for (int i = 0; i < n / 2; i++) {
-            even[i] = signal[2 * i];
-            odd[i] = signal[2 * i + 1];
+        // Generate signal
+        generateSignal(signalBuffer, n, 0, sampleRate, key.components);
+        
+        // Perform windowed FFT (only positive frequencies), normalize magnitudes
+        double[] magnitudes = new double[spectrumBins];
+        window.apply(signalBuffer, n);
+        fft.realForward(signalBuffer, fftRe, fftIm);
+        FFT.magnitudes(fftRe, fftIm, magnitudes, spectrumBins, magnitudeScale);
+        
+        // Peak (ignoring DC for the dominant frequency) and overall maximum
+        int peakIndex = 0;
+        double peakMagnitude = 0;
+        double maxMagnitude = magnitudes[0];
+        for (int i = 1; i < magnitudes.length; i++) {
+            if (magnitudes[i] > peakMagnitude) {
+                peakMagnitude = magnitudes[i];
+                peakIndex = i;
+            }
         }
+        maxMagnitude = Math.max(maxMagnitude, peakMagnitude);
         
-        Complex[] evenFFT = fft(even);
-        Complex[] oddFFT = fft(odd);
-        
-        Complex[] result = new Complex[n];
-        for (int k = 0; k < n / 2; k++) {
-            double angle = -2 * Math.PI * k / n;
-            Complex wk = new Complex(Math.cos(angle), Math.sin(angle));
-            Complex term = wk.multiply(oddFFT[k]);
-            
-            result[k] = evenFFT[k].add(term);
-            result[k + n / 2] = evenFFT[k].subtract(term);
+        // Count significant harmonics (above threshold)
+        double threshold = maxMagnitude * HARMONIC_THRESHOLD;
+        int harmonics = 0;
+        for (double mag : magnitudes) {
+            if (mag > threshold) harmonics++;
         }
         
-        return result;
+        double frequencyResolution = sampleRate / (2.0 * magnitudes.length);
+        SpectralPeaks peaks = new SpectralPeaks(MAX_PEAKS);
+        peaks.find(magnitudes, magnitudes.length, frequencyResolution, maxMagnitude * PEAK_FLOOR);
+        return new Spectrum(key, magnitudes, maxMagnitude, peakIndex * frequencyResolution, harmonics, peaks);
     }
     
     /**
      * Draw FFT bars as continuous spectrum
      */
     private void drawFFTBars(GameRenderer renderer, double startX, double startY,
-                            double width, double height, double[] magnitudes, Color color) {
-        double maxMagnitude = 0;
-        for (double mag : magnitudes) {
-            if (mag > maxMagnitude) maxMagnitude = mag;
-        }
+                            double width, double height, Spectrum spectrum, Color color) {
+        double[] magnitudes = spectrum.magnitudes;
+        double maxMagnitude = spectrum.maxMagnitude;
         
         if (maxMagnitude == 0) maxMagnitude = 1.0;
         
-        double barWidth = width / magnitudes.length;
+        // Large FFTs have more bins than pixels, draw the peak of each group
+        int bars = Math.min(magnitudes.length, (int) width);
+        double barWidth = width / bars;
         
-        for (int i = 0; i < magnitudes.length; i++) {
-            double barHeight = (magnitudes[i] / maxMagnitude) * height;
+        for (int i = 0; i < bars; i++) {
+            int binStart = i * magnitudes.length / bars;
+            int binEnd = (i + 1) * magnitudes.length / bars;
+            double peak = 0;
+            for (int bin = binStart; bin < binEnd; bin++) {
+                if (magnitudes[bin] > peak) peak = magnitudes[bin];
+            }
+            
+            double barHeight = (peak / maxMagnitude) * height;
             double x = startX + i * barWidth;
             double y = startY + height - barHeight;
             
@@ -529,21 +860,22 @@ public class FrequencySpectrumTask extends Task {
     }
     
     /**
-     * Find dominant frequency in FFT spectrum
+     * Draw the scrolling spectrogram, newest column on the right
      */
-    private double findDominantFrequency(double[] magnitudes) {
-        int maxIndex = 0;
-        double maxMagnitude = 0;
-        
-        for (int i = 1; i < magnitudes.length; i++) {
-            if (magnitudes[i] > maxMagnitude) {
-                maxMagnitude = magnitudes[i];
-                maxIndex = i;
-            }
+    private void drawSpectrogram(GameRenderer renderer, double startX, double startY,
+                                 double width, double height) {
+        if (spectrogramImage == null) return;
+        
+        // The image is a ring: columns from the write position on are the oldest
+        int older = SPECTROGRAM_HISTORY - spectrogramWriteColumn;
+        double columnWidth = width / SPECTROGRAM_HISTORY;
+        renderer.drawImageRegion(spectrogramImage, spectrogramWriteColumn, 0, older, spectrogramRows,
+                                 startX, startY, older * columnWidth, height);
+        if (spectrogramWriteColumn > 0) {
+            renderer.drawImageRegion(spectrogramImage, 0, 0, spectrogramWriteColumn, spectrogramRows,
+                                     startX + older * columnWidth, startY,
+                                     spectrogramWriteColumn * columnWidth, height);
         }
-        
-        double frequencyResolution = SAMPLE_RATE / (2.0 * magnitudes.length);
-        return maxIndex * frequencyResolution;
     }
     
     /**
@@ -557,16 +889,16 @@ public class FrequencySpectrumTask extends Task {
         drawWaveformSelector(renderer, startY, selectedParameter == PARAM_WAVEFORM);
         
         drawParameterSlider(renderer, "FREQ (Hz)", 
-                           currentFrequency, frequencyMin, frequencyMax,
+                           currentComponents[selectedComponent].frequency, frequencyMin, frequencyMax,
                            startY + spacing, selectedParameter == PARAM_FREQUENCY);
         
         drawParameterSlider(renderer, "PHASE (rad)", 
-                           currentPhase, phaseMin, phaseMax,
+                           currentComponents[selectedComponent].phase, phaseMin, phaseMax,
                            startY + 2 * spacing, selectedParameter == PARAM_PHASE);
         
         if (difficulty < 3){
         drawParameterSlider(renderer, "AMPLITUDE", 
-                           currentAmplitude, amplitudeMin, amplitudeMax,
+                           currentComponents[selectedComponent].amplitude, amplitudeMin, amplitudeMax,
                            startY + 3 * spacing, selectedParameter == PARAM_AMPLITUDE);    
         }               
     }
@@ -597,7 +929,7 @@ public class FrequencySpectrumTask extends Task {
         renderer.drawRect(selectorX, y, selectorWidth, selectorHeight, borderColor);
         
         // Current waveform name (centered)
-        renderer.drawCenteredText(currentWaveform.getDisplayName(), 
+        renderer.drawCenteredText(currentComponents[selectedComponent].waveform.getDisplayName(), 
                                  selectorX + selectorWidth / 2, y + 22,
                                  normalFont, labelColor);
         
@@ -685,17 +1017,26 @@ public class FrequencySpectrumTask extends Task {
     
     @Override
     protected boolean checkAnswer() {
+        // Composite signals: compare spectra, not parameters
+        if (isComposite()) {
+            updateSpectra();
+            return getSpectralDistance() <= tolerance;
+        }
+        
+        Component current = currentComponents[0];
+        Component target = targetComponents[0];
+        
         // Must match waveform type first!
-        if (currentWaveform != targetWaveform) {
-            System.out.println("Wrong waveform type: " + currentWaveform + " vs " + targetWaveform);
+        if (current.waveform != target.waveform) {
+            System.out.println("Wrong waveform type: " + current.waveform + " vs " + target.waveform);
             return false;
         }
         boolean ampCorrect = true;
         if (difficulty < 3) {
-            ampCorrect = Math.abs(currentAmplitude - targetAmplitude) <= tolerance;
+            ampCorrect = Math.abs(current.amplitude - target.amplitude) <= tolerance;
         }
-        boolean freqCorrect = Math.abs(currentFrequency - targetFrequency) <= tolerance;
-        boolean phaseCorrect = Math.abs(currentPhase % (2 * Math.PI)  - targetPhase % (2 * Math.PI))  <= tolerance;
+        boolean freqCorrect = Math.abs(current.frequency - target.frequency) <= tolerance;
+        boolean phaseCorrect = Math.abs(current.phase % (2 * Math.PI)  - target.phase % (2 * Math.PI))  <= tolerance;
         
         return ampCorrect && freqCorrect && phaseCorrect;
     }
@@ -703,41 +1044,100 @@ public class FrequencySpectrumTask extends Task {
     @Override
     public void reset() {
         super.reset();
-        currentAmplitude = (amplitudeMin + amplitudeMax) / 2.0;
-        currentFrequency = (frequencyMin + frequencyMax) / 2.0;
-        currentPhase = (phaseMin + phaseMax) / 2.0;
-        currentWaveform = WaveformType.SINE;
+        resetCurrentComponents();
         selectedParameter = PARAM_WAVEFORM;
     }
     
     /**
-     * Complex number class for FFT calculations
+     * One term of a (possibly composite) signal
      */
-    private static class Complex {
-        private final double real;
-        private final double imag;
+    public static final class Component {
+        private WaveformType waveform;
+        private double amplitude;
+        private double frequency;
+        private double phase;
+        
+        public Component(WaveformType waveform, double amplitude, double frequency, double phase) {
+            this.waveform = waveform;
+            this.amplitude = amplitude;
+            this.frequency = frequency;
+            this.phase = phase;
+        }
         
-        public Complex(double real, double imag) {
-            this.real = real;
-            this.imag = imag;
+        Component copy() {
+            return new Component(waveform, amplitude, frequency, phase);
         }
         
-        public Complex add(Complex other) {
-            return new Complex(real + other.real, imag + other.imag);
+        boolean matches(Component other) {
+            return waveform == other.waveform
+                && Double.compare(amplitude, other.amplitude) == 0
+                && Double.compare(frequency, other.frequency) == 0
+                && Double.compare(phase, other.phase) == 0;
+        }
+        
+        public WaveformType getWaveform() { return waveform; }
+        public double getAmplitude() { return amplitude; }
+        public double getFrequency() { return frequency; }
+        public double getPhase() { return phase; }
+    }
+    
+    /**
+     * Signal parameters a spectrum was computed for (snapshot of the components)
+     */
+    private static final class SpectrumKey {
+        private final Component[] components;
+        private final int hash;
+        
+        SpectrumKey(Component[] components) {
+            this.components = new Component[components.length];
+            int h = 1;
+            for (int i = 0; i < components.length; i++) {
+                Component c = components[i];
+                this.components[i] = c.copy();
+                h = 31 * h + Objects.hash(c.amplitude, c.frequency, c.phase, c.waveform);
+            }
+            this.hash = h;
         }
         
-        public Complex subtract(Complex other) {
-            return new Complex(real - other.real, imag - other.imag);
+        boolean matches(Component[] others) {
+            if (others.length != components.length) return false;
+            for (int i = 0; i < components.length; i++) {
+                if (!components[i].matches(others[i])) return false;
+            }
+            return true;
         }
         
-        public Complex multiply(Complex other) {
-            double r = real * other.real - imag * other.imag;
-            double i = real * other.imag + imag * other.real;
-            return new Complex(r, i);
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SpectrumKey)) return false;
+            return matches(((SpectrumKey) o).components);
         }
         
-        public double abs() {
-            return Math.sqrt(real * real + imag * imag);
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    /**
+     * Magnitude spectrum with its derived statistics
+     */
+    private static final class Spectrum {
+        private final SpectrumKey key;
+        private final double[] magnitudes;
+        private final double maxMagnitude;
+        private final double dominantFrequency;
+        private final int harmonics;
+        private final SpectralPeaks peaks;
+        
+        Spectrum(SpectrumKey key, double[] magnitudes, double maxMagnitude,
+                 double dominantFrequency, int harmonics, SpectralPeaks peaks) {
+            this.key = key;
+            this.magnitudes = magnitudes;
+            this.maxMagnitude = maxMagnitude;
+            this.dominantFrequency = dominantFrequency;
+            this.harmonics = harmonics;
+            this.peaks = peaks;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package com.interplanetarycrash.tasks;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.interplanetarycrash.logic.CircuitCodec;
+import com.interplanetarycrash.logic.CircuitGrid;
+import com.interplanetarycrash.logic.NetlistCompiler;
+
+/**
+ * Grades circuit files (see CircuitCodec) against the LOGIC tasks they
+ * name, e.g. the .circuit files a class of players saved
+ *
+ * Each file is rebuilt on its task's grid and tested exactly as the game
+ * tests it. Files are graded in parallel; each task file is read once and
+ * shared. Prints one line per circuit and a summary, and exits with status
+ * 1 if any circuit file cannot be read or names a missing task. The TASK
+ * line must be a plain levelN_moduleM[_ID].txt name, so a circuit file
+ * cannot make the grader open anything outside the task directory.
+ *
+ * Usage: LogicCircuitGrader [-tasks directory] circuit files or directories
+ */
+public class LogicCircuitGrader {
+    
+    private static final String CIRCUIT_EXTENSION = ".circuit";
+    
+    private enum Grade { PASS, FAIL, ERROR }
+    
+    private static final class Report {
+        final Grade grade;
+        final String text;
+        
+        Report(Grade grade, String text) {
+            this.grade = grade;
+            this.text = text;
+        }
+    }
+    
+    private final File taskDirectory;
+    private final Map<String, LogicTaskDefinition> tasks = new ConcurrentHashMap<>();
+    
+    private LogicCircuitGrader(File taskDirectory) {
+        this.taskDirectory = taskDirectory;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        File taskDirectory = new File(TaskLoader.TASK_DIRECTORY);
+        List<File> circuits = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-tasks") && i + 1 < args.length) {
+                taskDirectory = new File(args[++i]);
+            } else {
+                collectCircuits(new File(args[i]), circuits);
+            }
+        }
+        if (circuits.isEmpty()) {
+            System.err.println("Usage: LogicCircuitGrader [-tasks directory] circuit files or directories");
+            System.exit(2);
+        }
+        circuits.sort(null);
+        
+        LogicCircuitGrader grader = new LogicCircuitGrader(taskDirectory);
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<Report>> reports = new ArrayList<>();
+        for (File circuit : circuits) {
+            reports.add(pool.submit(() -> grader.grade(circuit)));
+        }
+        
+        int[] counts = new int[Grade.values().length];
+        for (Future<Report> report : reports) {
+            Report done = report.get();
+            System.out.println(done.text);
+            counts[done.grade.ordinal()]++;
+        }
+        pool.shutdown();
+        
+        System.out.println("\n" + counts[Grade.PASS.ordinal()] + " passed, "
+                           + counts[Grade.FAIL.ordinal()] + " failed, "
+                           + counts[Grade.ERROR.ordinal()] + " unreadable");
+        System.exit(counts[Grade.ERROR.ordinal()] > 0 ? 1 : 0);
+    }
+    
+    private static void collectCircuits(File path, List<File> circuits) {
+        File[] children = path.listFiles();
+        if (children == null) {
+            circuits.add(path);
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory() || child.getName().endsWith(CIRCUIT_EXTENSION)) {
+                collectCircuits(child, circuits);
+            }
+        }
+    }
+    
+    /**
+     * Grade one circuit file
+     */
+    Report grade(File file) {
+        String name = file.getPath();
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            String taskFilename = CircuitCodec.readTask(lines);
+            if (taskFilename == null) {
+                return new Report(Grade.ERROR, name + ": no TASK line");
+            }
+            if (!isTaskFilename(taskFilename)) {
+                // Never follow a submitted name outside the task directory
+                return new Report(Grade.ERROR, name + ": TASK is not a levelN_moduleM[_ID].txt file name");
+            }
+            LogicTaskDefinition task = tasks.computeIfAbsent(taskFilename, this::readTask);
+            
+            CircuitGrid grid = LogicGatesTask.createGrid(task.getGridWidth(), task.getGridHeight(),
+                                                         task.getInputCount());
+            CircuitCodec.read(lines, grid);
+            CircuitCheck result = task.check(NetlistCompiler.compile(grid));
+            
+            return new Report(result.isPassed() ? Grade.PASS : Grade.FAIL,
+                              name + " [" + taskFilename + "]: " + (result.isPassed() ? "PASS" : "FAIL")
+                              + ", " + grid.getGates().size() + " gates: " + result.getMessage());
+        
+        } catch (Exception e) {
+            return new Report(Grade.ERROR, name + ": cannot be graded: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * True for a plain task file name such as level1_module2.txt, with no
+     * directory part
+     */
+    private static boolean isTaskFilename(String taskFilename) {
+        return taskFilename.indexOf('/') < 0 && taskFilename.indexOf('\\') < 0
+               && !taskFilename.contains("..") && TaskLoader.parseTaskFilename(taskFilename) != null;
+    }
+    
+    private LogicTaskDefinition readTask(String taskFilename) {
+        try {
+            List<String> lines = TaskLoader.readLines(new File(taskDirectory, taskFilename).toPath());
+            if (lines.isEmpty() || TaskType.fromCode(lines.get(0).trim()) != TaskType.LOGIC_GATES) {
+                throw new IllegalArgumentException(taskFilename + " is not a LOGIC task");
+            }
+            return TaskLoader.readLogicTask(lines);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("task " + taskFilename + ": " + e.getMessage(), e);
+        }
+    }
+}
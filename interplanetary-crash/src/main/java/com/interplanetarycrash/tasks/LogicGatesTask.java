@@ -2,15 +2,23 @@ package com.interplanetarycrash.tasks;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import com.interplanetarycrash.GameApplication;
 import com.interplanetarycrash.assets.AssetManager;
 import com.interplanetarycrash.input.InputHandler;
+import com.interplanetarycrash.logic.CircuitCodec;
+import com.interplanetarycrash.logic.CircuitGrid;
+import com.interplanetarycrash.logic.Gate;
+import com.interplanetarycrash.logic.GateType;
+import com.interplanetarycrash.logic.LiveCircuit;
+import com.interplanetarycrash.logic.Netlist;
+import com.interplanetarycrash.logic.NetlistCompiler;
+import com.interplanetarycrash.logic.TruthTable;
 import com.interplanetarycrash.rendering.GameRenderer;
+import com.interplanetarycrash.rendering.OffscreenLayer;
 
 import javafx.scene.input.KeyCode;
 import javafx.scene.paint.Color;
@@ -22,19 +30,62 @@ import javafx.scene.text.Font;
  */
 public class LogicGatesTask extends Task {
     
-    private List<boolean[]> truthTable;
-    private int numInputs;
+    private final int numInputs;
     private Set<GateType> availableGates;
     
+    // Expected outputs, null for a sequence task
+    private final TruthTable table;
+    
+    // Sequence tasks: steps applied in order to a circuit that keeps its
+    // state, and only the marked steps have their output checked
+    private final List<boolean[]> steps;
+    private final boolean[] checkedSteps;
+    
+    // Table panel: rows are built only for the visible window
+    private static final int TABLE_ROWS_SHOWN = 12;
+    private int tableTop;
+    
     // Grid system
-    private static final int GRID_COLS = 25;
-    private static final int GRID_ROWS = 11;
+    private static final int DEFAULT_GRID_COLS = 25;
+    private static final int DEFAULT_GRID_ROWS = 11;
     private static final double CELL_SIZE = 35;
     private static final double GRID_START_X = 80;
     private static final double GRID_START_Y = 180;
     
-    private GridCell[][] grid;
-    private List<Gate> placedGates;
+    // Visible part of the grid, scrolled to keep the cursor inside
+    private static final int VIEW_COLS = 25;
+    private static final int VIEW_ROWS = 11;
+    private static final int SCROLL_MARGIN = 2;
+    
+    private final int gridCols;
+    private final int gridRows;
+    private final int viewCols, viewRows;
+    private int viewX, viewY;
+    
+    private static final Color BACKGROUND = Color.rgb(0, 10, 0);
+    private static final Color CELL_BACKGROUND = Color.rgb(0, 20, 0);
+    private static final Color CURSOR_HIGHLIGHT = Color.rgb(0, 255, 0, 0.12);
+    
+    // Picture of the visible cells, redrawn only where cells or their
+    // signals changed; the cursor is drawn over it every frame
+    private OffscreenLayer gridLayer;
+    private boolean[] dirtyCells;   // Per view cell, row by row
+    private int[] drawnSignals;     // Per view cell, the signal it was drawn with
+    private int layerViewX, layerViewY;
+    private long drawnVersion = -1;
+    
+    private CircuitGrid grid;
+    
+    // Compiled circuit, null after an edit until next needed
+    private Netlist netlist;
+    
+    // Grid contents before each edit, and after each undone one
+    private final List<CircuitGrid.Snapshot> undoHistory = new ArrayList<>();
+    private final List<CircuitGrid.Snapshot> redoHistory = new ArrayList<>();
+    
+    // Live signal values for the selected truth table row
+    private LiveCircuit live;
+    private int selectedRow;
     
     private int cursorX, cursorY;
     private GateType selectedGateType;
@@ -48,45 +99,151 @@ public class LogicGatesTask extends Task {
     
     public LogicGatesTask(String instruction, List<boolean[]> truthTable,
                          Set<GateType> availableGates, int difficulty) {
+        this(instruction, truthTable, availableGates, difficulty,
+             DEFAULT_GRID_COLS, DEFAULT_GRID_ROWS);
+    }
+    
+    /**
+     * @param gridCols grid width in cells (the view scrolls if it is wider than the screen)
+     * @param gridRows grid height in cells, grown if needed to fit the inputs
+     */
+    public LogicGatesTask(String instruction, List<boolean[]> truthTable,
+                         Set<GateType> availableGates, int difficulty,
+                         int gridCols, int gridRows) {
+        this(instruction, TruthTable.fromRows(truthTable), availableGates, difficulty, gridCols, gridRows);
+    }
+    
+    /**
+     * Task for a packed truth table (e.g. generated from a formula or minterms)
+     */
+    public LogicGatesTask(String instruction, TruthTable table,
+                         Set<GateType> availableGates, int difficulty,
+                         int gridCols, int gridRows) {
+        this(instruction, table, null, null, availableGates, difficulty, gridCols, gridRows);
+    }
+    
+    /**
+     * Task checked by a sequence of steps (e.g. clock cycles of a sequential circuit)
+     * @param steps input values and expected output, applied in order
+     * @param checked per step, false if its output is not checked
+     */
+    public static LogicGatesTask sequence(String instruction, List<boolean[]> steps, boolean[] checked,
+                                          Set<GateType> availableGates, int difficulty,
+                                          int gridCols, int gridRows) {
+        return new LogicGatesTask(instruction, null, steps, checked, availableGates, difficulty,
+                                  gridCols, gridRows);
+    }
+    
+    private LogicGatesTask(String instruction, TruthTable table, List<boolean[]> steps,
+                          boolean[] checkedSteps, Set<GateType> availableGates, int difficulty,
+                          int gridCols, int gridRows) {
         super(TaskType.LOGIC_GATES, instruction, difficulty);
         
-        this.truthTable = truthTable;
-        this.numInputs = truthTable.get(0).length - 1;
+        this.table = table;
+        this.steps = steps;
+        this.checkedSteps = checkedSteps;
+        this.numInputs = table != null ? table.getInputCount() : steps.get(0).length - 1;
         this.availableGates = availableGates;
-        this.placedGates = new ArrayList<>();
+        this.grid = createGrid(gridCols, gridRows, numInputs);
+        this.gridCols = grid.getWidth();
+        this.gridRows = grid.getHeight();
+        this.viewCols = Math.min(VIEW_COLS, this.gridCols);
+        this.viewRows = Math.min(VIEW_ROWS, this.gridRows);
         
         initializeGrid();
         
-        cursorX = GRID_COLS / 2;
-        cursorY = GRID_ROWS / 2;
+        cursorX = viewCols / 2;
+        cursorY = viewRows / 2;
         
         if (!availableGates.isEmpty()) {
             selectedGateType = availableGates.iterator().next();
         }
         
         drawingWire = false;
+        
+        AssetManager asset = AssetManager.getInstance();
+        titleFont = asset.getFont("retro_large");
+        labelFont = asset.getFont("retro");
+        smallFont = asset.getFont("retro_small");
     }
     
     private void initializeGrid() {
-        grid = new GridCell[GRID_ROWS][GRID_COLS];
-        for (int y = 0; y < GRID_ROWS; y++) {
-            for (int x = 0; x < GRID_COLS; x++) {
-                grid[y][x] = new GridCell();
-            }
-        }
+        live = new LiveCircuit(grid);
+        selectRow(0);
+        
+        gridLayer = new OffscreenLayer(viewCols * CELL_SIZE, viewRows * CELL_SIZE);
+        dirtyCells = new boolean[viewCols * viewRows];
+        drawnSignals = new int[viewCols * viewRows];
+        grid.addListener(this::markDirty);
+    }
+    
+    /**
+     * Empty grid with the inputs and output where tasks put them, grown
+     * if needed to fit the inputs (also used by tools checking task files)
+     */
+    static CircuitGrid createGrid(int gridCols, int gridRows, int numInputs) {
+        gridCols = Math.max(gridCols, 8);
+        gridRows = Math.max(gridRows, 3 * numInputs + 1);
+        CircuitGrid grid = new CircuitGrid(gridCols, gridRows);
         
         // Place inputs on left (column 1)
         for (int i = 0; i < numInputs; i++) {
             int y = 2 + i * 3;
-            if (y < GRID_ROWS) {
-                grid[y][1].type = ComponentType.INPUT;
-                grid[y][1].inputIndex = i;
+            if (y < gridRows) {
+                grid.setInput(1, y, i);
             }
         }
         
-        // Place output on right (column GRID_COLS-2)
-        int outputY = GRID_ROWS / 2;
-        grid[outputY][GRID_COLS - 2].type = ComponentType.OUTPUT;
+        // Place output on right (column gridCols-2)
+        grid.setOutput(gridCols - 2, gridRows / 2);
+        return grid;
+    }
+    
+    // ===== TABLE ROWS =====
+    
+    /**
+     * Rows listed in the table panel: the tested rows of the truth table
+     * in row order, or the steps of a sequence
+     */
+    private int listedRowCount() {
+        return table != null ? table.getTestedCount() : steps.size();
+    }
+    
+    private boolean[] listedInputs(int k) {
+        if (table != null) {
+            return table.getInputs(table.testedRow(k));
+        }
+        return Arrays.copyOf(steps.get(k), numInputs);
+    }
+    
+    private boolean listedOutput(int k) {
+        if (table != null) {
+            return table.getOutput(table.testedRow(k));
+        }
+        boolean[] step = steps.get(k);
+        return step.length == numInputs + 1 && step[numInputs];
+    }
+    
+    private boolean isListedChecked(int k) {
+        return table != null || checkedSteps[k];
+    }
+    
+    /**
+     * Show live signals for a listed row, scrolling the table panel to it
+     */
+    private void selectRow(int row) {
+        int count = listedRowCount();
+        if (count == 0) {
+            live.setInputs(new boolean[numInputs]);
+            return;
+        }
+        selectedRow = Math.max(0, Math.min(count - 1, row));
+        if (selectedRow < tableTop) {
+            tableTop = selectedRow;
+        } else if (selectedRow >= tableTop + TABLE_ROWS_SHOWN) {
+            tableTop = selectedRow - TABLE_ROWS_SHOWN + 1;
+        }
+        live.setInputs(listedInputs(selectedRow));
     }
     
     @Override
@@ -98,14 +255,15 @@ public class LogicGatesTask extends Task {
             cursorY = Math.max(0, cursorY - 1);
         }
         if (input.isKeyJustPressed(KeyCode.DOWN) || input.isKeyJustPressed(KeyCode.S)) {
-            cursorY = Math.min(GRID_ROWS - 1, cursorY + 1);
+            cursorY = Math.min(gridRows - 1, cursorY + 1);
         }
         if (input.isKeyJustPressed(KeyCode.LEFT) || input.isKeyJustPressed(KeyCode.A)) {
             cursorX = Math.max(0, cursorX - 1);
         }
         if (input.isKeyJustPressed(KeyCode.RIGHT) || input.isKeyJustPressed(KeyCode.D)) {
-            cursorX = Math.min(GRID_COLS - 1, cursorX + 1);
+            cursorX = Math.min(gridCols - 1, cursorX + 1);
         }
+        followCursor();
         
         // Cycle gates
         if (input.isKeyJustPressed(KeyCode.Q)) {
@@ -130,12 +288,52 @@ public class LogicGatesTask extends Task {
             deleteComponent();
         }
         
+        // History
+        if (input.isUndoing()) {
+            undo();
+        }
+        if (input.isRedoing()) {
+            redo();
+        }
+        
+        // Truth table row shown on the wires (SHIFT: a whole panel at a time)
+        int rowStep = input.isKeyPressed(KeyCode.SHIFT) ? TABLE_ROWS_SHOWN : 1;
+        if (input.isKeyJustPressed(KeyCode.PAGE_UP)) {
+            selectRow(selectedRow - rowStep);
+        }
+        if (input.isKeyJustPressed(KeyCode.PAGE_DOWN)) {
+            selectRow(selectedRow + rowStep);
+        }
+        if (input.isKeyJustPressed(KeyCode.HOME)) {
+            selectRow(0);
+        }
+        if (input.isKeyJustPressed(KeyCode.END)) {
+            selectRow(listedRowCount() - 1);
+        }
+        
+        // Re-evaluate what the edits touched
+        live.update();
+        
         // Test circuit
         if (input.isConfirming()) {
             submitAnswer();
         }
     }
     
+    /**
+     * Scroll the view so the cursor stays SCROLL_MARGIN cells from its edges
+     */
+    private void followCursor() {
+        int cols = viewCols;
+        int rows = viewRows;
+        if (cursorX < viewX + SCROLL_MARGIN) viewX = cursorX - SCROLL_MARGIN;
+        if (cursorX > viewX + cols - 1 - SCROLL_MARGIN) viewX = cursorX - cols + 1 + SCROLL_MARGIN;
+        if (cursorY < viewY + SCROLL_MARGIN) viewY = cursorY - SCROLL_MARGIN;
+        if (cursorY > viewY + rows - 1 - SCROLL_MARGIN) viewY = cursorY - rows + 1 + SCROLL_MARGIN;
+        viewX = Math.max(0, Math.min(gridCols - cols, viewX));
+        viewY = Math.max(0, Math.min(gridRows - rows, viewY));
+    }
+    
     private void cycleNextGate() {
         List<GateType> gates = new ArrayList<>(availableGates);
         int index = gates.indexOf(selectedGateType);
@@ -149,35 +347,12 @@ public class LogicGatesTask extends Task {
     }
     
     private void placeGate() {
-        // Check bounds
-        if (cursorX < 1 || cursorX >= GRID_COLS - 1 ||
-            cursorY < 1 || cursorY >= GRID_ROWS - 1) {
+        CircuitGrid.Snapshot before = grid.snapshot();
+        Gate gate = grid.placeGate(selectedGateType, cursorX, cursorY);
+        if (gate == null) {
             return;
         }
-        
-        // Check if 3x3 area is clear
-        for (int dy = -1; dy <= 1; dy++) {
-            for (int dx = -1; dx <= 1; dx++) {
-                GridCell cell = grid[cursorY + dy][cursorX + dx];
-                if (cell.type != ComponentType.EMPTY && cell.type != ComponentType.WIRE) {
-                    return;
-                }
-            }
-        }
-        
-        // Create gate
-        Gate gate = new Gate(selectedGateType, cursorX, cursorY);
-        placedGates.add(gate);
-        
-        // Mark grid
-        for (int dy = -1; dy <= 1; dy++) {
-            for (int dx = -1; dx <= 1; dx++) {
-                GridCell cell = grid[cursorY + dy][cursorX + dx];
-                cell.type = ComponentType.GATE;
-                cell.gate = gate;
-                System.out.println("Marking cell at (" + (cursorX + dx) + "," + (cursorY + dy) + ") as part of gate");
-            }
-        }
+        edited(before);
         
         System.out.println("Placed " + selectedGateType + " gate at (" + cursorX + "," + cursorY + ")");
     }
@@ -194,73 +369,55 @@ public class LogicGatesTask extends Task {
     }
     
     private void drawWireLine(int x1, int y1, int x2, int y2) {
-        if (x1 == x2) {
-            // Vertical
-            int startY = Math.min(y1, y2);
-            int endY = Math.max(y1, y2);
-            for (int y = startY; y <= endY; y++) {
-                if (grid[y][x1].type == ComponentType.EMPTY) {
-                    grid[y][x1].type = ComponentType.WIRE;
-                }
-            }
-        } else if (y1 == y2) {
-            // Horizontal
-            int startX = Math.min(x1, x2);
-            int endX = Math.max(x1, x2);
-            for (int x = startX; x <= endX; x++) {
-                if (grid[y1][x].type == ComponentType.EMPTY) {
-                    grid[y1][x].type = ComponentType.WIRE;
-                }
-            }
-        } else {
-            // L-shaped
-            for (int x = Math.min(x1, x2); x <= Math.max(x1, x2); x++) {
-                if (grid[y1][x].type == ComponentType.EMPTY) {
-                    grid[y1][x].type = ComponentType.WIRE;
-                }
-            }
-            for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); y++) {
-                if (grid[y][x2].type == ComponentType.EMPTY) {
-                    grid[y][x2].type = ComponentType.WIRE;
-                }
-            }
-        }
+        CircuitGrid.Snapshot before = grid.snapshot();
+        grid.drawWire(x1, y1, x2, y2);
+        edited(before);
     }
     
     private void deleteComponent() {
-        GridCell cell = grid[cursorY][cursorX];
-        
-        if (cell.type == ComponentType.GATE && cell.gate != null) {
-            Gate gateToRemove = cell.gate;
-            placedGates.remove(gateToRemove);
-            
-            // Clear 3x3 area
-            for (int dy = -1; dy <= 1; dy++) {
-                for (int dx = -1; dx <= 1; dx++) {
-                    int gy = gateToRemove.centerY + dy;
-                    int gx = gateToRemove.centerX + dx;
-                    if (gy >= 0 && gy < GRID_ROWS && gx >= 0 && gx < GRID_COLS) {
-                        grid[gy][gx].type = ComponentType.EMPTY;
-                        grid[gy][gx].gate = null;
-                    }
-                }
-            }
-            System.out.println("Deleted gate at (" + gateToRemove.centerX + "," + gateToRemove.centerY + ")");
-        } else if (cell.type == ComponentType.WIRE) {
-            cell.type = ComponentType.EMPTY;
+        CircuitGrid.Snapshot before = grid.snapshot();
+        Gate removed = grid.delete(cursorX, cursorY);
+        if (removed != null) {
+            System.out.println("Deleted gate at (" + removed.getCenterX() + "," + removed.getCenterY() + ")");
         }
+        edited(before);
+    }
+    
+    // ===== HISTORY =====
+    
+    /**
+     * Remember the grid as it was before an edit (unless nothing changed)
+     */
+    private void edited(CircuitGrid.Snapshot before) {
+        if (grid.isUnchangedSince(before)) {
+            return;
+        }
+        undoHistory.add(before);
+        redoHistory.clear();
+        netlist = null;
+    }
+    
+    private void undo() {
+        if (undoHistory.isEmpty()) return;
+        redoHistory.add(grid.snapshot());
+        grid.restore(undoHistory.remove(undoHistory.size() - 1));
+        drawingWire = false;
+        netlist = null;
+    }
+    
+    private void redo() {
+        if (redoHistory.isEmpty()) return;
+        undoHistory.add(grid.snapshot());
+        grid.restore(redoHistory.remove(redoHistory.size() - 1));
+        drawingWire = false;
+        netlist = null;
     }
     
     @Override
     public void render(GameRenderer renderer) {
-        AssetManager asset = AssetManager.getInstance();
-        titleFont = asset.getFont("retro_large");
-        labelFont = asset.getFont("retro");
-        smallFont = asset.getFont("retro_small");
-        
         renderer.fillRect(0, 0, GameApplication.LOGICAL_WIDTH,
                          GameApplication.LOGICAL_HEIGHT,
-                         Color.rgb(0, 10, 0));
+                         BACKGROUND);
         
         renderer.drawCenteredText(
             "REPAIR MODULE - BUILD LOGIC CIRCUIT",
@@ -287,7 +444,7 @@ public class LogicGatesTask extends Task {
         } else {
             String hint = drawingWire 
                 ? "Move to end, press F to finish "
-                : "↑↓ ←→ or WSAD: Move | Q/E: Gate | SPACE: Place | F: Wire | BKSP: Delete | ENTER: Test | ESC: Exit";
+                : "↑↓ ←→ or WSAD: Move | Q/E: Gate | SPACE: Place | F: Wire | BKSP: Delete | CTRL+Z/Y: Undo/Redo | PGUP/PGDN: Row | ENTER: Test | ESC: Exit";
             
             renderer.drawCenteredText(
                 hint,
@@ -300,41 +457,160 @@ public class LogicGatesTask extends Task {
     }
     
     private void drawGrid(GameRenderer renderer) {
-        for (int y = 0; y < GRID_ROWS; y++) {
-            for (int x = 0; x < GRID_COLS; x++) {
-                double cellX = GRID_START_X + x * CELL_SIZE;
-                double cellY = GRID_START_Y + y * CELL_SIZE;
-                
-                GridCell cell = grid[y][x];
-                Gate gate = cell.gate;
-                if (gate == null) {
-                    Color bgColor = Color.rgb(0, 20, 0);
-                    if (x == cursorX && y == cursorY) {
-                        bgColor = Color.rgb(0, 50, 0);
-                    }
-                    renderer.fillRect(cellX, cellY, CELL_SIZE - 2, CELL_SIZE - 2, bgColor);
-                    renderer.drawRect(cellX, cellY, CELL_SIZE - 2, CELL_SIZE - 2, 
-                                    GameRenderer.RETRO_GREEN_DARKER);
-                }
-                
-                drawCell(renderer, cell, cellX, cellY, x, y);
-            }
+        if (gridLayer.prepare(renderer) || viewX != layerViewX || viewY != layerViewY) {
+            Arrays.fill(dirtyCells, true);
+            layerViewX = viewX;
+            layerViewY = viewY;
+        }
+        if (live.getVersion() != drawnVersion) {
+            markChangedSignals();
+            drawnVersion = live.getVersion();
+        }
+        redrawDirtyCells();
+        gridLayer.draw(renderer, GRID_START_X, GRID_START_Y);
+        
+        // Overlay, clipped to the view: the wire start may have scrolled out of it
+        renderer.save();
+        renderer.clipRect(GRID_START_X, GRID_START_Y, viewCols * CELL_SIZE, viewRows * CELL_SIZE);
+        if (grid.getGate(cursorX, cursorY) == null) {
+            renderer.fillRect(screenX(cursorX), screenY(cursorY), CELL_SIZE - 2, CELL_SIZE - 2,
+                            CURSOR_HIGHLIGHT);
         }
         
         if (drawingWire) {
-            double startCellX = GRID_START_X + wireStartX * CELL_SIZE;
-            double startCellY = GRID_START_Y + wireStartY * CELL_SIZE;
+            double startCellX = screenX(wireStartX);
+            double startCellY = screenY(wireStartY);
             renderer.drawRect(startCellX - 2, startCellY - 2, CELL_SIZE + 2, CELL_SIZE + 2,
                             Color.YELLOW);
         }
+        renderer.restore();
+        
+        drawScrollBars(renderer, viewCols, viewRows);
+    }
+    
+    // ===== GRID LAYER =====
+    
+    /**
+     * Grid listener: a cell changed, redraw it next frame if visible
+     */
+    private void markDirty(int x, int y) {
+        int col = x - layerViewX;
+        int row = y - layerViewY;
+        if (col >= 0 && col < viewCols && row >= 0 && row < viewRows) {
+            dirtyCells[row * viewCols + col] = true;
+        }
+    }
+    
+    /**
+     * Mark the visible cells whose wire or gate output changed value
+     */
+    private void markChangedSignals() {
+        grid.forEachOccupied(layerViewX, layerViewY,
+                             layerViewX + viewCols - 1, layerViewY + viewRows - 1, (x, y) -> {
+            int index = (y - layerViewY) * viewCols + (x - layerViewX);
+            if (signalAt(x, y) != drawnSignals[index]) {
+                dirtyCells[index] = true;
+            }
+        });
+    }
+    
+    /**
+     * Signal a cell is drawn with (UNKNOWN for cells that show none)
+     */
+    private int signalAt(int x, int y) {
+        switch (grid.getType(x, y)) {
+            case WIRE:
+            case OUTPUT:
+                return live.getSignal(x, y);
+            case GATE:
+                Gate gate = grid.getGate(x, y);
+                return live.getSignal(gate.getOutputX(), gate.getOutputY());
+            default:
+                return LiveCircuit.UNKNOWN;
+        }
     }
     
-    private void drawCell(GameRenderer renderer, GridCell cell, double x, double y, int gridX, int gridY) {
+    private void redrawDirtyCells() {
+        // Gates are drawn whole, so a change anywhere on one redraws all its cells
+        Set<Gate> gates = new LinkedHashSet<>();
+        for (int i = 0; i < dirtyCells.length; i++) {
+            Gate gate = dirtyCells[i] ? grid.getGate(layerViewX + i % viewCols, layerViewY + i / viewCols) : null;
+            if (gate != null && gates.add(gate)) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        markDirty(gate.getCenterX() + dx, gate.getCenterY() + dy);
+                    }
+                }
+            }
+        }
+        
+        GameRenderer layer = null;
+        for (int i = 0; i < dirtyCells.length; i++) {
+            if (!dirtyCells[i]) continue;
+            if (layer == null) {
+                layer = gridLayer.getRenderer();
+            }
+            int x = layerViewX + i % viewCols;
+            int y = layerViewY + i / viewCols;
+            double cellX = (i % viewCols) * CELL_SIZE;
+            double cellY = (i / viewCols) * CELL_SIZE;
+            
+            layer.fillRect(cellX, cellY, CELL_SIZE, CELL_SIZE, BACKGROUND);
+            if (grid.getGate(x, y) == null) {
+                layer.fillRect(cellX, cellY, CELL_SIZE - 2, CELL_SIZE - 2, CELL_BACKGROUND);
+                layer.drawRect(cellX, cellY, CELL_SIZE - 2, CELL_SIZE - 2, 
+                             GameRenderer.RETRO_GREEN_DARKER);
+                drawCell(layer, cellX, cellY, x, y);
+            }
+            drawnSignals[i] = signalAt(x, y);
+            dirtyCells[i] = false;
+        }
+        
+        for (Gate gate : gates) {
+            drawGate(layer, gate, (gate.getCenterX() - layerViewX) * CELL_SIZE,
+                     (gate.getCenterY() - layerViewY) * CELL_SIZE);
+        }
+    }
+    
+    /**
+     * Position bars along the bottom and right edges when the grid is larger than the view
+     */
+    private void drawScrollBars(GameRenderer renderer, int cols, int rows) {
+        double viewWidth = cols * CELL_SIZE;
+        double viewHeight = rows * CELL_SIZE;
+        
+        if (gridCols > cols) {
+            double barX = GRID_START_X + viewWidth * viewX / gridCols;
+            double barWidth = viewWidth * cols / gridCols;
+            renderer.fillRect(barX, GRID_START_Y + viewHeight + 2, barWidth, 4,
+                            GameRenderer.RETRO_GREEN_DARK);
+        }
+        if (gridRows > rows) {
+            double barY = GRID_START_Y + viewHeight * viewY / gridRows;
+            double barHeight = viewHeight * rows / gridRows;
+            renderer.fillRect(GRID_START_X + viewWidth + 2, barY, 4, barHeight,
+                            GameRenderer.RETRO_GREEN_DARK);
+        }
+        if (gridCols > cols || gridRows > rows) {
+            renderer.drawText("(" + cursorX + "," + cursorY + ")", GRID_START_X,
+                            GRID_START_Y - 6, smallFont, GameRenderer.RETRO_GREEN_DARKER);
+        }
+    }
+    
+    private double screenX(int gridX) {
+        return GRID_START_X + (gridX - viewX) * CELL_SIZE;
+    }
+    
+    private double screenY(int gridY) {
+        return GRID_START_Y + (gridY - viewY) * CELL_SIZE;
+    }
+    
+    private void drawCell(GameRenderer renderer, double x, double y, int gridX, int gridY) {
         Color color = GameRenderer.RETRO_GREEN;
         
-        switch (cell.type) {
+        switch (grid.getType(gridX, gridY)) {
             case INPUT:
-                char inputName = (char)('A' + cell.inputIndex);
+                char inputName = (char)('A' + grid.getInputIndex(gridX, gridY));
                 renderer.fillRect(x+2 , y+2, CELL_SIZE-6, CELL_SIZE-6, 
                                 GameRenderer.RETRO_GREEN_DARK);
                 renderer.drawRect(x+2, y+2, CELL_SIZE-6, CELL_SIZE-6, color);
@@ -348,18 +624,11 @@ public class LogicGatesTask extends Task {
                                 Color.rgb(0, 30, 0));
                 renderer.drawRect(x+2, y+2, CELL_SIZE-6, CELL_SIZE-6, color);
                 renderer.drawCenteredText("OUT", x + CELL_SIZE / 2, y + CELL_SIZE / 2 + 3,
-                                         smallFont, color);
+                                         smallFont, signalColor(live.getSignal(gridX, gridY)));
                 break;
                 
-            case GATE:
-                Gate gate = cell.gate;
-                if (gate != null && gridX == gate.centerX && gridY == gate.centerY) {
-                    drawGate(renderer, gate, x, y);
-                }
-                break;
-
-                
             case WIRE:
+                color = signalColor(live.getSignal(gridX, gridY));
                 renderer.drawLine(x + CELL_SIZE / 2, y + 4, 
                                 x + CELL_SIZE / 2, y + CELL_SIZE - 4,
                                 color, 2);
@@ -368,8 +637,24 @@ public class LogicGatesTask extends Task {
                                 color, 2);
                 break;
                 
-            case EMPTY:
-                break;
+            default:
+                break; // Gates are drawn whole by redrawDirtyCells
+        }
+    }
+    
+    /**
+     * Wire colour for a live signal
+     */
+    private Color signalColor(int signal) {
+        switch (signal) {
+            case LiveCircuit.HIGH:
+                return GameRenderer.RETRO_GREEN;
+            case LiveCircuit.LOW:
+                return GameRenderer.RETRO_GREEN_DARKER;
+            case LiveCircuit.CONFLICT:
+                return Color.RED;
+            default:
+                return Color.rgb(70, 90, 70);
         }
     }
     
@@ -381,30 +666,22 @@ public class LogicGatesTask extends Task {
         renderer.fillRect(x, y, gateSize, gateSize, Color.rgb(0, 40, 0));
         renderer.drawRect(x, y, gateSize, gateSize, GameRenderer.RETRO_GREEN);
         
-        renderer.drawCenteredText(gate.type.toString(), 
+        renderer.drawCenteredText(gate.getType().toString(), 
                                  centerX + CELL_SIZE / 2, 
                                  centerY + CELL_SIZE / 2 + 4,
                                  labelFont, GameRenderer.RETRO_GREEN);
         
         // Inputs
-        double inputY1 = centerY - CELL_SIZE / 2;
-        double inputY2 = centerY + 3 * CELL_SIZE / 2;
-        
-        if (!gate.type.isSingleInput()) {
-            renderer.fillRect(x + 2.5, inputY1-2.5, 5, 5, GameRenderer.RETRO_GREEN);
-            renderer.fillRect(x + 2.5, inputY2-2.5, 5, 5, GameRenderer.RETRO_GREEN);
-            renderer.drawText("A", x + 15, inputY1 + 4, smallFont, 
+        for (int p = 0; p < gate.getPinCount(); p++) {
+            double pinY = centerY + CELL_SIZE / 2 + (gate.getPinY(p) - gate.getCenterY()) * CELL_SIZE;
+            renderer.fillRect(x + 2.5, pinY - 2.5, 5, 5, GameRenderer.RETRO_GREEN);
+            renderer.drawText(gate.getType().getPinName(p), x + 15, pinY + 4, smallFont,
                             GameRenderer.RETRO_GREEN_DARK);
-            renderer.drawText("B", x + 15, inputY2 + 4, smallFont, 
-                            GameRenderer.RETRO_GREEN_DARK);
-        } else {
-            renderer.fillRect(x + 2.5, centerY + CELL_SIZE / 2 - 2.5, 5, 5, GameRenderer.RETRO_GREEN);
-            renderer.drawText("A", x + 15, centerY + CELL_SIZE / 2 + 4, 
-                            smallFont, GameRenderer.RETRO_GREEN_DARK);
         }
         
         // Output
-        renderer.fillRect(x + gateSize - 7.5, centerY + CELL_SIZE / 2 - 2.5, 5, 5, GameRenderer.RETRO_GREEN);
+        Color outputColor = signalColor(live.getSignal(gate.getOutputX(), gate.getOutputY()));
+        renderer.fillRect(x + gateSize - 7.5, centerY + CELL_SIZE / 2 - 2.5, 5, 5, outputColor);
         renderer.drawText("Y", x + gateSize - 20, centerY + CELL_SIZE / 2 + 4, 
                         smallFont, GameRenderer.RETRO_GREEN_DARK);
     }
@@ -433,31 +710,52 @@ public class LogicGatesTask extends Task {
         double startX = 1000;
         double startY = 190;
         
-        renderer.drawText("Truth Table:", startX, startY, labelFont, GameRenderer.RETRO_GREEN);
+        renderer.drawText(checkedSteps == null ? "Truth Table:" : "Test Sequence:",
+                         startX, startY, labelFont, GameRenderer.RETRO_GREEN);
         
+        // Wide tables drop the spaces between input columns
+        String gap = numInputs > 8 ? "" : " ";
         StringBuilder header = new StringBuilder();
         for (int i = 0; i < numInputs; i++) {
-            header.append((char)('A' + i)).append(" ");
+            header.append((char)('A' + i)).append(gap);
         }
-        header.append("| Y");
+        header.append(gap.isEmpty() ? " | Y" : "| Y");
         renderer.drawText(header.toString(), startX, startY + 20, smallFont, 
                          GameRenderer.RETRO_GREEN_DARK);
         
         renderer.drawText("-------", startX, startY + 35, smallFont,
                          GameRenderer.RETRO_GREEN_DARKER);
         
-        int maxRows = Math.min(12, truthTable.size());
-        for (int r = 0; r < maxRows; r++) {
-            boolean[] row = truthTable.get(r);
+        int count = listedRowCount();
+        int shown = Math.min(TABLE_ROWS_SHOWN, count);
+        for (int line = 0; line < shown; line++) {
+            int r = tableTop + line;
             StringBuilder rowText = new StringBuilder();
-            for (int i = 0; i < row.length - 1; i++) {
-                rowText.append(row[i] ? "1" : "0").append(" ");
+            for (boolean value : listedInputs(r)) {
+                rowText.append(value ? "1" : "0").append(gap);
             }
-            rowText.append("| ").append(row[row.length - 1] ? "1" : "0");
+            rowText.append(gap.isEmpty() ? " | " : "| ")
+                   .append(!isListedChecked(r) ? "x" : listedOutput(r) ? "1" : "0");
             
-            renderer.drawText(rowText.toString(), startX, startY + 50 + r * 16, 
-                            smallFont, GameRenderer.RETRO_GREEN_DARK);
+            renderer.drawText(rowText.toString(), startX, startY + 50 + line * 16, 
+                            smallFont, r == selectedRow ? Color.YELLOW : GameRenderer.RETRO_GREEN_DARK);
+        }
+        
+        // Scroll bar beside the rows when they do not all fit
+        if (count > shown) {
+            double trackY = startY + 38;
+            double trackHeight = shown * 16;
+            renderer.fillRect(startX - 12, trackY, 4, trackHeight, GameRenderer.RETRO_GREEN_DARKER);
+            renderer.fillRect(startX - 12, trackY + trackHeight * tableTop / count,
+                            4, Math.max(2, trackHeight * shown / count), GameRenderer.RETRO_GREEN_DARK);
         }
+        
+        // Live output for the selected row
+        int signal = live.getOutputSignal();
+        String value = signal == LiveCircuit.HIGH ? "1" : signal == LiveCircuit.LOW ? "0" : "?";
+        renderer.drawText((checkedSteps == null ? "Row " : "Step ") + (selectedRow + 1) + "/" + count
+                         + " -> Y = " + value,
+                         startX, startY + 60 + shown * 16, smallFont, signalColor(signal));
     }
     
     private void renderResult(GameRenderer renderer) {
@@ -503,222 +801,69 @@ public class LogicGatesTask extends Task {
     @Override
     protected boolean checkAnswer() {
         System.out.println("\n=== TESTING CIRCUIT ===");
-        System.out.println("Gates placed: " + placedGates.size());
+        System.out.println("Gates placed: " + grid.getGates().size());
         
-        for (int row = 0; row < truthTable.size(); row++) {
-            boolean[] testRow = truthTable.get(row);
-            boolean[] inputs = Arrays.copyOf(testRow, testRow.length - 1);
-            boolean expected = testRow[testRow.length - 1];
-            
-            boolean actual = simulateCircuit(inputs);
-            
-            System.out.println("Test " + row + ": inputs=" + Arrays.toString(inputs) + 
-                             " expected=" + expected + " actual=" + actual +
-                             (actual == expected ? " ✓" : " ✗"));
-            
-            if (actual != expected) {
-                return false;
-            }
+        Netlist circuit = getNetlist();
+        if (circuit.isValid()) {
+            System.out.println("Compiled: " + circuit.getNetCount() + " nets, " +
+                             circuit.getGateCount() + " connected gates" +
+                             (circuit.isCombinational() ? "" : ", sequential"));
         }
         
-        System.out.println("All tests PASSED! ✓\n");
-        return true;
+        CircuitCheck result = CircuitCheck.run(circuit, table, steps, checkedSteps);
+        System.out.println(result.getMessage() + (result.isPassed() ? "\n" : ""));
+        return result.isPassed();
     }
     
+    // ===== NETLIST =====
+    
+    private Netlist getNetlist() {
+        if (netlist == null) {
+            netlist = NetlistCompiler.compile(grid);
+        }
+        return netlist;
+    }
+    
+    // ===== SAVED CIRCUITS =====
+    
     /**
-     * IMPROVED CIRCUIT SIMULATION
+     * The player's gates and wires as text (see CircuitCodec)
+     * @param taskFilename task file named in the text, or null
      */
-    private boolean simulateCircuit(boolean[] inputs) {
-        System.out.println("  Simulating with inputs: " + Arrays.toString(inputs));
-        
-        // Reset
-        for (Gate gate : placedGates) {
-            gate.inputA = null;
-            gate.inputB = null;
-            gate.output = null;
-        }
-        
-        Map<String, Boolean> signals = new HashMap<>();
-        
-        // Set input signals
-        for (int i = 0; i < numInputs; i++) {
-            int y = 2 + i * 3;
-            if (y < GRID_ROWS) {
-                String key = key(1, y);
-                signals.put(key, inputs[i]);
-                System.out.println("    Input " + (char)('A' + i) + " at (" + 1 + "," + y + ") = " + inputs[i]);
-            }
-        }
-        
-        // Propagate signals (multiple iterations)
-        int maxIter = 100;
-        for (int iter = 0; iter < maxIter; iter++) {
-            boolean changed = false;
-            
-            // Propagate through wires
-            for (int y = 0; y < GRID_ROWS; y++) {
-                for (int x = 0; x < GRID_COLS; x++) {
-                    GridCell cell = grid[y][x];
-                    String pos = key(x, y);
-                    
-                    if (signals.containsKey(pos)) {
-                        boolean signal = signals.get(pos);
-                        
-                        // Spread to adjacent cells
-                        int[][] dirs = {{-1,0}, {1,0}, {0,-1}, {0,1}};
-                        for (int[] d : dirs) {
-                            int nx = x + d[0];
-                            int ny = y + d[1];
-                            if (nx < 0 || nx >= GRID_COLS || ny < 0 || ny >= GRID_ROWS) continue;
-                            
-                            GridCell neighbor = grid[ny][nx];
-                            String nkey = key(nx, ny);
-                            
-                            // Propagate to wires and outputs
-                            if ((neighbor.type == ComponentType.WIRE || neighbor.type == ComponentType.OUTPUT) 
-                                && !signals.containsKey(nkey)) {
-                                signals.put(nkey, signal);
-                                changed = true;
-                            }
-                            
-                            // Propagate to gate inputs
-                            if (neighbor.type == ComponentType.GATE && neighbor.gate != null) {
-                                Gate gate = neighbor.gate;
-                                int relX = nx - gate.centerX;
-                                int relY = ny - gate.centerY;
-                                
-                                // Left edge = inputs
-                                if (relX == -1) {
-                                    if (gate.type.isSingleInput()) {
-                                        if (relY == 0 && gate.inputA == null) {
-                                            gate.inputA = signal;
-                                            changed = true;
-                                        }
-                                    } else {
-                                        if (relY == 1 && gate.inputA == null) {
-                                            gate.inputA = signal;
-                                            changed = true;
-                                        } else if (relY == -1 && gate.inputB == null) {
-                                            gate.inputB = signal;
-                                            changed = true;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            
-            // Evaluate gates
-            for (Gate gate : placedGates) {
-                if (gate.output != null) continue;
-                
-                boolean ready = false;
-                if (gate.type.isSingleInput()) {
-                    ready = (gate.inputA != null);
-                } else {
-                    ready = (gate.inputA != null && gate.inputB != null);
-                }
-                
-                if (ready) {
-                    if (gate.type.isSingleInput()) {
-                        gate.output = gate.type.evaluate(gate.inputA, false);
-                    } else {
-                        gate.output = gate.type.evaluate(gate.inputA, gate.inputB);
-                    }
-                    
-                    // Output to right side
-                    int outX = gate.centerX + 1;
-                    int outY = gate.centerY;
-                    signals.put(key(outX, outY), gate.output);
-                    changed = true;
-                    
-                    System.out.println("    Gate " + gate.type + " at (" + gate.centerX + "," + gate.centerY + 
-                                     ") evaluated: A=" + gate.inputA + " B=" + gate.inputB + " → " + gate.output);
-                }
-            }
-            
-            if (!changed) {
-                System.out.println("    Converged after " + (iter + 1) + " iterations");
-                break;
-            }
-        }
-        
-        // Read output
-        int outY = GRID_ROWS / 2;
-        int outX = GRID_COLS - 2;
-        String outKey = key(outX, outY);
-        
-        Boolean result = signals.get(outKey);
-        System.out.println("    Output at (" + outX + "," + outY + ") = " + result);
-        
-        return result != null && result;
+    public String exportCircuit(String taskFilename) {
+        return CircuitCodec.write(grid, taskFilename);
     }
     
-    private String key(int x, int y) {
-        return x + "," + y;
+    /**
+     * Bring back a circuit saved by exportCircuit, as one undoable edit.
+     * Only done while the grid has no gates or wires of its own.
+     * @return true if the circuit was loaded
+     */
+    public boolean restoreCircuit(List<String> lines) {
+        if (grid.hasComponents()) {
+            return false;
+        }
+        CircuitGrid.Snapshot before = grid.snapshot();
+        try {
+            CircuitCodec.read(lines, grid);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Saved circuit not loaded: " + e.getMessage());
+            grid.restore(before);
+            return false;
+        }
+        edited(before);
+        live.update();
+        return true;
     }
     
     @Override
     public void reset() {
         super.reset();
-        placedGates.clear();
-        
-        for (int y = 0; y < GRID_ROWS; y++) {
-            for (int x = 0; x < GRID_COLS; x++) {
-                GridCell cell = grid[y][x];
-                if (cell.type != ComponentType.INPUT && cell.type != ComponentType.OUTPUT) {
-                    cell.type = ComponentType.EMPTY;
-                    cell.gate = null;
-                }
-            }
-        }
+        CircuitGrid.Snapshot before = grid.snapshot();
+        grid.clearComponents();
+        edited(before);
+        live.update();
         drawingWire = false;
+        netlist = null;
     }
-    
-    // Inner classes
-    private static class GridCell {
-        ComponentType type = ComponentType.EMPTY;
-        Gate gate = null;
-        int inputIndex = 0;
-    }
-    
-    private static class Gate {
-        GateType type;
-        int centerX, centerY;
-        Boolean inputA = null;
-        Boolean inputB = null;
-        Boolean output = null;
-        
-        Gate(GateType type, int centerX, int centerY) {
-            this.type = type;
-            this.centerX = centerX;
-            this.centerY = centerY;
-        }
-    }
-    
-    private enum ComponentType {
-        EMPTY, INPUT, OUTPUT, GATE, WIRE
-    }
-
-    /**
- * Logic gate types
- */
-    public enum GateType {
-        NOT {
-            public boolean evaluate(boolean a, boolean b) { return !a; }
-            public boolean isSingleInput() { return true; }
-        },
-        NAND {
-            public boolean evaluate(boolean a, boolean b) { return !(a && b); }
-            public boolean isSingleInput() { return false; }
-        },
-        XOR {
-            public boolean evaluate(boolean a, boolean b) { return a != b; }
-            public boolean isSingleInput() { return false; }
-        };  
-        public abstract boolean evaluate(boolean a, boolean b);
-        public abstract boolean isSingleInput();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.interplanetarycrash.tasks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.interplanetarycrash.logic.GateType;
+import com.interplanetarycrash.logic.Netlist;
+import com.interplanetarycrash.logic.TruthTable;
+
+/**
+ * Contents of a LOGIC task file, as read by TaskLoader
+ *
+ * Holds only data, so tools can check task files without creating the
+ * task and its graphics; createTask() makes the playable task.
+ */
+public final class LogicTaskDefinition implements TaskDefinition {
+    
+    private final String instruction;
+    private final TruthTable table;       // null for a sequence
+    private final List<boolean[]> steps;  // null unless a sequence
+    private final boolean[] checkedSteps;
+    private final Set<GateType> availableGates;
+    private final int difficulty;
+    private final int gridWidth;
+    private final int gridHeight;
+    
+    /**
+     * Task checked against a truth table
+     */
+    LogicTaskDefinition(String instruction, TruthTable table, Set<GateType> availableGates,
+                        int difficulty, int gridWidth, int gridHeight) {
+        this(instruction, table, null, null, availableGates, difficulty, gridWidth, gridHeight);
+    }
+    
+    /**
+     * Task checked by steps applied in order (see LogicGatesTask.sequence)
+     */
+    LogicTaskDefinition(String instruction, List<boolean[]> steps, boolean[] checkedSteps,
+                        Set<GateType> availableGates, int difficulty, int gridWidth, int gridHeight) {
+        this(instruction, null, Collections.unmodifiableList(steps), checkedSteps,
+             availableGates, difficulty, gridWidth, gridHeight);
+    }
+    
+    private LogicTaskDefinition(String instruction, TruthTable table, List<boolean[]> steps,
+                                boolean[] checkedSteps, Set<GateType> availableGates, int difficulty,
+                                int gridWidth, int gridHeight) {
+        this.instruction = instruction;
+        this.table = table;
+        this.steps = steps;
+        this.checkedSteps = checkedSteps;
+        this.availableGates = Collections.unmodifiableSet(availableGates);
+        this.difficulty = difficulty;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+    }
+    
+    @Override
+    public LogicGatesTask createTask() {
+        if (table == null) {
+            return LogicGatesTask.sequence(instruction, steps, checkedSteps, availableGates,
+                                           difficulty, gridWidth, gridHeight);
+        }
+        return new LogicGatesTask(instruction, table, availableGates, difficulty, gridWidth, gridHeight);
+    }
+    
+    /**
+     * Test a circuit the way the playable task does
+     */
+    CircuitCheck check(Netlist circuit) {
+        return CircuitCheck.run(circuit, table, steps, checkedSteps);
+    }
+    
+    public String getInstruction() { return instruction; }
+    public int getInputCount() { return table != null ? table.getInputCount() : steps.get(0).length - 1; }
+    public boolean isSequence() { return table == null; }
+    public Set<GateType> getAvailableGates() { return availableGates; }
+    public int getDifficulty() { return difficulty; }
+    
+    /**
+     * Grid size as given in the file (the task grows it to fit the inputs)
+     */
+    public int getGridWidth() { return gridWidth; }
+    public int getGridHeight() { return gridHeight; }
+    
+    /**
+     * Expected outputs, or null for a sequence
+     */
+    public TruthTable getTable() { return table; }
+}
@@ -0,0 +1,129 @@
+package com.interplanetarycrash.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.interplanetarycrash.logic.CircuitGrid;
+import com.interplanetarycrash.logic.CircuitPlacer;
+import com.interplanetarycrash.logic.CircuitSynthesizer;
+
+/**
+ * Offline check that every LOGIC task can be solved
+ *
+ * For each task file, searches for the smallest circuit made of the task's
+ * available gates (CircuitSynthesizer) that can be laid out on the task's
+ * grid (CircuitPlacer); the smallest circuit is not always one, as wires
+ * cannot cross. Files are checked in parallel; the report lists each
+ * task's circuit, or why there is none. Exits with status 1 unless every
+ * task has a circuit that was laid out: a task proven impossible, one that
+ * cannot be read and one left UNKNOWN (no circuit found, or none placed)
+ * all count.
+ *
+ * Usage: LogicTaskVerifier [task directory]
+ */
+public class LogicTaskVerifier {
+    
+    private static final long SEARCH_BUDGET = 50_000_000L;
+    
+    private enum Verdict { OK, SKIPPED, UNKNOWN, FAILED }
+    
+    private static final class Report {
+        final Verdict verdict;
+        final String text;
+        
+        Report(Verdict verdict, String text) {
+            this.verdict = verdict;
+            this.text = text;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        File directory = new File(args.length > 0 ? args[0] : TaskLoader.TASK_DIRECTORY);
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".txt"));
+        if (files == null) {
+            System.err.println("No task directory: " + directory);
+            System.exit(2);
+        }
+        Arrays.sort(files);
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<Report>> reports = new ArrayList<>();
+        for (File file : files) {
+            reports.add(pool.submit(() -> verify(file)));
+        }
+        
+        int[] counts = new int[Verdict.values().length];
+        for (Future<Report> report : reports) {
+            Report done = report.get();
+            if (done != null) {
+                System.out.println(done.text);
+                counts[done.verdict.ordinal()]++;
+            }
+        }
+        pool.shutdown();
+        
+        System.out.println("\n" + counts[Verdict.OK.ordinal()] + " ok, "
+                           + counts[Verdict.FAILED.ordinal()] + " failed, "
+                           + counts[Verdict.UNKNOWN.ordinal()] + " unknown, "
+                           + counts[Verdict.SKIPPED.ordinal()] + " skipped");
+        System.exit(counts[Verdict.FAILED.ordinal()] + counts[Verdict.UNKNOWN.ordinal()] > 0 ? 1 : 0);
+    }
+    
+    /**
+     * Check one task file
+     * @return the report, or null if it is not a LOGIC task
+     */
+    static Report verify(File file) {
+        String name = file.getName();
+        try {
+            List<String> lines = TaskLoader.readLines(file.toPath());
+            if (lines.isEmpty() || TaskType.fromCode(lines.get(0).trim()) != TaskType.LOGIC_GATES) {
+                return null;
+            }
+            LogicTaskDefinition task = TaskLoader.readLogicTask(lines);
+            
+            if (task.isSequence()) {
+                return new Report(Verdict.SKIPPED, name + ": skipped (sequence task)");
+            }
+            if (task.getInputCount() > CircuitSynthesizer.MAX_INPUTS) {
+                return new Report(Verdict.SKIPPED, name + ": skipped (" + task.getInputCount()
+                                  + " inputs, the search handles up to " + CircuitSynthesizer.MAX_INPUTS + ")");
+            }
+            
+            long started = System.nanoTime();
+            CircuitSynthesizer.Result circuit = CircuitSynthesizer.synthesize(
+                task.getInputCount(), task.getTable().getOutputWord(0), task.getTable().getTestedWord(0),
+                task.getAvailableGates(), SEARCH_BUDGET, candidate -> CircuitPlacer.place(candidate,
+                    LogicGatesTask.createGrid(task.getGridWidth(), task.getGridHeight(), task.getInputCount())));
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            
+            if (circuit.isImpossible()) {
+                return new Report(Verdict.FAILED, name + ": IMPOSSIBLE, no circuit of "
+                                  + task.getAvailableGates() + " makes the truth table");
+            }
+            if (!circuit.isFound()) {
+                return new Report(Verdict.UNKNOWN, name + ": no circuit found within the search budget ("
+                                  + millis + " ms)");
+            }
+            
+            String size = circuit.getGateCount() + " gates" + (circuit.isProven() ? " (minimal)" : " (best found)");
+            CircuitGrid grid = LogicGatesTask.createGrid(task.getGridWidth(), task.getGridHeight(),
+                                                         task.getInputCount());
+            String listing = "\n    " + circuit.toString().replace("\n", "\n    ");
+            if (!CircuitPlacer.place(circuit, grid)) {
+                return new Report(Verdict.UNKNOWN, name + ": NO LAYOUT FOUND, no circuit tried could be placed on "
+                                  + grid.getWidth() + "x" + grid.getHeight() + "; smallest, " + size + listing);
+            }
+            return new Report(Verdict.OK, name + ": ok, " + size + ", fits " + grid.getWidth() + "x"
+                              + grid.getHeight() + " (" + millis + " ms)" + listing);
+        
+        } catch (Exception e) {
+            return new Report(Verdict.FAILED, name + ": cannot be read: " + e.getMessage());
+        }
+    }
+}
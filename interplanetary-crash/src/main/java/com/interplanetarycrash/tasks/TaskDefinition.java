@@ -0,0 +1,16 @@
+package com.interplanetarycrash.tasks;
+
+/**
+ * Parsed contents of a task file
+ * 
+ * Definitions never change once read, so TaskLoader caches them and
+ * shares them between threads; each module gets its own playable task
+ * from createTask().
+ */
+public interface TaskDefinition {
+    
+    /**
+     * New task in its initial state
+     */
+    Task createTask();
+}
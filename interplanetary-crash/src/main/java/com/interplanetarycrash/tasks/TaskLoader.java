@@ -1,16 +1,28 @@
 package com.interplanetarycrash.tasks;
 
 import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import com.interplanetarycrash.dsp.WindowFunction;
+import com.interplanetarycrash.logic.BooleanFormula;
+import com.interplanetarycrash.logic.GateType;
+import com.interplanetarycrash.logic.TruthTable;
 import com.interplanetarycrash.tasks.FrequencySpectrumTask.WaveformType;
-import com.interplanetarycrash.tasks.LogicGatesTask.GateType;
 
 /**
  * Loads tasks from text files in assets/tasks/
@@ -20,56 +32,178 @@ import com.interplanetarycrash.tasks.LogicGatesTask.GateType;
  * assets/tasks/level1_module2.txt
  * assets/tasks/level2_module1.txt
  * etc.
+ * 
+ * Modules without a file of their own take a task from
+ * assets/tasks/tasks.pack if there is one (see TaskPack, TaskPackBuilder),
+ * picked at random among the pack's tasks for that module.
  */
 public class TaskLoader {
     
+    private static final Pattern GRID_SIZE = Pattern.compile("(\\d+)\\s*[xX]\\s*(\\d+)");
+    private static final Pattern TABLE_ROW = Pattern.compile("[01xX](\\s*,\\s*[01xX])*");
+    
+    // level1_module2.txt, or level1_module2_7.txt for task 7 of a module
+    private static final Pattern TASK_NAME = Pattern.compile("level(\\d+)_module(\\d+)(?:_(\\d+))?\\.txt");
+    
+    static final String TASK_DIRECTORY = System.getProperty("user.dir") + "/interplanetary-crash/src/main/assets/tasks/";
+    
+    // Pack of tasks for modules that have no task file of their own
+    static final String PACK_FILE = "tasks.pack";
+    private static TaskPack pack;
+    private static boolean packOpened;
+    
+    // Parsed task files by name; an entry is only used while the file's
+    // modification time and size still match
+    private static final Map<String, CachedDefinition> CACHE = new ConcurrentHashMap<>();
+    
+    private static final class CachedDefinition {
+        final FileTime modified;
+        final long size;
+        final TaskDefinition definition;
+        
+        CachedDefinition(FileTime modified, long size, TaskDefinition definition) {
+            this.modified = modified;
+            this.size = size;
+            this.definition = definition;
+        }
+    }
+    
     /**
      * Load task from file
+     * 
+     * The file is parsed once and its definition cached until the file
+     * changes; every call returns a new task. Safe to call from any thread.
      * @param filename Filename relative to assets/tasks/ (e.g. "level1_module1.txt")
-     * @return Loaded task or null if error
+     * @return Loaded task, or a fallback question saying the file is broken
      */
-
     public static Task loadTask(String filename) {
         try {
-            // Try to load from resources
-            java.io.FileInputStream stream = new java.io.FileInputStream(System.getProperty("user.dir") + "/interplanetary-crash/src/main/assets/tasks/" + filename);
-            
-            List<String> lines = readLines(stream);
-            
-            if (lines.isEmpty()) {
-                System.err.println("Task file is empty: " + filename);
-                return createFallbackTask();
+            Path file = Paths.get(TASK_DIRECTORY, filename);
+            if (!Files.exists(file)) {
+                TaskDefinition packed = findInPack(filename);
+                if (packed != null) {
+                    return packed.createTask();
+                }
             }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
             
-            String typeCode = lines.get(0).trim();
-            TaskType type = TaskType.fromCode(typeCode);
+            CachedDefinition cached = CACHE.get(filename);
+            if (cached != null && cached.modified.equals(attributes.lastModifiedTime())
+                    && cached.size == attributes.size()) {
+                return cached.definition.createTask();
+            }
             
-            System.out.println("Loading task type: " + type + " from " + filename);
+            TaskDefinition definition = parseDefinition(readLines(file));
             
-            // Load based on type
-            switch (type) {
-                case MULTIPLE_CHOICE:
-                    return loadMultipleChoiceTask(lines);
-                    
-                case FREQUENCY_SPECTRUM:
-                    return loadFrequencySpectrumTask(lines);
-                    
-                case LOGIC_GATES:
-                    return loadLogicGatesTask(lines);
-                                       
-                default:
-                    System.err.println("Unknown task type: " + type);
-                    return createFallbackTask();
-            }
+            // The task constructors check more than the parser, so only
+            // cache a definition once it has made a task
+            Task task = definition.createTask();
+            CACHE.put(filename, new CachedDefinition(attributes.lastModifiedTime(), attributes.size(), definition));
+            return task;
             
         } catch (Exception e) {
             System.err.println("Error loading task from " + filename + ": " + e.getMessage());
-            return createFallbackTask();
+            return createFallbackTask(filename);
+        }
+    }
+    
+    static TaskDefinition parseDefinition(List<String> lines) {
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("Task file is empty");
+        }
+        
+        String typeCode = lines.get(0).trim();
+        TaskType type = TaskType.fromCode(typeCode);
+        
+        // Load based on type
+        switch (type) {
+            case MULTIPLE_CHOICE:
+                return readMultipleChoiceTask(lines);
+                
+            case FREQUENCY_SPECTRUM:
+                return readFrequencySpectrumTask(lines);
+                
+            case LOGIC_GATES:
+                return readLogicTask(lines);
+                
+            default:
+                throw new IllegalArgumentException("Unknown task type: " + type);
+        }
+    }
+    
+    // ===== TASK PACK =====
+    
+    /**
+     * The task pack in the task directory, opened on first use, or null
+     */
+    private static synchronized TaskPack getPack() {
+        if (!packOpened) {
+            packOpened = true;
+            Path file = Paths.get(TASK_DIRECTORY, PACK_FILE);
+            if (Files.exists(file)) {
+                try {
+                    pack = TaskPack.open(file);
+                    System.out.println("Task pack: " + pack);
+                } catch (Exception e) {
+                    System.err.println("Error opening task pack: " + e.getMessage());
+                }
+            }
+        }
+        return pack;
+    }
+    
+    /**
+     * Task from the pack for a task file name, or null if the pack does not have it
+     */
+    private static TaskDefinition findInPack(String filename) {
+        int[] key = parseTaskFilename(filename);
+        TaskPack tasks = getPack();
+        if (tasks == null || key == null || !tasks.contains(key[0], key[1], key[2])) {
+            return null;
+        }
+        return tasks.get(key[0], key[1], key[2]);
+    }
+    
+    /**
+     * Level, module number (from 1) and id of a task file name, or null if
+     * it does not follow the naming convention
+     */
+    static int[] parseTaskFilename(String filename) {
+        Matcher name = TASK_NAME.matcher(filename);
+        if (!name.matches()) {
+            return null;
+        }
+        try {
+            return new int[] {
+                Integer.parseInt(name.group(1)),
+                Integer.parseInt(name.group(2)),
+                name.group(3) == null ? 0 : Integer.parseInt(name.group(3))
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Pick the task for a module: its own task file if there is one,
+     * otherwise one of the pack's tasks for it at random
+     * @return name to pass to loadTask
+     */
+    public static String chooseTask(int level, int moduleIndex) {
+        String filename = getTaskFilename(level, moduleIndex);
+        TaskPack tasks = getPack();
+        if (tasks == null || Files.exists(Paths.get(TASK_DIRECTORY, filename))) {
+            return filename;
         }
+        int[] ids = tasks.getIds(level, moduleIndex + 1);
+        if (ids.length == 0) {
+            return filename;
+        }
+        return getTaskFilename(level, moduleIndex, ids[ThreadLocalRandom.current().nextInt(ids.length)]);
     }
     
     /**
-     * Load Multiple Choice task
+     * Read Multiple Choice task
      * Format:
      * ABCD
      * Question text?
@@ -80,7 +214,7 @@ public class TaskLoader {
      * B (correct answer)
      * 1 (difficulty)
      */
-    private static Task loadMultipleChoiceTask(List<String> lines) {
+    private static TaskDefinition readMultipleChoiceTask(List<String> lines) {
         if (lines.size() < 8) {
             throw new IllegalArgumentException("MultipleChoice task needs at least 8 lines");
         }
@@ -95,11 +229,11 @@ public class TaskLoader {
         char correctAnswer = lines.get(6).trim().toUpperCase().charAt(0);
         int difficulty = Integer.parseInt(lines.get(7).trim());
         
-        return new MultipleChoiceTask(question, answers, correctAnswer, difficulty);
+        return () -> new MultipleChoiceTask(question, answers.clone(), correctAnswer, difficulty);
     }
     
     /**
-     * Load Frequency Spectrum task
+     * Read Frequency Spectrum task
      * 
      * Format (OLD - backward compatible):
      * FREQ
@@ -120,29 +254,33 @@ public class TaskLoader {
      * 0.0,6.28 (phase range: min,max)
      * 0.5 (tolerance)
      * 2 (difficulty)
+     * 
+     * Format (COMPOSITE - sum of components separated by ';'):
+     * FREQ
+     * Match the combined signal
+     * 4.0,50.0,0.0,SQUARE; 2.0,130.0,0.0,SINE (one component per target)
+     * ... ranges as above, shared by all components ...
+     * 0.15 (tolerance: max spectral distance, 0 = identical, 1 = unrelated)
+     * 2 (difficulty)
+     * 
+     * Optional analysis line (defaults: 256,1000,RECTANGULAR):
+     * 1024,2000.0,HANN (FFT size up to 8192, sample rate in Hz, window:
+     *                   RECTANGULAR, HANN, HAMMING or BLACKMAN_HARRIS)
      */
-    private static Task loadFrequencySpectrumTask(List<String> lines) {
+    private static TaskDefinition readFrequencySpectrumTask(List<String> lines) {
         if (lines.size() < 8) {
             throw new IllegalArgumentException("FrequencySpectrum task needs at least 8 lines");
         }
         
         String instruction = lines.get(1).trim();
         
-        // Parse target values (check if waveform is specified)
-        String[] targets = lines.get(2).split(",");
-        double targetAmplitude = Double.parseDouble(targets[0].trim());
-        double targetFrequency = Double.parseDouble(targets[1].trim());
-        double targetPhase = Double.parseDouble(targets[2].trim());
-        
-        // Check if waveform type is specified (NEW FORMAT)
-        WaveformType targetWaveform = WaveformType.SINE; // Default
-        if (targets.length >= 4) {
-            try {
-                targetWaveform = WaveformType.valueOf(targets[3].trim().toUpperCase());
-                System.out.println("  Loaded waveform type: " + targetWaveform);
-            } catch (IllegalArgumentException e) {
-                System.err.println("  Unknown waveform type: " + targets[3] + ", using SINE");
-            }
+        // Parse target components
+        String[] componentTexts = lines.get(2).split(";");
+        FrequencySpectrumTask.Component[] components = new FrequencySpectrumTask.Component[componentTexts.length];
+        double highestFrequency = 0;
+        for (int i = 0; i < componentTexts.length; i++) {
+            components[i] = parseFrequencyComponent(componentTexts[i]);
+            highestFrequency = Math.max(highestFrequency, components[i].getFrequency());
         }
         
         // Parse ranges
@@ -161,20 +299,65 @@ public class TaskLoader {
         double tolerance = Double.parseDouble(lines.get(6).trim());
         int difficulty = Integer.parseInt(lines.get(7).trim());
         
-        // Create task with waveform parameter (uses new constructor)
-        return new FrequencySpectrumTask(
+        // Optional analysis settings
+        int fftSize = FrequencySpectrumTask.DEFAULT_FFT_SIZE;
+        double sampleRate = FrequencySpectrumTask.DEFAULT_SAMPLE_RATE;
+        WindowFunction window = WindowFunction.RECTANGULAR;
+        if (lines.size() >= 9 && !lines.get(8).trim().isEmpty()) {
+            String[] analysis = lines.get(8).split(",");
+            fftSize = Integer.parseInt(analysis[0].trim());
+            if (analysis.length >= 2) {
+                sampleRate = Double.parseDouble(analysis[1].trim());
+            }
+            if (analysis.length >= 3) {
+                window = WindowFunction.fromName(analysis[2]);
+            }
+        }
+        
+        if (Math.max(freqMax, highestFrequency) * 2 >= sampleRate) {
+            System.err.println("  Warning: sample rate " + sampleRate + " Hz is below Nyquist for " + freqMax + " Hz");
+        }
+        
+        // The task copies the components, so every task can share them
+        int analysisSize = fftSize;
+        double analysisRate = sampleRate;
+        WindowFunction analysisWindow = window;
+        return () -> new FrequencySpectrumTask(
             instruction,
-            targetAmplitude, targetFrequency, targetPhase, targetWaveform,
+            components,
             ampMin, ampMax,
             freqMin, freqMax,
             phaseMin, phaseMax,
             tolerance,
-            difficulty
+            difficulty,
+            analysisSize, analysisRate, analysisWindow
         );
     }
     
+    /**
+     * Parse one target component: amplitude,frequency,phase[,waveform]
+     */
+    private static FrequencySpectrumTask.Component parseFrequencyComponent(String text) {
+        String[] targets = text.split(",");
+        double targetAmplitude = Double.parseDouble(targets[0].trim());
+        double targetFrequency = Double.parseDouble(targets[1].trim());
+        double targetPhase = Double.parseDouble(targets[2].trim());
+        
+        // Check if waveform type is specified (NEW FORMAT)
+        WaveformType targetWaveform = WaveformType.SINE; // Default
+        if (targets.length >= 4) {
+            try {
+                targetWaveform = WaveformType.valueOf(targets[3].trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("  Unknown waveform type: " + targets[3] + ", using SINE");
+            }
+        }
+        
+        return new FrequencySpectrumTask.Component(targetWaveform, targetAmplitude, targetFrequency, targetPhase);
+    }
+    
  /**
-     * Load Logic Gates task
+     * Read a Logic Gates task
      * Format:
      * LOGIC
      * Build circuit for: F(A,B) = A NAND B
@@ -182,40 +365,93 @@ public class TaskLoader {
      * 1,0,1
      * 0,1,1
      * 0,0,1
-     * NAND,NOT  (available gates)
+     * NAND,NOT  (available gates: NOT, AND, OR, NAND, NOR, XOR, XNOR, MUX, LATCH, DFF)
      * 2  (difficulty)
+     * 60x40  (optional grid size, the view scrolls over larger grids)
+     *
+     * Instead of the rows (never as well), a formula line generates the
+     * whole table:
+     * F(A,B,C) = (A nand B) xor C
+     * (operators and, or, xor, nand, nor, xnor, not; see BooleanFormula)
+     * or a minterm list gives the rows that are 1, optionally with rows
+     * that are not checked:
+     * F(A,B,C) = Σm(1,3,5) + d(7)
+     *
+     * A SEQUENCE line before the rows makes them steps applied in order to
+     * a circuit that keeps its state, e.g. clock cycles for a flip-flop.
+     * An output of x is not checked (in a truth table the row is skipped).
+     * Every row or step must have the same number of columns.
      */
-    private static Task loadLogicGatesTask(List<String> lines) {
+    static LogicTaskDefinition readLogicTask(List<String> lines) {
         if (lines.size() < 4) {
             throw new IllegalArgumentException("LogicGates task needs at least 4 lines");
         }
         
         String instruction = lines.get(1).trim();
         
-        // Parse truth table (all lines until we hit gate list)
-        List<boolean[]> truthTable = new ArrayList<>();
         int lineIndex = 2;
+        boolean sequence = lineIndex < lines.size() && lines.get(lineIndex).trim().equalsIgnoreCase("SEQUENCE");
+        if (sequence) {
+            lineIndex++;
+        }
+        
+        // A formula or minterm list gives the table instead of rows
+        TruthTable table = null;
+        String generator = lines.get(lineIndex).trim();
+        if (!sequence && generator.contains("=")) {
+            if (TruthTable.isMinterms(generator)) {
+                table = TruthTable.parseMinterms(generator);
+            } else {
+                BooleanFormula formula = BooleanFormula.parse(generator);
+                table = TruthTable.fromColumn(formula.getInputCount(), formula.evaluateAll());
+            }
+            lineIndex++;
+        }
+        
+        // Parse truth table (all lines of 0, 1 and x until we hit gate list)
+        List<boolean[]> truthTable = new ArrayList<>();
+        List<Boolean> checked = new ArrayList<>();
+        int columns = -1;
+        int rowNumber = 0;
         
         while (lineIndex < lines.size()) {
             String line = lines.get(lineIndex).trim();
-            
-            // Check if this is the gate list (contains letters)
-            if (line.matches(".*[A-Z]+.*") && line.contains(",") && 
-                line.toUpperCase().contains("AND") || line.toUpperCase().contains("OR") || 
-                line.toUpperCase().contains("NOT") || line.toUpperCase().contains("XOR")) {
+            if (!TABLE_ROW.matcher(line).matches()) {
                 break; // This is the gate list
             }
             
-            // Parse as truth table row
+            // Parse as truth table row; every row needs the same columns
             String[] parts = line.split(",");
-            boolean[] row = new boolean[parts.length];
+            String row = (sequence ? "Step " : "Truth table row ") + (++rowNumber);
+            if (columns < 0) {
+                columns = parts.length;
+                if (columns < 2) {
+                    throw new IllegalArgumentException(row + " needs inputs and an output: " + line);
+                }
+            } else if (parts.length != columns) {
+                throw new IllegalArgumentException(row + " has " + parts.length + " columns, expected "
+                                                   + columns + ": " + line);
+            }
+            boolean[] values = new boolean[parts.length];
             for (int i = 0; i < parts.length; i++) {
-                row[i] = parts[i].trim().equals("1");
+                values[i] = parts[i].trim().equals("1");
+            }
+            boolean dontCare = parts[parts.length - 1].trim().equalsIgnoreCase("x");
+            if (sequence || !dontCare) {
+                truthTable.add(values);
+                checked.add(!dontCare);
             }
-            truthTable.add(row);
             lineIndex++;
         }
         
+        if (table == null && truthTable.isEmpty()) {
+            throw new IllegalArgumentException("LogicGates task has no truth table rows");
+        }
+        if (table != null && rowNumber > 0) {
+            throw new IllegalArgumentException("LogicGates task has both a formula line and truth table rows: "
+                                               + generator);
+        }
+        
         // Parse available gates
         if (lineIndex >= lines.size()) {
             throw new IllegalArgumentException("Missing available gates line");
@@ -239,37 +475,65 @@ public class TaskLoader {
             difficulty = Integer.parseInt(lines.get(lineIndex).trim());
         }
         
-        return new LogicGatesTask(instruction, truthTable, availableGates, difficulty);
+        lineIndex++;
+        
+        // Parse optional grid size
+        int gridWidth = 25;
+        int gridHeight = 11;
+        if (lineIndex < lines.size()) {
+            Matcher size = GRID_SIZE.matcher(lines.get(lineIndex).trim());
+            if (size.matches()) {
+                gridWidth = Integer.parseInt(size.group(1));
+                gridHeight = Integer.parseInt(size.group(2));
+            }
+        }
+        
+        if (sequence) {
+            boolean[] checkedSteps = new boolean[checked.size()];
+            for (int i = 0; i < checkedSteps.length; i++) {
+                checkedSteps[i] = checked.get(i);
+            }
+            return new LogicTaskDefinition(instruction, truthTable, checkedSteps, availableGates,
+                                           difficulty, gridWidth, gridHeight);
+        }
+        if (table == null) {
+            table = TruthTable.fromRows(truthTable);
+        }
+        return new LogicTaskDefinition(instruction, table, availableGates, difficulty, gridWidth, gridHeight);
+    }
+    
+    /**
+     * Read all lines of a task file, without blank lines and comments
+     */
+    static List<String> readLines(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return readLines(reader);
+        }
     }
     
     /**
-     * Read all lines from input stream
+     * Read all lines of task text, without blank lines and comments
      */
-    private static List<String> readLines(InputStream stream) throws Exception {
+    static List<String> readLines(BufferedReader reader) throws IOException {
         List<String> lines = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(stream, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Skip empty lines and comments
-                if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
-                    lines.add(line);
-                }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Skip empty lines and comments
+            if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                lines.add(line);
             }
         }
-        
         return lines;
     }
     
     /**
      * Create a simple fallback task when loading fails
      */
-    private static Task createFallbackTask() {
-        System.out.println("Creating fallback task");
+    private static Task createFallbackTask(String filename) {
+        System.err.println("Creating fallback task for " + filename);
         
         return new MultipleChoiceTask(
-            "Fallback question: What is 2 + 2?",
+            "Task " + filename + " failed to load. Fallback question: What is 2 + 2?",
             new String[] {
                 "3",
                 "4",
@@ -287,4 +551,15 @@ public class TaskLoader {
     public static String getTaskFilename(int level, int moduleIndex) {
         return String.format("level%d_module%d.txt", level, moduleIndex + 1);
     }
+    
+    /**
+     * Get task filename for one of several tasks of a module (id 0 is the
+     * module's own file)
+     */
+    public static String getTaskFilename(int level, int moduleIndex, int id) {
+        if (id == 0) {
+            return getTaskFilename(level, moduleIndex);
+        }
+        return String.format("level%d_module%d_%d.txt", level, moduleIndex + 1, id);
+    }
 }
@@ -0,0 +1,175 @@
+package com.interplanetarycrash.tasks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Many task files in one file, memory mapped and parsed one record at a time
+ *
+ * Layout (big-endian):
+ *   int magic "ICTP", int version, int record count
+ *   index, one entry per record sorted by key:
+ *     int level, int module, int id, int offset, int length
+ *   records: the text of each task file in UTF-8, at its offset
+ *
+ * Opening reads only the index, into hash maps, so finding a record is
+ * O(1). A record is parsed the first time it is asked for and its
+ * definition kept; records are immutable, so a pack is safe to share
+ * between threads. Packs are written by TaskPackBuilder.
+ */
+public final class TaskPack {
+    
+    static final int MAGIC = 0x49435450; // "ICTP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 12;
+    static final int ENTRY_BYTES = 20;
+    
+    // Each key part must fit in 21 bits
+    static final int MAX_KEY_PART = (1 << 21) - 1;
+    
+    private final Path file;
+    private final ByteBuffer data;
+    private final int count;
+    private final Map<Long, Integer> entries = new HashMap<>();
+    private final Map<Long, int[]> idsByModule = new HashMap<>();
+    private final AtomicReferenceArray<TaskDefinition> parsed;
+    
+    private TaskPack(Path file, ByteBuffer data) {
+        this.file = file;
+        this.data = data;
+        
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a task pack: " + file);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Task pack version " + data.getInt(4) + " is not supported: " + file);
+        }
+        this.count = data.getInt(8);
+        if (count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES > data.limit()) {
+            throw new IllegalArgumentException("Task pack index is cut short: " + file);
+        }
+        this.parsed = new AtomicReferenceArray<>(count);
+        
+        for (int e = 0; e < count; e++) {
+            entries.put(key(level(e), module(e), id(e)), e);
+        }
+        
+        // Entries are sorted by key, so the ids of a module are one run
+        int start = 0;
+        for (int e = 1; e <= count; e++) {
+            if (e == count || level(e) != level(start) || module(e) != module(start)) {
+                int[] ids = new int[e - start];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = id(start + i);
+                }
+                idsByModule.put(key(level(start), module(start), 0), ids);
+                start = e;
+            }
+        }
+    }
+    
+    /**
+     * Map a pack file
+     * @throws IOException if it cannot be read
+     * @throws IllegalArgumentException if it is not a task pack
+     */
+    public static TaskPack open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new TaskPack(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    static long key(int level, int module, int id) {
+        if (level < 0 || level > MAX_KEY_PART || module < 0 || module > MAX_KEY_PART
+                || id < 0 || id > MAX_KEY_PART) {
+            throw new IllegalArgumentException("Task key out of range: " + level + "/" + module + "/" + id);
+        }
+        return ((long) level << 42) | ((long) module << 21) | id;
+    }
+    
+    // ===== INDEX =====
+    
+    private int field(int entry, int field) {
+        return data.getInt(HEADER_BYTES + entry * ENTRY_BYTES + field * 4);
+    }
+    
+    private int level(int entry) { return field(entry, 0); }
+    private int module(int entry) { return field(entry, 1); }
+    private int id(int entry) { return field(entry, 2); }
+    
+    public int size() { return count; }
+    
+    public boolean contains(int level, int module, int id) {
+        return entries.containsKey(key(level, module, id));
+    }
+    
+    /**
+     * Ids of the tasks for a module (module numbers start at 1), in order;
+     * empty if there are none
+     */
+    public int[] getIds(int level, int module) {
+        int[] ids = idsByModule.get(key(level, module, 0));
+        return ids == null ? new int[0] : ids.clone();
+    }
+    
+    // ===== RECORDS =====
+    
+    /**
+     * Parsed task, read from the mapped file the first time it is asked for
+     * @throws IllegalArgumentException if there is no such task or it
+     *         cannot be parsed
+     */
+    public TaskDefinition get(int level, int module, int id) {
+        Integer entry = entries.get(key(level, module, id));
+        if (entry == null) {
+            throw new IllegalArgumentException("No task " + level + "/" + module + "/" + id + " in " + file);
+        }
+        
+        TaskDefinition definition = parsed.get(entry);
+        if (definition == null) {
+            // Two threads may parse the same record; either result will do
+            definition = TaskLoader.parseDefinition(readLines(entry));
+            if (!parsed.compareAndSet(entry, null, definition)) {
+                definition = parsed.get(entry);
+            }
+        }
+        return definition;
+    }
+    
+    private List<String> readLines(int entry) {
+        int offset = field(entry, 3);
+        int length = field(entry, 4);
+        if (offset < 0 || length < 0 || (long) offset + length > data.limit()) {
+            throw new IllegalArgumentException("Task record " + entry + " lies outside " + file);
+        }
+        
+        // A duplicate has its own position, so threads do not disturb each other
+        ByteBuffer record = data.duplicate();
+        record.position(offset);
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        
+        try (BufferedReader reader = new BufferedReader(
+                new StringReader(new String(bytes, StandardCharsets.UTF_8)))) {
+            return TaskLoader.readLines(reader);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return file + " (" + count + " tasks in " + idsByModule.size() + " modules)";
+    }
+}
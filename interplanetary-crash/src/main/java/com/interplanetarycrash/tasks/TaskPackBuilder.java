@@ -0,0 +1,118 @@
+package com.interplanetarycrash.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Packs task files into one task pack (see TaskPack)
+ *
+ * Takes task files, or directories of them, named levelN_moduleM.txt
+ * (task 0 of the module) or levelN_moduleM_ID.txt. Every file is parsed
+ * first; if any is broken or two files give the same task, nothing is
+ * written and the exit status is 1. Files with other names are listed and
+ * left out.
+ *
+ * Usage: TaskPackBuilder output.pack task files or directories
+ */
+public class TaskPackBuilder {
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: TaskPackBuilder output.pack task files or directories");
+            System.exit(2);
+        }
+        
+        List<File> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            collectTaskFiles(new File(args[i]), files);
+        }
+        
+        // Records by key, which is also the order of the index
+        TreeMap<Long, byte[]> records = new TreeMap<>();
+        TreeMap<Long, int[]> keys = new TreeMap<>();
+        int errors = 0;
+        for (File file : files) {
+            int[] key = TaskLoader.parseTaskFilename(file.getName());
+            if (key == null) {
+                System.out.println(file + ": left out, not named levelN_moduleM[_ID].txt");
+                continue;
+            }
+            try {
+                TaskLoader.parseDefinition(TaskLoader.readLines(file.toPath()));
+                long packed = TaskPack.key(key[0], key[1], key[2]);
+                if (records.containsKey(packed)) {
+                    throw new IllegalArgumentException("another file is also level " + key[0] + " module "
+                                                       + key[1] + " task " + key[2]);
+                }
+                records.put(packed, Files.readAllBytes(file.toPath()));
+                keys.put(packed, key);
+            } catch (Exception e) {
+                System.err.println(file + ": " + e.getMessage());
+                errors++;
+            }
+        }
+        
+        if (errors > 0) {
+            System.err.println(errors + " task files with problems, no pack written");
+            System.exit(1);
+        }
+        
+        Path output = Paths.get(args[0]);
+        write(output, keys, records);
+        System.out.println("Wrote " + records.size() + " tasks to " + output);
+    }
+    
+    private static void collectTaskFiles(File path, List<File> files) {
+        File[] children = path.listFiles();
+        if (children == null) {
+            files.add(path);
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory() || child.getName().endsWith(".txt")) {
+                collectTaskFiles(child, files);
+            }
+        }
+    }
+    
+    private static void write(Path output, TreeMap<Long, int[]> keys, TreeMap<Long, byte[]> records)
+            throws IOException {
+        long size = TaskPack.HEADER_BYTES + (long) records.size() * TaskPack.ENTRY_BYTES;
+        for (byte[] record : records.values()) {
+            size += record.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Task pack would be " + size + " bytes, over the 2 GB limit");
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(TaskPack.MAGIC).putInt(TaskPack.VERSION).putInt(records.size());
+        int offset = TaskPack.HEADER_BYTES + records.size() * TaskPack.ENTRY_BYTES;
+        for (long packed : records.keySet()) {
+            int[] key = keys.get(packed);
+            int length = records.get(packed).length;
+            buffer.putInt(key[0]).putInt(key[1]).putInt(key[2]).putInt(offset).putInt(length);
+            offset += length;
+        }
+        for (byte[] record : records.values()) {
+            buffer.put(record);
+        }
+        buffer.flip();
+        
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
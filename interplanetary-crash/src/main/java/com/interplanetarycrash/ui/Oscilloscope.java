@@ -0,0 +1,292 @@
+package com.interplanetarycrash.ui;
+
+import com.interplanetarycrash.rendering.GameRenderer;
+import com.interplanetarycrash.assets.AssetManager;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+/**
+ * Triggered oscilloscope display
+ *
+ * Samples are appended to a fixed-size ring buffer and drawn as they arrive:
+ * the beam sweeps left to right over a cached raster, and only the columns
+ * it crosses are rewritten, so the cost per frame follows the number of new
+ * samples, not the panel width. Each sweep starts on a rising crossing of
+ * the trigger level (or after a timeout, so flat signals still show), which
+ * keeps periodic traces still.
+ */
+public class Oscilloscope {
+
+    public static final int DIVISIONS_X = 10;
+    public static final int DIVISIONS_Y = 8;
+
+    // Time per division steps (seconds)
+    private static final double[] TIME_PER_DIVISION = {
+        0.0005, 0.001, 0.002, 0.005, 0.01, 0.02, 0.05
+    };
+
+    // Start a sweep anyway if no trigger came for this long
+    private static final double AUTO_TRIGGER_SECONDS = 0.1;
+
+    private static final int BACKGROUND = 0xFF001400;
+    private static final int TRACE = 0xFF00FF00;
+
+    private final double x, y;
+    private final double width, height;
+    private final int columns, rows;
+    private final double sampleRate;
+    private double fullScale;
+
+    // Sample history (power-of-2 ring, newest at written - 1 (mod ring length))
+    private final double[] ring;
+    private final int ringMask;
+    private long written = 0;
+
+    // Raster, one pixel column per display column
+    private WritableImage raster;
+    private final int[] columnPixels;
+
+    // Sweep state
+    private int timeIndex = 3;
+    private double columnsPerSample;
+    private double triggerLevel = 0;
+    private boolean sweeping = false;
+    private boolean armed = false;
+    private long waitedSamples = 0;
+    private double sweepX = 0;
+    private double columnMin, columnMax;
+    private double lastValue = 0;
+
+    private Font labelFont;
+
+    /**
+     * @param sampleRate rate of the samples that will be written, in Hz
+     * @param fullScale signal value shown at the top edge
+     */
+    public Oscilloscope(double x, double y, double width, double height,
+                        double sampleRate, double fullScale) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.columns = Math.max(1, (int) width);
+        this.rows = Math.max(1, (int) height);
+        this.sampleRate = sampleRate;
+        this.fullScale = fullScale;
+        this.columnPixels = new int[rows];
+
+        // Enough history to redraw the slowest timebase
+        int needed = (int) Math.ceil(TIME_PER_DIVISION[TIME_PER_DIVISION.length - 1]
+                                     * DIVISIONS_X * sampleRate) * 2;
+        this.ring = new double[Integer.highestOneBit(Math.max(needed, 2) - 1) << 1];
+        this.ringMask = ring.length - 1;
+
+        updateTimebase();
+
+        AssetManager asset = AssetManager.getInstance();
+        this.labelFont = asset.getFont("retro_small");
+    }
+
+    // ===== INPUT =====
+
+    /**
+     * Append new samples and draw the part of the sweep they cover
+     */
+    public void write(double[] samples, int count) {
+        ensureRaster();
+        for (int i = 0; i < count; i++) {
+            double v = samples[i];
+            ring[(int) (written++ & ringMask)] = v;
+            advance(v);
+        }
+    }
+
+    // ===== CONTROLS =====
+
+    /**
+     * Step the timebase (positive = slower sweep)
+     */
+    public void stepTimebase(int direction) {
+        int index = Math.max(0, Math.min(TIME_PER_DIVISION.length - 1, timeIndex + direction));
+        if (index == timeIndex) return;
+        timeIndex = index;
+        updateTimebase();
+        redraw();
+    }
+
+    /**
+     * Move the trigger level, clamped to the visible range
+     */
+    public void adjustTriggerLevel(double delta) {
+        triggerLevel = Math.max(-fullScale, Math.min(fullScale, triggerLevel + delta));
+    }
+
+    public void setFullScale(double fullScale) {
+        this.fullScale = fullScale;
+        triggerLevel = Math.max(-fullScale, Math.min(fullScale, triggerLevel));
+    }
+
+    /**
+     * Forget all samples and blank the screen
+     */
+    public void clear() {
+        written = 0;
+        sweeping = false;
+        armed = false;
+        waitedSamples = 0;
+        lastValue = 0;
+        if (raster != null) {
+            blank();
+        }
+    }
+
+    // ===== SWEEP =====
+
+    private void updateTimebase() {
+        double samplesPerSweep = TIME_PER_DIVISION[timeIndex] * DIVISIONS_X * sampleRate;
+        columnsPerSample = columns / samplesPerSweep;
+    }
+
+    /**
+     * Feed one sample to the trigger / beam
+     */
+    private void advance(double v) {
+        if (!sweeping) {
+            waitedSamples++;
+            boolean rising = armed && lastValue < triggerLevel && v >= triggerLevel;
+            if (v < triggerLevel) armed = true;
+
+            if (rising || waitedSamples > AUTO_TRIGGER_SECONDS * sampleRate) {
+                sweeping = true;
+                sweepX = 0;
+                columnMin = columnMax = v;
+                waitedSamples = 0;
+            }
+            lastValue = v;
+            return;
+        }
+
+        // The segment from the previous sample to this one crosses
+        // zero or more column boundaries; each crossed column is final
+        double x0 = sweepX;
+        double x1 = sweepX + columnsPerSample;
+        double v0 = lastValue;
+        int column = (int) x0;
+
+        while (x1 >= column + 1) {
+            double boundary = v0 + (v - v0) * (column + 1 - x0) / (x1 - x0);
+            include(boundary);
+            drawColumn(column);
+            column++;
+            if (column >= columns) {
+                // End of sweep, wait for the next trigger
+                sweeping = false;
+                armed = false;
+                lastValue = v;
+                return;
+            }
+            columnMin = columnMax = boundary;
+        }
+        include(v);
+
+        sweepX = x1;
+        lastValue = v;
+    }
+
+    private void include(double v) {
+        if (v < columnMin) columnMin = v;
+        if (v > columnMax) columnMax = v;
+    }
+
+    /**
+     * Rewrite one raster column with the trace span [columnMin, columnMax]
+     */
+    private void drawColumn(int column) {
+        int top = toRow(columnMax);
+        int bottom = toRow(columnMin);
+        for (int row = 0; row < rows; row++) {
+            columnPixels[row] = (row >= top && row <= bottom) ? TRACE : BACKGROUND;
+        }
+        raster.getPixelWriter().setPixels(column, 0, 1, rows,
+            PixelFormat.getIntArgbInstance(), columnPixels, 0, 1);
+    }
+
+    private int toRow(double v) {
+        double normalized = 0.5 - v / (2 * fullScale);
+        int row = (int) Math.round(normalized * (rows - 1));
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Replay the most recent sweep from the history (after a timebase change)
+     */
+    private void redraw() {
+        if (raster == null) return;
+        blank();
+
+        long available = Math.min(written, ring.length);
+        long sweepSamples = (long) Math.ceil(columns / columnsPerSample);
+        long start = written - Math.min(available, sweepSamples * 2);
+
+        sweeping = false;
+        armed = false;
+        waitedSamples = 0;
+        lastValue = start < written ? ring[(int) (start & ringMask)] : 0;
+        for (long i = start; i < written; i++) {
+            advance(ring[(int) (i & ringMask)]);
+        }
+    }
+
+    private void ensureRaster() {
+        if (raster == null) {
+            raster = new WritableImage(columns, rows);
+            blank();
+        }
+    }
+
+    private void blank() {
+        for (int row = 0; row < rows; row++) {
+            columnPixels[row] = BACKGROUND;
+        }
+        for (int column = 0; column < columns; column++) {
+            raster.getPixelWriter().setPixels(column, 0, 1, rows,
+                PixelFormat.getIntArgbInstance(), columnPixels, 0, 1);
+        }
+    }
+
+    // ===== RENDERING =====
+
+    public void render(GameRenderer renderer) {
+        ensureRaster();
+        renderer.drawImage(raster, x, y, width, height);
+
+        // Graticule
+        for (int i = 1; i < DIVISIONS_X; i++) {
+            double gx = x + width * i / DIVISIONS_X;
+            renderer.drawLine(gx, y, gx, y + height, GameRenderer.RETRO_GREEN_DARKER, 1);
+        }
+        for (int i = 1; i < DIVISIONS_Y; i++) {
+            double gy = y + height * i / DIVISIONS_Y;
+            renderer.drawLine(x, gy, x + width, gy, GameRenderer.RETRO_GREEN_DARKER, 1);
+        }
+
+        // Trigger marker
+        double triggerY = y + (0.5 - triggerLevel / (2 * fullScale)) * height;
+        renderer.drawLine(x - 8, triggerY, x, triggerY, Color.YELLOW, 2);
+
+        renderer.drawRect(x, y, width, height, GameRenderer.RETRO_GREEN);
+
+        double timePerDivision = TIME_PER_DIVISION[timeIndex];
+        String time = timePerDivision < 0.001
+            ? String.format("%.1f ms/div", timePerDivision * 1000)
+            : String.format("%.0f ms/div", timePerDivision * 1000);
+        renderer.drawText(time + String.format("   TRIG %.2f", triggerLevel),
+                         x + 10, y + height - 8, labelFont,
+                         sweeping ? GameRenderer.RETRO_GREEN : GameRenderer.RETRO_GREEN_DARK);
+    }
+
+    public double getTimePerDivision() { return TIME_PER_DIVISION[timeIndex]; }
+    public double getTriggerLevel() { return triggerLevel; }
+}